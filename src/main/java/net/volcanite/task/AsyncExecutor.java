@@ -3,6 +3,7 @@ package net.volcanite.task;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -14,14 +15,29 @@ import net.volcanite.util.DiscardOverflowsQueue;
 
 /**
  * A dedicated "fixed ThreadPool" Executor for asynchronous operations.
+ * <p>
+ * What happens to a task that can't be enqueued (because the queue is full
+ * or the executor isn't running) is determined by the configured
+ * {@link OverflowStrategy} (default: {@link OverflowStrategy#DROP}). Queue
+ * depth, drop counts and latencies are available via {@link #getStats()}.
  */
 public final class AsyncExecutor {
 
     private static final Logger logger = Logger.getLogger(AsyncExecutor.class.getName());
 
+    /** Default time a submitter may block with {@link OverflowStrategy#BLOCK} */
+    public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 1_000L;
+    /** How long a drain waits for the worker after it has been interrupted */
+    static final long INTERRUPT_GRACE_MILLIS = 500L;
+
     private volatile ExecutorService executor = null;
     private volatile int queueCapacityDefault = DiscardOverflowsQueue.DEFAULT_MAX_CAPACITY;
     private volatile BlockingQueue<Runnable> queue = null;
+    private volatile OverflowStrategy overflowStrategy = OverflowStrategy.DROP;
+    private volatile long blockTimeoutMillis = DEFAULT_BLOCK_TIMEOUT_MILLIS;
+    private volatile SpillHandler spillHandler = null;
+    private final ExecutorStats stats = new ExecutorStats(this::queueSize);
+    private final DrainSupport drainSupport = new DrainSupport(this::getName, logger);
     volatile String name;
     private static final AtomicInteger threadNumber = new AtomicInteger(1);
 
@@ -56,22 +72,24 @@ public final class AsyncExecutor {
      * Stop the AsyncExecutor and discard any pending tasks in the queue. This
      * method has no effect if the executor is already stopped.
      */
-    public void stop() {
+    public synchronized void stop() {
         if (isRunning()) {
             List<Runnable> tasksRemaining = executor.shutdownNow();
             if (tasksRemaining != null && tasksRemaining.size() > 0) {
+                stats.dropped.addAndGet(tasksRemaining.size());
                 logger.log(Level.WARNING,
                         name + " was stopped. " + tasksRemaining.size() + " AsyncTasks haven't been processed.");
             }
         }
         executor = null;
         queue = null;
+        drainSupport.removeShutdownHook();
     }
 
     /**
-     * Stop the AsyncExecutor within {@code timeoutMillis} milliseconds and
-     * discard any pending tasks in the queue. This method has no effect if the
-     * executor is already stopped.
+     * Stop the AsyncExecutor within {@code timeoutMillis} milliseconds. This
+     * is the same as {@link #drain(long)} but only reports the elapsed time.
+     * This method has no effect if the executor is already stopped.
      * 
      * @param timeoutMillis
      *            the maximum time to wait for shutdown (in milliseconds)
@@ -79,42 +97,199 @@ public final class AsyncExecutor {
      *         executor
      */
     public long stop(long timeoutMillis) {
-        long elapsed = 0L;
-        if (isRunning()) {
-            // don't wait less than 31 milliseconds
-            timeoutMillis = (timeoutMillis < 31L) ? 31L : timeoutMillis;
-            long lastTime = System.nanoTime();
-            long nanosTimeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
-            while (queue != null && queue.size() > 0) {
-                // compute remaining timeout
-                long now = System.nanoTime();
-                nanosTimeout -= (now - lastTime);
-                lastTime = now;
-                // truncate down to milliseconds
-                long millisRemaining = TimeUnit.NANOSECONDS.toMillis(nanosTimeout);
-                if (millisRemaining > 0L) {
-                    millisRemaining = (millisRemaining > 16L) ? 16L : millisRemaining;
-                    try {
-                        Thread.sleep(millisRemaining);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                    elapsed += ((System.nanoTime() - lastTime) / 1_000_000);
+        return drain(timeoutMillis).getElapsedMillis();
+    }
+
+    /**
+     * Gracefully shut down the AsyncExecutor: stop accepting new tasks (they
+     * are handled by the {@link OverflowStrategy} from now on), let the worker
+     * finish the tasks that are already queued within {@code timeoutMillis}
+     * milliseconds and then run the actions registered via
+     * {@link #onDrained(Runnable)} (e.g. a WAL sync). Tasks that are still
+     * pending after the timeout are spilled if the
+     * {@link OverflowStrategy#SPILL} strategy is in effect, otherwise they are
+     * discarded. The worker is then interrupted and given at most another
+     * {@value #INTERRUPT_GRACE_MILLIS} milliseconds to terminate. This method
+     * has no effect if the executor is already stopped.
+     * 
+     * @param timeoutMillis
+     *            the maximum time to wait for the queued tasks (in
+     *            milliseconds)
+     * @return a summary of the completed and discarded tasks
+     */
+    public synchronized DrainSummary drain(long timeoutMillis) {
+        long start = System.nanoTime();
+        if (!isRunning()) {
+            return DrainSummary.empty();
+        }
+        long completedBefore = stats.getCompletedCount();
+        long failedBefore = stats.getFailedCount();
+        beginDrain();
+        DrainSummary summary = awaitDrain(start + TimeUnit.MILLISECONDS.toNanos(Math.max(timeoutMillis, 0L)),
+                completedBefore, failedBefore);
+        runDrainActions();
+        return summary.withElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Registers an action that is run after the executor has been drained
+     * (for example {@code store::syncWAL}).
+     * 
+     * @param action
+     *            the action to run after each drain
+     */
+    public void onDrained(Runnable action) {
+        drainSupport.onDrained(action);
+    }
+
+    /**
+     * Enables or disables draining the executor from a JVM shutdown hook.
+     * 
+     * @param enabled
+     *            whether a shutdown hook should drain the executor
+     * @param timeoutMillis
+     *            the drain timeout to use in the shutdown hook
+     */
+    public synchronized void setDrainOnShutdown(boolean enabled, long timeoutMillis) {
+        drainSupport.setDrainOnShutdown(enabled, () -> drain(timeoutMillis));
+    }
+
+    /**
+     * Stops accepting new tasks while letting the queued tasks run.
+     */
+    void beginDrain() {
+        ExecutorService exec = executor;
+        if (exec != null) {
+            exec.shutdown();
+        }
+    }
+
+    /**
+     * Waits until {@code deadlineNanos} for the queued tasks to finish and
+     * disposes of whatever is left afterwards.
+     */
+    DrainSummary awaitDrain(long deadlineNanos, long completedBefore, long failedBefore) {
+        ExecutorService exec = executor;
+        if (exec == null) {
+            return DrainSummary.empty();
+        }
+        boolean terminated = false;
+        try {
+            terminated = exec.awaitTermination(Math.max(deadlineNanos - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long discarded = 0L;
+        long spilled = 0L;
+        boolean alive = false;
+        if (!terminated) {
+            List<Runnable> tasksRemaining = exec.shutdownNow();
+            OverflowStrategy strategy = (overflowStrategy == OverflowStrategy.SPILL) ? OverflowStrategy.SPILL
+                    : OverflowStrategy.DROP;
+            for (Runnable r : tasksRemaining) {
+                if (stats.overflow(((TimedTask) r).task, strategy, spillHandler)) {
+                    ++spilled;
                 } else {
-                    break;
+                    ++discarded;
                 }
             }
-            stop();
+            if (discarded > 0L) {
+                logger.log(Level.WARNING, name + " was drained. " + discarded + " AsyncTasks haven't been processed.");
+            }
+            try {
+                alive = !exec.awaitTermination(INTERRUPT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                alive = !exec.isTerminated();
+                Thread.currentThread().interrupt();
+            }
+            if (alive) {
+                logger.log(Level.WARNING, name + " is still running after the drain.");
+            }
         }
-        return elapsed;
+        executor = null;
+        queue = null;
+        drainSupport.removeShutdownHook();
+        return new DrainSummary(stats.getCompletedCount() - completedBefore, stats.getFailedCount() - failedBefore,
+                discarded, spilled, 0L, terminated, alive);
+    }
+
+    void runDrainActions() {
+        drainSupport.runDrainActions();
     }
 
+    /**
+     * Submit a task for asynchronous execution. If the task can't be enqueued
+     * it is handled according to the current {@link OverflowStrategy}. Note
+     * that {@link OverflowStrategy#BLOCK} degrades to
+     * {@link OverflowStrategy#DROP} if the executor isn't running.
+     * 
+     * @param task
+     *            the task to execute
+     */
     public void execute(AsyncTask task) {
-        if (task != null && isRunning()) {
-            executor.execute(task);
+        if (task != null) {
+            stats.submitted.incrementAndGet();
+            ExecutorService exec = executor;
+            if (exec != null && !exec.isShutdown()) {
+                exec.execute(new TimedTask(task, stats));
+            } else {
+                stats.overflow(task, overflowStrategy, spillHandler);
+            }
         }
     }
 
+    public OverflowStrategy getOverflowStrategy() {
+        return overflowStrategy;
+    }
+
+    public void setOverflowStrategy(OverflowStrategy strategy) {
+        overflowStrategy = (strategy == null) ? OverflowStrategy.DROP : strategy;
+    }
+
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+
+    /**
+     * Sets the maximum time a submitting thread blocks when the queue is full
+     * and the {@link OverflowStrategy#BLOCK} strategy is in effect.
+     * 
+     * @param timeoutMillis
+     *            the block timeout in milliseconds
+     */
+    public void setBlockTimeoutMillis(long timeoutMillis) {
+        blockTimeoutMillis = (timeoutMillis < 0L) ? 0L : timeoutMillis;
+    }
+
+    public SpillHandler getSpillHandler() {
+        return spillHandler;
+    }
+
+    /**
+     * Sets the handler that receives overflowed tasks when the
+     * {@link OverflowStrategy#SPILL} strategy is in effect.
+     * 
+     * @param handler
+     *            the SpillHandler to use
+     */
+    public void setSpillHandler(SpillHandler handler) {
+        spillHandler = handler;
+    }
+
+    public ExecutorStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of tasks currently waiting in the queue.
+     * 
+     * @return the current queue depth
+     */
+    public int queueSize() {
+        BlockingQueue<Runnable> q = queue;
+        return (q == null) ? 0 : q.size();
+    }
+
     private boolean isRunning() {
         return executor != null && !executor.isShutdown();
     }
@@ -124,7 +299,8 @@ public final class AsyncExecutor {
     }
 
     private ExecutorService newExecutorService(int queueCapacity) {
-        queue = new DiscardOverflowsQueue(queueCapacity);
+        // overflows are accounted for by the OverflowHandler
+        queue = new DiscardOverflowsQueue(queueCapacity, false);
         name = (name.isEmpty() ? AsyncExecutor.class.getSimpleName() : name) + "-Thread-"
                 + threadNumber.getAndIncrement();
         return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, queue, new ThreadFactory() {
@@ -133,7 +309,56 @@ public final class AsyncExecutor {
                 t.setDaemon(true);
                 t.setName(name);
                 return t;
-            } // throw away overflow tasks!
-        }, new ThreadPoolExecutor.DiscardPolicy());
+            }
+        }, new OverflowHandler());
+    }
+
+    /**
+     * Applies the current {@link OverflowStrategy} to a task that has been
+     * rejected by the ThreadPoolExecutor.
+     */
+    private final class OverflowHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor tpe) {
+            AsyncTask task = ((TimedTask) r).task;
+            OverflowStrategy strategy = overflowStrategy;
+            if (strategy == OverflowStrategy.BLOCK && !tpe.isShutdown()) {
+                stats.blocked.incrementAndGet();
+                try {
+                    if (tpe.getQueue().offer(r, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            stats.overflow(task, strategy, spillHandler);
+        }
+    }
+
+    /**
+     * Wraps a task to record its enqueue-to-execute latency and execution
+     * time.
+     */
+    private static final class TimedTask implements Runnable {
+        final AsyncTask task;
+        private final ExecutorStats stats;
+        private final long enqueuedNanos;
+
+        TimedTask(AsyncTask task, ExecutorStats stats) {
+            this.task = task;
+            this.stats = stats;
+            this.enqueuedNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            stats.runTimed(task, enqueuedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
     }
 }
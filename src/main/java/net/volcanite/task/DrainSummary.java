@@ -0,0 +1,112 @@
+package net.volcanite.task;
+
+/**
+ * The outcome of draining an asynchronous executor on shutdown.
+ */
+public final class DrainSummary {
+
+    private final long completed;
+    private final long failed;
+    private final long discarded;
+    private final long spilled;
+    private final long elapsedMillis;
+    private final boolean terminated;
+    private final boolean workersAlive;
+
+    public DrainSummary(long completed, long failed, long discarded, long spilled, long elapsedMillis,
+            boolean terminated, boolean workersAlive) {
+        this.completed = completed;
+        this.failed = failed;
+        this.discarded = discarded;
+        this.spilled = spilled;
+        this.elapsedMillis = elapsedMillis;
+        this.terminated = terminated;
+        this.workersAlive = workersAlive;
+    }
+
+    static DrainSummary empty() {
+        return new DrainSummary(0L, 0L, 0L, 0L, 0L, true, false);
+    }
+
+    /**
+     * Returns the number of tasks that have been completed successfully while
+     * draining.
+     * 
+     * @return the number of tasks completed during the drain
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Returns the number of tasks that have been executed while draining but
+     * failed.
+     * 
+     * @return the number of tasks failed during the drain
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of tasks that were still pending when the drain
+     * timeout elapsed and that have been lost.
+     * 
+     * @return the number of discarded tasks
+     */
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Returns the number of tasks that were still pending when the drain
+     * timeout elapsed and that have been handed to the {@link SpillHandler}.
+     * 
+     * @return the number of spilled tasks
+     */
+    public long getSpilled() {
+        return spilled;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns {@code true} if all pending work has been finished within the
+     * drain timeout.
+     * 
+     * @return whether the drain terminated in time
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * Returns {@code true} if a worker thread was still running when the
+     * drain gave up waiting for it (e.g. because it is stuck in a write that
+     * can't be interrupted).
+     * 
+     * @return whether worker threads outlived the drain
+     */
+    public boolean isWorkersAlive() {
+        return workersAlive;
+    }
+
+    DrainSummary add(DrainSummary other) {
+        return new DrainSummary(completed + other.completed, failed + other.failed, discarded + other.discarded,
+                spilled + other.spilled, Math.max(elapsedMillis, other.elapsedMillis),
+                terminated && other.terminated, workersAlive || other.workersAlive);
+    }
+
+    DrainSummary withElapsedMillis(long elapsedMillis) {
+        return new DrainSummary(completed, failed, discarded, spilled, elapsedMillis, terminated, workersAlive);
+    }
+
+    @Override
+    public String toString() {
+        return DrainSummary.class.getSimpleName() + "{completed=" + completed + ", failed=" + failed
+                + ", discarded=" + discarded + ", spilled=" + spilled + ", elapsedMillis=" + elapsedMillis
+                + ", terminated=" + terminated + ", workersAlive=" + workersAlive + "}";
+    }
+}
@@ -0,0 +1,101 @@
+package net.volcanite.task;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The drain actions and the JVM shutdown hook of an asynchronous executor.
+ * The executor supplies its {@code drain} method, this class takes care of
+ * registering, running and removing the rest.
+ */
+public final class DrainSupport {
+
+    private final Supplier<String> name;
+    private final Logger logger;
+    private final CopyOnWriteArrayList<Runnable> drainActions = new CopyOnWriteArrayList<>();
+    private volatile Thread shutdownHook = null;
+
+    /**
+     * Create a new {@code DrainSupport}.
+     * 
+     * @param name
+     *            supplies the current name of the executor
+     * @param logger
+     *            the logger of the executor
+     */
+    public DrainSupport(Supplier<String> name, Logger logger) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.logger = Objects.requireNonNull(logger, "logger");
+    }
+
+    /**
+     * Registers an action that {@link #runDrainActions()} runs.
+     * 
+     * @param action
+     *            the action to run after each drain
+     */
+    public void onDrained(Runnable action) {
+        if (action != null) {
+            drainActions.add(action);
+        }
+    }
+
+    /**
+     * Runs the registered drain actions, logging (and otherwise ignoring)
+     * failures.
+     */
+    public void runDrainActions() {
+        for (Runnable action : drainActions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, name.get() + " drain action failed", e);
+            }
+        }
+    }
+
+    /**
+     * Replaces the current shutdown hook (if any) with one that calls
+     * {@code drain} if {@code enabled} is set.
+     * 
+     * @param enabled
+     *            whether a shutdown hook should drain the executor
+     * @param drain
+     *            drains the executor with the timeout of the shutdown hook
+     */
+    public synchronized void setDrainOnShutdown(boolean enabled, Supplier<DrainSummary> drain) {
+        removeShutdownHook();
+        if (enabled) {
+            Objects.requireNonNull(drain, "drain");
+            Thread hook = new Thread(() -> {
+                DrainSummary summary = drain.get();
+                if (summary.getDiscarded() > 0L || summary.getFailed() > 0L || summary.isWorkersAlive()) {
+                    logger.log(Level.WARNING, name.get() + " shutdown drain: " + summary);
+                } else {
+                    logger.log(Level.INFO, name.get() + " shutdown drain: " + summary);
+                }
+            });
+            hook.setName(name.get() + "-ShutdownDrain");
+            Runtime.getRuntime().addShutdownHook(hook);
+            shutdownHook = hook;
+        }
+    }
+
+    /**
+     * Removes the shutdown hook unless it is the calling thread.
+     */
+    public synchronized void removeShutdownHook() {
+        Thread hook = shutdownHook;
+        if (hook != null && hook != Thread.currentThread()) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException alreadyShuttingDown) {
+                // ignore
+            }
+        }
+        shutdownHook = null;
+    }
+}
@@ -0,0 +1,190 @@
+package net.volcanite.task;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import net.volcanite.util.DoubleStatistics;
+
+/**
+ * Saturation and latency figures of an asynchronous executor.
+ */
+public final class ExecutorStats {
+
+    final AtomicLong submitted = new AtomicLong();
+    final AtomicLong completed = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong blocked = new AtomicLong();
+    final AtomicLong callerRuns = new AtomicLong();
+    final AtomicLong spilled = new AtomicLong();
+    final DoubleStatistics queueLatencyNanos = DoubleStatistics.newInstance(true);
+    final DoubleStatistics executionTimeNanos = DoubleStatistics.newInstance(true);
+    private final IntSupplier queueDepth;
+
+    public ExecutorStats(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Returns the number of tasks currently waiting in the queue.
+     * 
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the number of tasks that terminated with an exception.
+     * 
+     * @return the number of failed tasks
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the number of tasks that have been lost because they couldn't
+     * be enqueued (or spilled).
+     * 
+     * @return the number of dropped tasks
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns how often a submitting thread had to block because the queue
+     * was full ({@link OverflowStrategy#BLOCK}).
+     * 
+     * @return the number of blocked submissions
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRuns.get();
+    }
+
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    /**
+     * Returns the statistics of the time between the submission of a task and
+     * the start of its execution.
+     * 
+     * @return enqueue-to-execute latency statistics in nanoseconds
+     */
+    public DoubleStatistics getQueueLatencyNanos() {
+        return queueLatencyNanos;
+    }
+
+    /**
+     * Returns the statistics of the execution time of the tasks.
+     * 
+     * @return task execution time statistics in nanoseconds
+     */
+    public DoubleStatistics getExecutionTimeNanos() {
+        return executionTimeNanos;
+    }
+
+    public void recordSubmitted() {
+        submitted.incrementAndGet();
+    }
+
+    public void recordDropped(long tasks) {
+        dropped.addAndGet(tasks);
+    }
+
+    public void recordBlocked() {
+        blocked.incrementAndGet();
+    }
+
+    /**
+     * Records the outcome of a batch of tasks that have been executed
+     * together.
+     * 
+     * @param tasks
+     *            the number of tasks in the batch
+     * @param success
+     *            whether the batch completed successfully
+     * @param executionTimeNanos
+     *            the time it took to execute the whole batch
+     */
+    public void recordBatch(long tasks, boolean success, long executionTimeNanos) {
+        if (success) {
+            completed.addAndGet(tasks);
+        } else {
+            failed.addAndGet(tasks);
+        }
+        this.executionTimeNanos.accept(executionTimeNanos);
+    }
+
+    public void recordQueueLatency(long latencyNanos) {
+        queueLatencyNanos.accept(latencyNanos);
+    }
+
+    /**
+     * Records an overflowed task according to the given strategy.
+     * 
+     * @param task
+     *            the task that couldn't be enqueued
+     * @param strategy
+     *            the overflow strategy in effect
+     * @param spillHandler
+     *            the SpillHandler (may be {@code null})
+     * @return {@code true} if the task has been taken care of (run by the
+     *         caller or spilled), {@code false} if it has been dropped
+     */
+    public boolean overflow(AsyncTask task, OverflowStrategy strategy, SpillHandler spillHandler) {
+        if (strategy == OverflowStrategy.CALLER_RUNS) {
+            callerRuns.incrementAndGet();
+            runTimed(task, System.nanoTime());
+            return true;
+        }
+        if (strategy == OverflowStrategy.SPILL && spillHandler != null) {
+            try {
+                if (spillHandler.spill(task)) {
+                    spilled.incrementAndGet();
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // treat as dropped
+            }
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    void runTimed(Runnable task, long enqueuedNanos) {
+        long start = System.nanoTime();
+        queueLatencyNanos.accept(start - enqueuedNanos);
+        try {
+            task.run();
+            completed.incrementAndGet();
+        } catch (RuntimeException | Error e) {
+            failed.incrementAndGet();
+            throw e;
+        } finally {
+            executionTimeNanos.accept(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ExecutorStats.class.getSimpleName() + "{queueDepth=" + getQueueDepth() + ", submitted="
+                + getSubmittedCount() + ", completed=" + getCompletedCount() + ", failed=" + getFailedCount()
+                + ", dropped=" + getDroppedCount() + ", blocked=" + getBlockedCount() + ", callerRuns="
+                + getCallerRunsCount() + ", spilled=" + getSpilledCount() + "}";
+    }
+}
@@ -0,0 +1,17 @@
+package net.volcanite.task;
+
+/**
+ * An {@link AsyncTask} that carries an affinity value. Tasks with the same
+ * affinity are always executed by the same worker thread of a
+ * {@link PartitionedAsyncExecutor} and therefore in submission order.
+ */
+public interface KeyedTask extends AsyncTask {
+
+    /**
+     * Returns the affinity of this task (usually a hash of the key the task
+     * operates on).
+     * 
+     * @return the affinity value of this task
+     */
+    int affinity();
+}
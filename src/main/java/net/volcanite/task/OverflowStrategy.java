@@ -0,0 +1,32 @@
+package net.volcanite.task;
+
+/**
+ * What an asynchronous executor does with a task that it cannot enqueue,
+ * either because its queue is full or because it isn't running.
+ */
+public enum OverflowStrategy {
+
+    /**
+     * Discard the task and increment the dropped tasks counter.
+     */
+    DROP,
+
+    /**
+     * Block the submitting thread until there is room in the queue or the
+     * configured block timeout has elapsed. If the timeout elapses the task
+     * gets dropped.
+     */
+    BLOCK,
+
+    /**
+     * Run the task directly in the submitting thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Hand the task over to the configured {@link SpillHandler} (for example
+     * an on-disk queue). If there is no handler or the handler refuses the
+     * task it gets dropped.
+     */
+    SPILL
+}
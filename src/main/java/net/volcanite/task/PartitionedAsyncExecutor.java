@@ -0,0 +1,252 @@
+package net.volcanite.task;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import net.volcanite.util.DiscardOverflowsQueue;
+import net.volcanite.util.Hash;
+
+/**
+ * An Executor for asynchronous operations that spreads the submitted tasks
+ * over {@code N} single-threaded {@link AsyncExecutor} partitions.
+ * {@link KeyedTask}s are routed by the hash of their
+ * {@link KeyedTask#affinity() affinity} so that all tasks for the same key
+ * are executed in submission order by the same worker. Other
+ * {@link AsyncTask}s are distributed round-robin and have no ordering
+ * guarantees relative to each other.
+ * <p>
+ * Note that partitioning buys per-key ordering, not write parallelism, for
+ * tasks that write to a {@code KVStore}: the store's operations are
+ * {@code synchronized} on the store, so the workers serialize on its monitor
+ * and the throughput doesn't scale with the number of partitions (it may even
+ * be a little lower than that of a single {@link AsyncExecutor} because of the
+ * lock contention). Use more partitions only for tasks that spend most of
+ * their time outside of the store.
+ */
+public final class PartitionedAsyncExecutor {
+
+    private static final Logger logger = Logger.getLogger(PartitionedAsyncExecutor.class.getName());
+
+    private final AsyncExecutor[] partitions;
+    private final AtomicLongArray routed;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final String name;
+    private final DrainSupport drainSupport = new DrainSupport(this::getName, logger);
+
+    public PartitionedAsyncExecutor(int workers) {
+        this("", workers);
+    }
+
+    public PartitionedAsyncExecutor(String name, int workers) {
+        this(name, workers, DiscardOverflowsQueue.DEFAULT_MAX_CAPACITY);
+    }
+
+    /**
+     * Create a new {@code PartitionedAsyncExecutor}.
+     * 
+     * @param name
+     *            the base name of the worker threads
+     * @param workers
+     *            the number of partitions (worker threads)
+     * @param queueCapacityPerWorker
+     *            the maximum queue depth of each partition
+     */
+    public PartitionedAsyncExecutor(String name, int workers, int queueCapacityPerWorker) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers: " + workers);
+        }
+        this.name = (name == null || name.isEmpty()) ? PartitionedAsyncExecutor.class.getSimpleName() : name.trim();
+        partitions = new AsyncExecutor[workers];
+        for (int i = 0; i < workers; ++i) {
+            partitions[i] = new AsyncExecutor(this.name + "-P" + i, queueCapacityPerWorker);
+        }
+        routed = new AtomicLongArray(workers);
+    }
+
+    /**
+     * Start all partitions. This method has no effect on partitions that are
+     * already running.
+     */
+    public void start() {
+        for (AsyncExecutor partition : partitions) {
+            partition.start();
+        }
+    }
+
+    /**
+     * Stop all partitions and discard any pending tasks in their queues.
+     */
+    public synchronized void stop() {
+        for (AsyncExecutor partition : partitions) {
+            partition.stop();
+        }
+        drainSupport.removeShutdownHook();
+    }
+
+    /**
+     * Stop all partitions within {@code timeoutMillis} milliseconds (in
+     * total) and discard any tasks that are still pending afterwards.
+     * 
+     * @param timeoutMillis
+     *            the maximum time to wait for shutdown (in milliseconds)
+     * @return the number of milliseconds it actually took to shutdown all
+     *         partitions
+     */
+    public long stop(long timeoutMillis) {
+        return drain(timeoutMillis).getElapsedMillis();
+    }
+
+    /**
+     * Gracefully shut down all partitions. All partitions stop accepting new
+     * tasks at once and then share a single deadline of {@code timeoutMillis}
+     * milliseconds to finish their queued tasks. Afterwards the actions
+     * registered via {@link #onDrained(Runnable)} are run.
+     * 
+     * @param timeoutMillis
+     *            the maximum time to wait for the queued tasks of all
+     *            partitions (in milliseconds)
+     * @return the combined summary of all partitions
+     * @see AsyncExecutor#drain(long)
+     */
+    public synchronized DrainSummary drain(long timeoutMillis) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(timeoutMillis, 0L));
+        long[] completedBefore = new long[partitions.length];
+        long[] failedBefore = new long[partitions.length];
+        for (int i = 0; i < partitions.length; ++i) {
+            completedBefore[i] = partitions[i].getStats().getCompletedCount();
+            failedBefore[i] = partitions[i].getStats().getFailedCount();
+            partitions[i].beginDrain();
+        }
+        DrainSummary summary = DrainSummary.empty();
+        for (int i = 0; i < partitions.length; ++i) {
+            summary = summary.add(partitions[i].awaitDrain(deadline, completedBefore[i], failedBefore[i]));
+        }
+        for (AsyncExecutor partition : partitions) {
+            partition.runDrainActions();
+        }
+        drainSupport.runDrainActions();
+        drainSupport.removeShutdownHook();
+        return summary.withElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Registers an action that is run once after all partitions have been
+     * drained (for example {@code store::syncWAL}).
+     * 
+     * @param action
+     *            the action to run after each drain
+     */
+    public void onDrained(Runnable action) {
+        drainSupport.onDrained(action);
+    }
+
+    /**
+     * Enables or disables draining all partitions from a JVM shutdown hook.
+     * 
+     * @param enabled
+     *            whether a shutdown hook should drain the partitions
+     * @param timeoutMillis
+     *            the drain timeout to use in the shutdown hook
+     */
+    public synchronized void setDrainOnShutdown(boolean enabled, long timeoutMillis) {
+        drainSupport.setDrainOnShutdown(enabled, () -> drain(timeoutMillis));
+    }
+
+    public void execute(AsyncTask task) {
+        if (task != null) {
+            int idx;
+            if (task instanceof KeyedTask) {
+                idx = partitionFor(((KeyedTask) task).affinity());
+            } else {
+                idx = (roundRobin.getAndIncrement() & 0x7fffffff) % partitions.length;
+            }
+            routed.incrementAndGet(idx);
+            partitions[idx].execute(task);
+        }
+    }
+
+    /**
+     * Returns the index of the partition that executes tasks with the given
+     * affinity.
+     * 
+     * @param affinity
+     *            the affinity of a {@link KeyedTask}
+     * @return the partition index in the range {@code [0, partitionCount())}
+     */
+    public int partitionFor(int affinity) {
+        return (Hash.hash32(affinity) & 0x7fffffff) % partitions.length;
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Returns the number of tasks that have been routed to each partition so
+     * far.
+     * 
+     * @return the per-partition routing counts
+     */
+    public long[] getRoutedCounts() {
+        long[] counts = new long[partitions.length];
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = routed.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the current queue depth of each partition.
+     * 
+     * @return the per-partition queue sizes
+     */
+    public int[] getQueueSizes() {
+        int[] sizes = new int[partitions.length];
+        for (int i = 0; i < sizes.length; ++i) {
+            sizes[i] = partitions[i].queueSize();
+        }
+        return sizes;
+    }
+
+    /**
+     * Sets the {@link OverflowStrategy} of all partitions.
+     * 
+     * @param strategy
+     *            the strategy to use
+     */
+    public void setOverflowStrategy(OverflowStrategy strategy) {
+        for (AsyncExecutor partition : partitions) {
+            partition.setOverflowStrategy(strategy);
+        }
+    }
+
+    public void setBlockTimeoutMillis(long timeoutMillis) {
+        for (AsyncExecutor partition : partitions) {
+            partition.setBlockTimeoutMillis(timeoutMillis);
+        }
+    }
+
+    public void setSpillHandler(SpillHandler handler) {
+        for (AsyncExecutor partition : partitions) {
+            partition.setSpillHandler(handler);
+        }
+    }
+
+    /**
+     * Returns the {@link ExecutorStats} of the given partition.
+     * 
+     * @param partition
+     *            the partition index
+     * @return the statistics of that partition
+     */
+    public ExecutorStats getStats(int partition) {
+        return partitions[partition].getStats();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,18 @@
+package net.volcanite.task;
+
+/**
+ * Receives the tasks that an asynchronous executor couldn't enqueue when the
+ * {@link OverflowStrategy#SPILL} strategy is in effect.
+ */
+public interface SpillHandler {
+
+    /**
+     * Spill the given task.
+     * 
+     * @param task
+     *            the task that couldn't be enqueued
+     * @return {@code true} if the task has been spilled, {@code false} if it
+     *         couldn't be spilled (the task is dropped in that case)
+     */
+    boolean spill(AsyncTask task);
+}
@@ -1,6 +1,7 @@
 package net.volcanite.util;
 
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +24,10 @@ public final class DiscardOverflowsQueue extends LinkedBlockingQueue<Runnable> {
 
     /** The capacity bound */
     private final int capacity;
+    /** Whether discarded elements get logged */
+    private final boolean logDiscarded;
+    /** Number of discarded elements */
+    private final AtomicLong discarded = new AtomicLong();
 
     /**
      * Create a new DiscardOverflowsQueue of max capacity
@@ -39,8 +44,32 @@ public final class DiscardOverflowsQueue extends LinkedBlockingQueue<Runnable> {
      *            max capacity.
      */
     public DiscardOverflowsQueue(int capacity) {
+        this(capacity, true);
+    }
+
+    /**
+     * Create a new DiscardOverflowsQueue of max capacity {@code capacity}.
+     * 
+     * @param capacity
+     *            max capacity.
+     * @param logDiscarded
+     *            whether discarded elements should be logged (use
+     *            {@code false} if the caller handles overflows itself)
+     */
+    public DiscardOverflowsQueue(int capacity, boolean logDiscarded) {
         super(capacity);
         this.capacity = capacity;
+        this.logDiscarded = logDiscarded;
+    }
+
+    /**
+     * Returns the number of elements that have been discarded so far because
+     * the queue was full.
+     * 
+     * @return the number of discarded elements
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
     }
 
     /**
@@ -69,6 +98,9 @@ public final class DiscardOverflowsQueue extends LinkedBlockingQueue<Runnable> {
     public boolean offer(Runnable o) {
         boolean couldAdd = super.offer(o);
         if (!couldAdd) {
+            discarded.incrementAndGet();
+        }
+        if (!couldAdd && logDiscarded) {
             logger.log(Level.WARNING,
                     "Rejected Runnable: " + o.toString() + " (reached queue max. capacity of " + this.capacity + ")");
         }
@@ -34,6 +34,18 @@ public interface DoubleStatistics {
         }
     }
 
+    /**
+     * Creates a new threadsafe {@code DoubleStatistics} instance that records
+     * lock-free into per-thread cells and merges them on read. Prefer it over
+     * {@code newInstance(true)} when many threads record concurrently and
+     * reads are comparatively rare.
+     * 
+     * @return a new lock-free threadsafe {@code DoubleStatistics} instance
+     */
+    public static DoubleStatistics newStripedInstance() {
+        return new DoubleStatisticsStriped();
+    }
+
     /**
      * Records another value into the summary information.
      * 
@@ -0,0 +1,274 @@
+package net.volcanite.util;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import sun.misc.Unsafe;
+
+/**
+ * A state object for collecting statistics such as count, min, max, sum,
+ * average and variance (or standard deviation).
+ * <p>
+ * <b>Implementation Note:</b><br>
+ * This implementation is thread-safe and lock-free. Like
+ * {@link java.util.concurrent.atomic.LongAdder} it spreads the updates over
+ * several cells: each recording thread owns a cell of its own which only
+ * this thread ever writes to, so {@link #accept(double)} needs neither a
+ * lock nor a CAS loop. The getters merge the cells on every call (the
+ * variances of the cells are combined with the parallel algorithm of Chan
+ * et al.), which makes reading more expensive than recording. A cell is
+ * read consistently by validating a version stamp, but the cells are not
+ * read at the same instant, so a result may include only some of the
+ * values that are recorded concurrently. The cells of terminated threads
+ * are folded into a single accumulator whenever the statistics are read or
+ * a new thread starts recording, so their values remain part of the
+ * statistics without their cells piling up.
+ */
+public class DoubleStatisticsStriped implements DoubleStatistics {
+
+    private final ConcurrentLinkedQueue<Cell> cells = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Cell> cell = ThreadLocal.withInitial(this::newCell);
+    /** The merged cells of terminated threads (guarded by itself) */
+    private final Merged retired = new Merged();
+
+    /**
+     * Construct an empty instance with zero count, zero sum,
+     * {@code Double.POSITIVE_INFINITY} min, {@code Double.NEGATIVE_INFINITY}
+     * max and zero average.
+     */
+    public DoubleStatisticsStriped() {
+    }
+
+    private Cell newCell() {
+        Cell c = new Cell();
+        cells.add(c);
+        synchronized (retired) {
+            reclaim();
+        }
+        return c;
+    }
+
+    /**
+     * Folds the cells of terminated threads into {@link #retired}. Must be
+     * called while holding the lock of {@code retired}.
+     */
+    private void reclaim() {
+        for (Iterator<Cell> it = cells.iterator(); it.hasNext();) {
+            Cell c = it.next();
+            if (c.isOrphaned()) {
+                c.mergeInto(retired);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void accept(double value) {
+        cell.get().accept(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final long getCount() {
+        return merge().count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final double getSum() {
+        return merge().sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final double getMin() {
+        return merge().min;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final double getMax() {
+        return merge().max;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final double getAverage() {
+        return merge().getAverage();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final double getVariance() {
+        return merge().getVariance();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        Merged m = merge();
+        return String.format("%s{count=%d, sum=%f, min=%f, average=%f, max=%f, stddev=%f}",
+                this.getClass().getSimpleName(), m.count, m.sum, m.min, m.getAverage(), m.max,
+                Math.sqrt(m.getVariance()));
+    }
+
+    private Merged merge() {
+        Merged m = new Merged();
+        synchronized (retired) {
+            reclaim();
+            m.add(retired.count, retired.sum, retired.min, retired.max, retired.mean, retired.m2);
+            for (Cell c : cells) {
+                c.mergeInto(m);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * The statistics of a single recording thread. The owning thread makes
+     * the version odd while it updates the fields, readers retry until they
+     * have seen the same even version before and after reading the fields.
+     * This is the seqlock of {@code java.util.concurrent.locks.StampedLock}
+     * on Java 8: the writer follows the odd version with a store fence, so
+     * the field updates can't become visible before it, and publishes the
+     * even version with an ordered write (lazySet). The reader issues a load
+     * fence before it re-reads the version, so the field loads can't move
+     * past the check. Neither side needs a full (StoreLoad) fence.
+     */
+    private static final class Cell {
+        private static final AtomicLongFieldUpdater<Cell> VERSION = AtomicLongFieldUpdater.newUpdater(Cell.class,
+                "version");
+        private static final Unsafe U = unsafe();
+
+        /** The recording thread (cleared once it has been collected) */
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        private volatile long version;
+        private long count;
+        private double sum;
+        private double sumCompensation; // Negative low order bits of sum
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double mean;
+        /** the sum of squares of differences from the current mean (Welford) */
+        private double m2;
+
+        /**
+         * Whether the recording thread has terminated. Its last update
+         * happens-before the termination is detected, so the cell can then
+         * be read without validation.
+         */
+        boolean isOrphaned() {
+            Thread t = owner.get();
+            return t == null || !t.isAlive();
+        }
+
+        void accept(double value) {
+            long v = version;
+            VERSION.lazySet(this, v + 1L);
+            U.storeFence();
+            long n = count + 1L;
+            count = n;
+            // Kahan summation
+            double tmp = value - sumCompensation;
+            double velvel = sum + tmp;
+            sumCompensation = (velvel - sum) - tmp;
+            sum = velvel;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            double delta = value - mean;
+            mean += delta / n;
+            m2 += delta * (value - mean);
+            VERSION.lazySet(this, v + 2L);
+        }
+
+        void mergeInto(Merged m) {
+            long n;
+            double s, lo, hi, avg, sq;
+            long v;
+            do {
+                while (((v = version) & 1L) != 0L) {
+                    Thread.yield();
+                }
+                n = count;
+                s = sum - sumCompensation;
+                lo = min;
+                hi = max;
+                avg = mean;
+                sq = m2;
+                U.loadFence();
+            } while (version != v);
+            m.add(n, s, lo, hi, avg, sq);
+        }
+
+        private static Unsafe unsafe() {
+            try {
+                Field f = Unsafe.class.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                return (Unsafe) f.get(null);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    /** The result of merging the cells */
+    private static final class Merged {
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean;
+        double m2;
+
+        void add(long n, double s, double lo, double hi, double avg, double sq) {
+            if (n == 0L) {
+                return;
+            }
+            long total = count + n;
+            double delta = avg - mean;
+            m2 += sq + delta * delta * ((double) count * n / total);
+            mean += delta * n / total;
+            count = total;
+            sum += s;
+            min = Math.min(min, lo);
+            max = Math.max(max, hi);
+        }
+
+        double getAverage() {
+            return count > 0L ? sum / count : 0.0d;
+        }
+
+        double getVariance() {
+            double var = count > 1L ? m2 / (count - 1L) : 0.0d;
+            return var < 0.0 ? 0.0 : var;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package net.volcanite.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values (typically
+ * latencies in nanoseconds) with logarithmic buckets. Every power of two is
+ * split into 8 linear sub-buckets, so percentiles are reported with a
+ * relative error of at most 12.5%. Recording is an atomic increment of a
+ * single bucket counter and allocates nothing, which makes it cheap enough
+ * for hot paths and safe for any number of concurrent recording threads.
+ * Negative values are recorded as {@code 0}.
+ */
+public final class LogHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public LogHistogram() {
+        //
+    }
+
+    /**
+     * Records a value.
+     * 
+     * @param value
+     *            the value to record
+     */
+    public void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        long m;
+        while (value < (m = min.get()) && !min.compareAndSet(m, value)) {
+            // retry
+        }
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * Returns an immutable copy of the current state. Values that are
+     * recorded concurrently may or may not be included.
+     * 
+     * @return a snapshot of this histogram
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, sum.sum(), min.get(), max.get());
+    }
+
+    /**
+     * Returns the current state and resets this histogram in one go, which
+     * is useful for interval reporting. No concurrently recorded value gets
+     * lost, it is either part of the returned snapshot or of the next one
+     * (although min, max and sum of a value might be attributed to a
+     * different interval than its bucket).
+     * 
+     * @return a snapshot of the interval since the last reset
+     */
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            copy[i] = counts.getAndSet(i, 0L);
+        }
+        return new Snapshot(copy, sum.sumThenReset(), min.getAndSet(Long.MAX_VALUE),
+                max.getAndSet(Long.MIN_VALUE));
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + (index % SUB_BUCKETS)) << shift;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return lowerBound(index) + ((1L << shift) - 1L);
+    }
+
+    /**
+     * An immutable point-in-time copy of a {@link LogHistogram}.
+     */
+    public static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0L, Long.MAX_VALUE, Long.MIN_VALUE);
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long min, long max) {
+            long n = 0L;
+            for (long c : counts) {
+                n += c;
+            }
+            this.counts = counts;
+            this.count = n;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public static Snapshot empty() {
+            return EMPTY;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMin() {
+            return count == 0L ? 0L : min;
+        }
+
+        public long getMax() {
+            return count == 0L ? 0L : max;
+        }
+
+        public double getMean() {
+            return count == 0L ? 0.0 : sum / (double) count;
+        }
+
+        /**
+         * Returns the value below which the given percentage of the recorded
+         * values fall (the upper end of the bucket that contains it, capped at
+         * the maximum recorded value).
+         * 
+         * @param percentile
+         *            the percentile in the range {@code [0.0, 100.0]}
+         * @return the value at the percentile or {@code 0} if nothing has
+         *         been recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0 || Double.isNaN(percentile)) {
+                throw new IllegalArgumentException("percentile: " + percentile);
+            }
+            if (count == 0L) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(count * (percentile / 100.0)));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(Math.min(upperBound(i), getMax()), getMin());
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * Combines this snapshot with another one, e.g. of the shards of a
+         * sharded component.
+         * 
+         * @param other
+         *            the snapshot to add
+         * @return a new snapshot that contains the values of both
+         */
+        public Snapshot merge(Snapshot other) {
+            long[] merged = counts.clone();
+            for (int i = 0; i < merged.length; ++i) {
+                merged[i] += other.counts[i];
+            }
+            return new Snapshot(merged, sum + other.sum, Math.min(min, other.min), Math.max(max, other.max));
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + String.format("%.1f", getMean()) + ", min=" + getMin() + ", p50="
+                    + getValueAtPercentile(50.0) + ", p90=" + getValueAtPercentile(90.0) + ", p99="
+                    + getValueAtPercentile(99.0) + ", p999=" + getValueAtPercentile(99.9) + ", max=" + getMax();
+        }
+    }
+}
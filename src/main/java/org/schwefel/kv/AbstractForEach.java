@@ -25,11 +25,14 @@ abstract class AbstractForEach implements ForEachKeyValue {
     volatile RocksIterator iter;
     private volatile BasicOps ops;
     private final Stats stats;
+    /** native resources (ReadOptions, Slices) that must outlive the iterator */
+    private volatile AutoCloseable[] resources;
 
-    AbstractForEach(RocksIterator iter, Stats stats, BasicOps ops) {
+    AbstractForEach(RocksIterator iter, Stats stats, BasicOps ops, AutoCloseable... resources) {
         this.iter = Objects.requireNonNull(iter);
         this.ops = ops;
         this.stats = stats;
+        this.resources = resources;
     }
 
     @Override
@@ -43,6 +46,23 @@ abstract class AbstractForEach implements ForEachKeyValue {
             } finally {
                 iter = null;
                 ops = null;
+                closeResources();
+            }
+        }
+    }
+
+    private void closeResources() {
+        AutoCloseable[] res = resources;
+        resources = null;
+        if (res != null) {
+            for (AutoCloseable ac : res) {
+                if (ac != null) {
+                    try {
+                        ac.close();
+                    } catch (Exception ignore) {
+                        // ignore
+                    }
+                }
             }
         }
     }
@@ -20,4 +20,7 @@ public interface Batch extends AutoCloseable {
     void put(Kind kind, byte[] key, byte[] value);
     void delete(Kind kind, byte[] key);
     void singleDelete(Kind kind, byte[] key);
+    void onCommit(Runnable action);
+    void onRollback(Runnable action);
+    void close();
 }
@@ -23,6 +23,8 @@ import org.rocksdb.WriteBatch;
 class BatchImpl implements Batch, AutoCloseable {
 
     private volatile WriteBatch batch;
+    private final CompletionHooks hooks = new CompletionHooks();
+    private boolean written;
 
     BatchImpl() {
         batch = new WriteBatch();
@@ -65,6 +67,41 @@ class BatchImpl implements Batch, AutoCloseable {
         }
     }
 
+    /**
+     * Registers an action that runs after the batch has been written
+     * successfully.
+     */
+    @Override
+    public synchronized void onCommit(Runnable action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        validateOwned();
+        hooks.onCommit(action);
+    }
+
+    /**
+     * Registers an action that runs if writing the batch fails or if the
+     * batch gets closed without having been written.
+     */
+    @Override
+    public synchronized void onRollback(Runnable action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        validateOwned();
+        hooks.onRollback(action);
+    }
+
+    synchronized void markWritten() {
+        written = true;
+    }
+
+    /**
+     * Runs the completion actions once ownership has been ceded.
+     */
+    synchronized void complete() {
+        if (batch == null) {
+            hooks.completed(written);
+        }
+    }
+
     synchronized WriteBatch cedeOwnership() {
         WriteBatch b = batch;
         batch = null;
@@ -77,6 +114,7 @@ class BatchImpl implements Batch, AutoCloseable {
                 batch.close();
             } finally {
                 batch = null;
+                hooks.completed(false);
             }
         }
     }
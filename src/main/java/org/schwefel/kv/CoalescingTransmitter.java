@@ -0,0 +1,455 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.volcanite.task.DrainSummary;
+import net.volcanite.task.DrainSupport;
+import net.volcanite.task.ExecutorStats;
+import net.volcanite.task.OverflowStrategy;
+import net.volcanite.task.SpillHandler;
+import net.volcanite.util.DiscardOverflowsQueue;
+
+/**
+ * An asynchronous writer for {@link TransmitTask}s that coalesces the queued
+ * tasks into {@link Batch}es. The worker thread drains up to
+ * {@code maxBatchSize} tasks, or waits at most {@code lingerMillis} for more
+ * tasks to arrive, and writes everything it got with a single
+ * {@link StoreOps#writeBatch(Batch)} call per store. Multiple puts for the
+ * same (Kind, key) within one drain window are collapsed (last write wins).
+ * <p>
+ * Tasks that can't be enqueued are handled according to the configured
+ * {@link OverflowStrategy} (default: {@link OverflowStrategy#DROP}).
+ */
+public final class CoalescingTransmitter {
+
+    private static final Logger logger = Logger.getLogger(CoalescingTransmitter.class.getName());
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1_024;
+    public static final long DEFAULT_LINGER_MILLIS = 5L;
+
+    private static final long IDLE_POLL_MILLIS = 100L;
+    /** How long stop and drain wait for the worker after it has been interrupted */
+    private static final long INTERRUPT_GRACE_MILLIS = 500L;
+    private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final String name;
+    private volatile BlockingQueue<Runnable> queue = null;
+    private volatile Thread worker = null;
+    private volatile boolean accepting = false;
+    private volatile OverflowStrategy overflowStrategy = OverflowStrategy.DROP;
+    private volatile long blockTimeoutMillis = 1_000L;
+    private volatile SpillHandler spillHandler = null;
+    private final ExecutorStats stats = new ExecutorStats(this::queueSize);
+    private final AtomicLong tasksWritten = new AtomicLong();
+    private final AtomicLong tasksCoalesced = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final Set<StoreOps> touchedStores = Collections
+            .synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private final DrainSupport drainSupport = new DrainSupport(this::getName, logger);
+
+    public CoalescingTransmitter() {
+        this("");
+    }
+
+    public CoalescingTransmitter(String name) {
+        this(name, DiscardOverflowsQueue.DEFAULT_MAX_CAPACITY, DEFAULT_MAX_BATCH_SIZE, DEFAULT_LINGER_MILLIS);
+    }
+
+    /**
+     * Create a new {@code CoalescingTransmitter}.
+     * 
+     * @param name
+     *            the name of the worker thread
+     * @param queueCapacity
+     *            max capacity of the queue
+     * @param maxBatchSize
+     *            the maximum number of tasks that get coalesced into one
+     *            batch
+     * @param lingerMillis
+     *            how long the worker waits for further tasks before it writes
+     *            an incomplete batch
+     */
+    public CoalescingTransmitter(String name, int queueCapacity, int maxBatchSize, long lingerMillis) {
+        this.name = (name == null || name.isEmpty()) ? CoalescingTransmitter.class.getSimpleName() : name.trim();
+        this.queueCapacity = (queueCapacity <= 0) ? 1 : queueCapacity;
+        this.maxBatchSize = (maxBatchSize <= 0) ? 1 : maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(lingerMillis, 0L));
+    }
+
+    /**
+     * Start the worker thread. This method has no effect if the transmitter is
+     * already running.
+     */
+    public synchronized void start() {
+        if (worker == null) {
+            BlockingQueue<Runnable> q = new DiscardOverflowsQueue(queueCapacity, false);
+            Thread t = new Thread(() -> drainLoop(q));
+            t.setDaemon(true);
+            t.setName(name + "-Thread-" + threadNumber.getAndIncrement());
+            queue = q;
+            accepting = true;
+            worker = t;
+            t.start();
+        }
+    }
+
+    /**
+     * Stop the worker thread and discard any pending tasks in the queue. This
+     * method waits at most {@value #INTERRUPT_GRACE_MILLIS} milliseconds for
+     * the worker to finish the batch it is currently writing. This method has
+     * no effect if the transmitter is already stopped.
+     */
+    public synchronized void stop() {
+        Thread t = worker;
+        if (t != null) {
+            accepting = false;
+            BlockingQueue<Runnable> q = queue;
+            int remaining = q.size();
+            q.clear();
+            t.interrupt();
+            join(t, INTERRUPT_GRACE_MILLIS);
+            if (t.isAlive()) {
+                logger.log(Level.WARNING, t.getName() + " is still running after stop.");
+            }
+            if (remaining > 0) {
+                stats.recordDropped(remaining);
+                logger.log(Level.WARNING,
+                        t.getName() + " was stopped. " + remaining + " TransmitTasks haven't been processed.");
+            }
+            worker = null;
+            queue = null;
+            drainSupport.removeShutdownHook();
+        }
+    }
+
+    /**
+     * Stop accepting new tasks and give the worker thread up to
+     * {@code timeoutMillis} milliseconds to write out the pending tasks.
+     * Whatever is still queued after the timeout is discarded.
+     * 
+     * @param timeoutMillis
+     *            the maximum time to wait for shutdown (in milliseconds)
+     * @return the number of milliseconds it actually took to shutdown the
+     *         transmitter
+     */
+    public long stop(long timeoutMillis) {
+        return drain(timeoutMillis).getElapsedMillis();
+    }
+
+    /**
+     * Gracefully shut down the transmitter: stop accepting new tasks (they
+     * are handled by the {@link OverflowStrategy} from now on), give the
+     * worker thread up to {@code timeoutMillis} milliseconds to write out the
+     * pending tasks and finally sync the WAL of every store that has been
+     * written to. Tasks that are still queued after the timeout (or that
+     * slipped in while the worker was exiting) are spilled
+     * if the {@link OverflowStrategy#SPILL} strategy is in effect, otherwise
+     * they are discarded. The worker is then interrupted and given at most
+     * another {@value #INTERRUPT_GRACE_MILLIS} milliseconds to finish the
+     * batch it is writing, if it is still running afterwards the summary
+     * reports it as alive. This method has no effect if the transmitter is
+     * already stopped.
+     * 
+     * @param timeoutMillis
+     *            the maximum time to wait for the pending tasks (in
+     *            milliseconds)
+     * @return a summary of the written and discarded tasks
+     */
+    public synchronized DrainSummary drain(long timeoutMillis) {
+        long start = System.nanoTime();
+        Thread t = worker;
+        if (t == null) {
+            return new DrainSummary(0L, 0L, 0L, 0L, 0L, true, false);
+        }
+        long completedBefore = stats.getCompletedCount() + tasksCoalesced.get();
+        long failedBefore = stats.getFailedCount();
+        accepting = false;
+        join(t, Math.max(timeoutMillis, 1L));
+        boolean terminated = !t.isAlive();
+        long discarded = 0L;
+        long spilled = 0L;
+        // even a terminated worker may have left tasks behind that were
+        // offered concurrently with the switch of the accepting flag
+        ArrayList<Runnable> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!terminated) {
+            t.interrupt();
+            join(t, INTERRUPT_GRACE_MILLIS);
+        }
+        OverflowStrategy strategy = (overflowStrategy == OverflowStrategy.SPILL) ? OverflowStrategy.SPILL
+                : OverflowStrategy.DROP;
+        for (Runnable r : remaining) {
+            if (stats.overflow((TransmitTask) r, strategy, spillHandler)) {
+                ++spilled;
+            } else {
+                ++discarded;
+            }
+        }
+        if (discarded > 0L) {
+            logger.log(Level.WARNING,
+                    t.getName() + " was drained. " + discarded + " TransmitTasks haven't been processed.");
+        }
+        boolean alive = t.isAlive();
+        if (alive) {
+            logger.log(Level.WARNING, t.getName() + " is still running after the drain.");
+        }
+        worker = null;
+        queue = null;
+        drainSupport.removeShutdownHook();
+        syncTouchedStores();
+        long completed = stats.getCompletedCount() + tasksCoalesced.get() - completedBefore;
+        long failed = stats.getFailedCount() - failedBefore;
+        return new DrainSummary(completed, failed, discarded, spilled,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), terminated, alive);
+    }
+
+    /**
+     * Enables or disables draining the transmitter from a JVM shutdown hook.
+     * 
+     * @param enabled
+     *            whether a shutdown hook should drain the transmitter
+     * @param timeoutMillis
+     *            the drain timeout to use in the shutdown hook
+     */
+    public synchronized void setDrainOnShutdown(boolean enabled, long timeoutMillis) {
+        drainSupport.setDrainOnShutdown(enabled, () -> drain(timeoutMillis));
+    }
+
+    /**
+     * Enqueue a task for coalesced execution. If the task can't be enqueued
+     * (because the queue is full or the transmitter isn't running) it is
+     * handled according to the current {@link OverflowStrategy}.
+     * 
+     * @param task
+     *            the put to execute asynchronously
+     * @return {@code true} if the task has been accepted, run by the caller or
+     *         spilled, {@code false} if it has been dropped
+     */
+    public boolean execute(TransmitTask task) {
+        if (task == null) {
+            return false;
+        }
+        stats.recordSubmitted();
+        OverflowStrategy strategy = overflowStrategy;
+        BlockingQueue<Runnable> q = queue;
+        if (accepting && q != null) {
+            if (q.offer(task)) {
+                return acceptedOrOverflow(q, task, strategy);
+            }
+            if (strategy == OverflowStrategy.BLOCK) {
+                stats.recordBlocked();
+                try {
+                    if (q.offer(task, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return acceptedOrOverflow(q, task, strategy);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return stats.overflow(task, strategy, spillHandler);
+    }
+
+    // a drain may have started between the accepting check and the offer,
+    // if we can take the task back before the worker or drain() sees it
+    // it gets the same treatment as a task offered after the drain
+    private boolean acceptedOrOverflow(BlockingQueue<Runnable> q, TransmitTask task, OverflowStrategy strategy) {
+        if (accepting || !q.remove(task)) {
+            return true;
+        }
+        return stats.overflow(task, strategy, spillHandler);
+    }
+
+    public OverflowStrategy getOverflowStrategy() {
+        return overflowStrategy;
+    }
+
+    public void setOverflowStrategy(OverflowStrategy strategy) {
+        overflowStrategy = (strategy == null) ? OverflowStrategy.DROP : strategy;
+    }
+
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+
+    public void setBlockTimeoutMillis(long timeoutMillis) {
+        blockTimeoutMillis = (timeoutMillis < 0L) ? 0L : timeoutMillis;
+    }
+
+    public SpillHandler getSpillHandler() {
+        return spillHandler;
+    }
+
+    public void setSpillHandler(SpillHandler handler) {
+        spillHandler = handler;
+    }
+
+    /**
+     * Returns the saturation and latency statistics of this transmitter. Note
+     * that the execution time gets recorded per written batch, not per task.
+     * 
+     * @return the ExecutorStats of this transmitter
+     */
+    public ExecutorStats getStats() {
+        return stats;
+    }
+
+    public int queueSize() {
+        BlockingQueue<Runnable> q = queue;
+        return (q == null) ? 0 : q.size();
+    }
+
+    /**
+     * Returns the number of tasks that actually have been written.
+     * 
+     * @return the number of written tasks
+     */
+    public long getTasksWritten() {
+        return tasksWritten.get();
+    }
+
+    /**
+     * Returns the number of tasks that have been superseded by a later put
+     * for the same (Kind, key) within the same drain window.
+     * 
+     * @return the number of coalesced tasks
+     */
+    public long getTasksCoalesced() {
+        return tasksCoalesced.get();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void drainLoop(BlockingQueue<Runnable> q) {
+        ArrayList<Runnable> pending = new ArrayList<>(Math.min(maxBatchSize, 16_384));
+        boolean interrupted = false;
+        while (!interrupted && (accepting || !q.isEmpty())) {
+            try {
+                Runnable first = q.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                pending.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (pending.size() < maxBatchSize) {
+                    if (q.drainTo(pending, maxBatchSize - pending.size()) == 0) {
+                        long remaining = deadline - System.nanoTime();
+                        // don't linger if we are shutting down
+                        if (remaining <= 0L || !accepting) {
+                            break;
+                        }
+                        Runnable next = q.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        pending.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (!pending.isEmpty()) {
+                write(pending);
+                pending.clear();
+            }
+        }
+    }
+
+    private void write(ArrayList<Runnable> tasks) {
+        // last write wins within the drain window
+        IdentityHashMap<StoreOps, HashMap<Kind, SortedByteArrayMap>> perStore = new IdentityHashMap<>();
+        long now = System.nanoTime();
+        for (Runnable r : tasks) {
+            TransmitTask task = (TransmitTask) r;
+            stats.recordQueueLatency(now - task.createdNanos());
+            if (task.isValid()) {
+                SortedByteArrayMap keysValues = perStore.computeIfAbsent(task.store(), s -> new HashMap<>())
+                        .computeIfAbsent(task.getKind(), k -> new SortedByteArrayMap());
+                if (keysValues.put(task.getKey(), task.getValue()) != null) {
+                    tasksCoalesced.incrementAndGet();
+                }
+            }
+        }
+        for (Map.Entry<StoreOps, HashMap<Kind, SortedByteArrayMap>> entry : perStore.entrySet()) {
+            StoreOps store = entry.getKey();
+            long count = 0L;
+            long start = System.nanoTime();
+            try (Batch batch = store.createBatch()) {
+                for (Map.Entry<Kind, SortedByteArrayMap> kindEntry : entry.getValue().entrySet()) {
+                    Kind kind = kindEntry.getKey();
+                    SortedByteArrayMap keysValues = kindEntry.getValue();
+                    keysValues.forEach((key, value) -> batch.put(kind, key, value));
+                    count += keysValues.size();
+                }
+                store.writeBatch(batch);
+                touchedStores.add(store);
+                batchesWritten.incrementAndGet();
+                tasksWritten.addAndGet(count);
+                stats.recordBatch(count, true, System.nanoTime() - start);
+            } catch (Throwable t) {
+                stats.recordBatch(count, false, System.nanoTime() - start);
+                logger.log(Level.SEVERE, "", t);
+            }
+        }
+    }
+
+    private void syncTouchedStores() {
+        ArrayList<StoreOps> stores;
+        synchronized (touchedStores) {
+            stores = new ArrayList<>(touchedStores);
+            touchedStores.clear();
+        }
+        for (StoreOps store : stores) {
+            try {
+                if (store.isOpen()) {
+                    store.syncWAL();
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, name + ": syncWAL failed", e);
+            }
+        }
+    }
+
+    private static void join(Thread t, long millis) {
+        try {
+            t.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The actions registered on a {@link Tx} or a {@link Batch} that run once
+ * after it has been committed or rolled back. Not thread-safe, guarded by
+ * the owner.
+ */
+final class CompletionHooks {
+
+    private static final Logger logger = Logger.getLogger(CompletionHooks.class.getName());
+
+    private ArrayList<Runnable> onCommit;
+    private ArrayList<Runnable> onRollback;
+
+    void onCommit(Runnable action) {
+        if (onCommit == null) {
+            onCommit = new ArrayList<>(2);
+        }
+        onCommit.add(action);
+    }
+
+    void onRollback(Runnable action) {
+        if (onRollback == null) {
+            onRollback = new ArrayList<>(2);
+        }
+        onRollback.add(action);
+    }
+
+    /**
+     * Runs either the commit or the rollback actions (in registration order)
+     * and forgets all of them.
+     */
+    void completed(boolean committed) {
+        ArrayList<Runnable> actions = committed ? onCommit : onRollback;
+        onCommit = null;
+        onRollback = null;
+        if (actions != null) {
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "", e);
+                }
+            }
+        }
+    }
+}
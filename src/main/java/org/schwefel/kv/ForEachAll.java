@@ -26,8 +26,8 @@ class ForEachAll extends AbstractForEach {
 
     private static final Logger logger = Logger.getLogger(ForEachAll.class.getName());
 
-    ForEachAll(RocksIterator iter, Stats stats, BasicOps ops) {
-        super(iter, stats, ops);
+    ForEachAll(RocksIterator iter, Stats stats, BasicOps ops, AutoCloseable... resources) {
+        super(iter, stats, ops, resources);
     }
 
     @Override
@@ -28,8 +28,8 @@ class ForEachRange extends AbstractForEach {
 
     private final byte[] endExclusive;
 
-    ForEachRange(RocksIterator iter, byte[] endKey, Stats stats, BasicOps ops) {
-        super(iter, stats, ops);
+    ForEachRange(RocksIterator iter, byte[] endKey, Stats stats, BasicOps ops, AutoCloseable... resources) {
+        super(iter, stats, ops, resources);
         this.endExclusive = Objects.requireNonNull(endKey, "endKey cannot be null");
     }
 
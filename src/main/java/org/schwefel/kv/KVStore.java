@@ -15,25 +15,38 @@
  */
 package org.schwefel.kv;
 
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactRangeOptions;
+import org.rocksdb.CompactionOptionsUniversal;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Env;
 import org.rocksdb.FlushOptions;
@@ -44,7 +57,14 @@ import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDB.Version;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
 import org.rocksdb.SstFileManager;
+import org.rocksdb.Statistics;
+import org.rocksdb.StatisticsCollector;
+import org.rocksdb.StatisticsCollectorCallback;
+import org.rocksdb.StatsCollectorInput;
+import org.rocksdb.StatsLevel;
+import org.rocksdb.Status;
 import org.rocksdb.Transaction;
 import org.rocksdb.TransactionDB;
 import org.rocksdb.TransactionDBOptions;
@@ -60,31 +80,69 @@ public final class KVStore implements StoreOps, KindManagement {
     private static final long FLUSH_TIME_WINDOW_MILLIS = 985L;
     private static final long FLUSH_BATCH_SIZE = 16_384L - 1L;
     private static final long DEFAULT_COMPACTION_MEMTABLE_MEMORY_BUDGET = 192L * 1024L * 1024L;
+    private static final long QUEUE_WRITE_BUFFER_SIZE = 16L * 1024L * 1024L;
+    private static final int QUEUE_MAX_WRITE_BUFFER_NUMBER = 3;
+    private static final int QUEUE_MAX_SIZE_AMPLIFICATION_PERCENT = 100;
+    private static final long QUEUE_READAHEAD_SIZE = 2L * 1024L * 1024L;
+    private static final int COLLECTOR_SHUTDOWN_TIMEOUT_MILLIS = 2_000;
 
     private static final Logger logger = Logger.getLogger(KVStore.class.getName());
 
     private final boolean occasionalWalSync;
+    private final CompressionType queueCompression;
+    private final StatsLevel statsLevel;
     private volatile boolean open = false;
     private long totalSinceLastFsync = 0L;
     private long lastSync;
+    private boolean deleteRangeSupported = true;
 
     private TransactionDB txnDb;
     private TransactionDBOptions txnDbOptions;
     private TransactionOptions txnOpts;
     private DBOptions options;
     private ColumnFamilyOptions columnFamilyOptions;
+    private ColumnFamilyOptions queueColumnFamilyOptions;
+    private CompactionOptionsUniversal universalCompactionOptions;
     private WriteOptions writeOptions;
     private ReadOptions readOptions;
+    private ReadOptions sequentialReadOptions;
     private FlushOptions flushOptions;
     private FlushOptions flushOptionsNoWait;
     private SstFileManager sstFileManager;
+    private Statistics statistics;
+    private final ArrayList<StatisticsCollector> collectors = new ArrayList<>();
     private final HashMap<String, KindImpl> kinds = new HashMap<>();
     private final String path;
+    private final Function<String, StorageProfile> profiles;
     private final Stats stats = new Stats();
+    /** the options of the running {@link #compactRange} calls, guarded by itself */
+    private final HashSet<CompactRangeOptions> rangeCompactions = new HashSet<>();
+    /** Kind MBeans registered since {@link #registerMBeans()} has been called */
+    private final ConcurrentHashMap<String, ObjectName> kindMBeans = new ConcurrentHashMap<>();
+    private volatile ObjectName storeMBean;
+    private volatile boolean jmxEnabled;
 
     public KVStore(Path dir) {
+        this(dir, kindName -> StorageProfile.DEFAULT);
+    }
+
+    /**
+     * Opens the store at {@code dir} using {@code profiles} to resolve the
+     * {@link StorageProfile} of a Kind from its name.
+     * 
+     * @param dir
+     *            the store directory
+     * @param profiles
+     *            maps Kind names to their {@code StorageProfile}
+     */
+    public KVStore(Path dir, Function<String, StorageProfile> profiles) {
+        this.profiles = Objects.requireNonNull(profiles, "profiles");
         this.occasionalWalSync = Boolean
                 .parseBoolean(System.getProperty(KVStore.class.getName() + ".occasionalWalSync", "true"));
+        this.queueCompression = queueCompression(
+                System.getProperty(KVStore.class.getName() + ".queueCompression", "lz4"));
+        this.statsLevel = statsLevel(
+                System.getProperty(KVStore.class.getName() + ".statsLevel", "none"));
         this.path = (String) wrapEx(() -> Objects.requireNonNull(dir).toFile().getCanonicalPath());
         wrapEx(() -> Files.createDirectories(dir));
         open();
@@ -109,14 +167,22 @@ public final class KVStore implements StoreOps, KindManagement {
         if (sstFileManager != null) {
             options.setSstFileManager(sstFileManager);
         }
+        if (statsLevel != null) {
+            statistics = new Statistics();
+            statistics.setStatsLevel(statsLevel);
+            options.setStatistics(statistics);
+        }
         columnFamilyOptions = new ColumnFamilyOptions();
         columnFamilyOptions.optimizeForSmallDb();
         columnFamilyOptions.setPeriodicCompactionSeconds(1L * 24L * 60L * 60L);
         columnFamilyOptions.setOptimizeFiltersForHits(true);
         columnFamilyOptions.optimizeLevelStyleCompaction(DEFAULT_COMPACTION_MEMTABLE_MEMORY_BUDGET);
         columnFamilyOptions.setTableFormatConfig(sstFileFormat);
+        createQueueOptions();
         writeOptions = new WriteOptions();
         readOptions = new ReadOptions();
+        sequentialReadOptions = new ReadOptions();
+        sequentialReadOptions.setReadaheadSize(QUEUE_READAHEAD_SIZE);
         flushOptions = new FlushOptions();
         flushOptions.setWaitForFlush(true);
         flushOptionsNoWait = new FlushOptions();
@@ -128,22 +194,94 @@ public final class KVStore implements StoreOps, KindManagement {
         enableObsoleteFilesDeletion();
         open = true;
         lastSync = System.currentTimeMillis();
+        stats.attach(statistics);
+    }
+
+    /**
+     * Queue data is written once, read once in key order and then deleted.
+     * Universal compaction rewrites it far less often than leveled
+     * compaction, filters never help with seeks and scans, and a small
+     * memtable keeps recovery quick. Blocks are compressed with LZ4 unless
+     * the {@code queueCompression} system property says otherwise.
+     */
+    private void createQueueOptions() {
+        BlockBasedTableConfig sstFileFormat = new BlockBasedTableConfig();
+        sstFileFormat.setBlockSize(4 * sstFileFormat.blockSize());
+        universalCompactionOptions = new CompactionOptionsUniversal();
+        universalCompactionOptions.setMaxSizeAmplificationPercent(QUEUE_MAX_SIZE_AMPLIFICATION_PERCENT);
+        queueColumnFamilyOptions = new ColumnFamilyOptions();
+        queueColumnFamilyOptions.setCompactionStyle(CompactionStyle.UNIVERSAL);
+        queueColumnFamilyOptions.setCompactionOptionsUniversal(universalCompactionOptions);
+        queueColumnFamilyOptions.setWriteBufferSize(QUEUE_WRITE_BUFFER_SIZE);
+        queueColumnFamilyOptions.setMaxWriteBufferNumber(QUEUE_MAX_WRITE_BUFFER_NUMBER);
+        queueColumnFamilyOptions.setOptimizeFiltersForHits(false);
+        queueColumnFamilyOptions.setCompressionType(queueCompression);
+        queueColumnFamilyOptions.setBottommostCompressionType(queueCompression);
+        queueColumnFamilyOptions.setTableFormatConfig(sstFileFormat);
+    }
+
+    /**
+     * Accepts "none" or the name of a compression library ("lz4", "zstd",
+     * "snappy", ...).
+     */
+    private static CompressionType queueCompression(String name) {
+        String library = name.trim().toLowerCase(Locale.ROOT);
+        if ("none".equals(library)) {
+            return CompressionType.NO_COMPRESSION;
+        }
+        CompressionType type = CompressionType.getCompressionType(library);
+        if (type == CompressionType.NO_COMPRESSION) {
+            logger.log(Level.WARNING, "Unknown queue compression '" + name + "', using lz4");
+            return CompressionType.LZ4_COMPRESSION;
+        }
+        return type;
+    }
+
+    /**
+     * Accepts "none" (no RocksDB statistics at all) or the name of a
+     * {@link StatsLevel}.
+     */
+    private static StatsLevel statsLevel(String name) {
+        String level = name.trim().toUpperCase(Locale.ROOT);
+        if ("NONE".equals(level)) {
+            return null;
+        }
+        try {
+            return StatsLevel.valueOf(level);
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Unknown stats level '" + name + "', using EXCEPT_DETAILED_TIMERS");
+            return StatsLevel.EXCEPT_DETAILED_TIMERS;
+        }
+    }
+
+    private StorageProfile profileOf(String kindName) {
+        StorageProfile profile = profiles.apply(kindName);
+        return (profile == null) ? StorageProfile.DEFAULT : profile;
+    }
+
+    private ColumnFamilyOptions columnFamilyOptions(StorageProfile profile) {
+        return (profile == StorageProfile.QUEUE) ? queueColumnFamilyOptions : columnFamilyOptions;
     }
 
     private TransactionDB openDatabase() throws RocksDBException {
         try (Options opts = new Options(options, columnFamilyOptions)) {
             List<byte[]> families = RocksDB.listColumnFamilies(opts, path);
             ArrayList<ColumnFamilyDescriptor> cfDescs = new ArrayList<>();
+            ArrayList<StorageProfile> cfProfiles = new ArrayList<>();
             for (byte[] cfName : families) {
-                cfDescs.add(new ColumnFamilyDescriptor(cfName, columnFamilyOptions));
+                StorageProfile profile = profileOf(new String(cfName, StandardCharsets.UTF_8));
+                cfDescs.add(new ColumnFamilyDescriptor(cfName, columnFamilyOptions(profile)));
+                cfProfiles.add(profile);
             }
             if (cfDescs.isEmpty()) {
                 cfDescs.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnFamilyOptions));
+                cfProfiles.add(StorageProfile.DEFAULT);
             }
             ArrayList<ColumnFamilyHandle> cfHandles = new ArrayList<>(cfDescs.size());
             TransactionDB txnDb = TransactionDB.open(options, txnDbOptions, path, cfDescs, cfHandles);
-            for (ColumnFamilyHandle handle : cfHandles) {
-                KindImpl kind = new KindImpl(handle.getName(), handle);
+            for (int i = 0; i < cfHandles.size(); ++i) {
+                ColumnFamilyHandle handle = cfHandles.get(i);
+                KindImpl kind = new KindImpl(handle.getName(), handle, cfProfiles.get(i));
                 kinds.put(kind.name(), kind);
             }
             return txnDb;
@@ -156,30 +294,55 @@ public final class KVStore implements StoreOps, KindManagement {
             return;
         }
         open = false;
+        cancelRangeCompactions();
+        unregisterMBeans();
         ignoreEx(() -> syncWAL());
         ignoreEx(() -> flush());
+        stopStatisticsCollectors();
+        stats.attach(null);
         closeCfHandles();
         kinds.clear();
         close(txnDb);
         close(txnDbOptions);
         close(txnOpts);
         close(columnFamilyOptions);
+        close(queueColumnFamilyOptions);
+        close(universalCompactionOptions);
         close(writeOptions);
         close(readOptions);
+        close(sequentialReadOptions);
         close(flushOptions);
         close(flushOptionsNoWait);
         close(options);
         close(sstFileManager);
+        close(statistics);
         txnDb = null;
         txnDbOptions = null;
         txnOpts = null;
         columnFamilyOptions = null;
+        queueColumnFamilyOptions = null;
+        universalCompactionOptions = null;
         writeOptions = null;
         readOptions = null;
+        sequentialReadOptions = null;
         flushOptions = null;
         flushOptionsNoWait = null;
         options = null;
         sstFileManager = null;
+        statistics = null;
+    }
+
+    private void stopStatisticsCollectors() {
+        for (StatisticsCollector collector : collectors) {
+            ignoreEx(() -> {
+                try {
+                    collector.shutDown(COLLECTOR_SHUTDOWN_TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        collectors.clear();
     }
 
     private void closeCfHandles() {
@@ -222,10 +385,14 @@ public final class KVStore implements StoreOps, KindManagement {
     }
 
     private Kind createKind(String kindName) throws RocksDBException {
-        ColumnFamilyHandle handle = txnDb.createColumnFamily(
-                new ColumnFamilyDescriptor(kindName.getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
-        KindImpl kind = new KindImpl(handle.getName(), handle);
+        StorageProfile profile = profileOf(kindName);
+        ColumnFamilyHandle handle = txnDb.createColumnFamily(new ColumnFamilyDescriptor(
+                kindName.getBytes(StandardCharsets.UTF_8), columnFamilyOptions(profile)));
+        KindImpl kind = new KindImpl(handle.getName(), handle, profile);
         kinds.put(kind.name(), kind);
+        if (jmxEnabled) {
+            registerMBean(kind);
+        }
         return kind;
     }
 
@@ -247,6 +414,67 @@ public final class KVStore implements StoreOps, KindManagement {
         }
     }
 
+    /**
+     * Compacts the key range {@code [beginKey, endKey)} of the given Kind.
+     * Unlike {@link #compact(String)} this doesn't hold the store's monitor
+     * while the compaction runs, so that concurrent reads and writes can
+     * proceed. A {@link #close()} cancels the running range compactions and
+     * waits for them to return before the database gets closed.
+     */
+    @Override
+    public void compactRange(Kind kind, byte[] beginKey, byte[] endKey) {
+        Objects.requireNonNull(kind, "kind cannot be null");
+        Objects.requireNonNull(beginKey, "beginKey cannot be null");
+        Objects.requireNonNull(endKey, "endKey cannot be null");
+        CompactRangeOptions compactOptions = new CompactRangeOptions();
+        TransactionDB db;
+        synchronized (rangeCompactions) {
+            if (!isOpen()) {
+                close(compactOptions);
+                validateOpen();
+            }
+            db = txnDb;
+            rangeCompactions.add(compactOptions);
+        }
+        try {
+            db.compactRange(((KindImpl) kind).handle(), beginKey, endKey, compactOptions);
+        } catch (RocksDBException e) {
+            if (!compactOptions.canceled()) {
+                throw new StoreException(e);
+            }
+            logger.log(Level.FINE, "compactRange of " + kind.name() + " canceled", e);
+        } finally {
+            synchronized (rangeCompactions) {
+                rangeCompactions.remove(compactOptions);
+                rangeCompactions.notifyAll();
+            }
+            close(compactOptions);
+        }
+    }
+
+    /**
+     * Cancels the running {@link #compactRange} calls and waits until all of
+     * them have returned (they must not outlive the native database).
+     */
+    private void cancelRangeCompactions() {
+        boolean interrupted = false;
+        synchronized (rangeCompactions) {
+            for (CompactRangeOptions compactOptions : rangeCompactions) {
+                compactOptions.setCanceled(true);
+            }
+            while (!rangeCompactions.isEmpty()) {
+                try {
+                    rangeCompactions.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public synchronized void compactAll() {
         validateOpen();
@@ -261,6 +489,7 @@ public final class KVStore implements StoreOps, KindManagement {
         validateOpen();
         if (!"default".equals(kind.name())) {
             try {
+                unregisterMBean(kindMBeans.remove(kind.name()));
                 txnDb.dropColumnFamily(((KindImpl) kind).handle());
                 kinds.remove(kind.name());
             } catch (RocksDBException e) {
@@ -477,14 +706,87 @@ public final class KVStore implements StoreOps, KindManagement {
     }
 
     @Override
-    public synchronized void writeBatch(Batch batch) {
+    public synchronized void deleteRange(Kind kind, byte[] beginKey, byte[] endKey) {
         long start = System.nanoTime();
+        Objects.requireNonNull(kind, "kind cannot be null");
+        Objects.requireNonNull(beginKey, "beginKey cannot be null");
+        Objects.requireNonNull(endKey, "endKey cannot be null");
+        validateOpen();
+        if (lexicographicalCompare(beginKey, endKey) >= 0) {
+            return;
+        }
+        try {
+            deleteRange_(kind, beginKey, endKey);
+        } catch (RocksDBException e) {
+            throw new StoreException(e);
+        } finally {
+            stats.allOpsTimeNanos.accept(System.nanoTime() - start);
+        }
+    }
+
+    private void deleteRange_(Kind kind, byte[] beginKey, byte[] endKey) throws RocksDBException {
+        long delStart = System.nanoTime();
+        ColumnFamilyHandle handle = ((KindImpl) kind).handle();
+        if (deleteRangeSupported) {
+            try {
+                txnDb.deleteRange(handle, writeOptions, beginKey, endKey);
+                stats.deleteTimeNanos.accept(System.nanoTime() - delStart);
+                if (occasionalWalSync) {
+                    occasionalWalSync();
+                }
+                return;
+            } catch (RocksDBException e) {
+                Status status = e.getStatus();
+                if (status == null || status.getCode() != Status.Code.NotSupported) {
+                    throw e;
+                }
+                // this TransactionDB doesn't support range tombstones
+                deleteRangeSupported = false;
+                logger.log(Level.INFO, "deleteRange not supported, falling back to point deletes");
+            }
+        }
+        // fallback: delete the keys in [beginKey, endKey) with a single WriteBatch
+        try (Slice upperBound = new Slice(endKey);
+                ReadOptions ro = new ReadOptions(readOptions).setIterateUpperBound(upperBound);
+                RocksIterator it = txnDb.newIterator(handle, ro);
+                WriteBatch wb = new WriteBatch()) {
+            for (it.seek(beginKey); it.isValid(); it.next()) {
+                wb.delete(handle, it.key());
+            }
+            it.status();
+            if (wb.count() > 0) {
+                txnDb.write(writeOptions, wb);
+                if (occasionalWalSync) {
+                    occasionalWalSync();
+                }
+            }
+        }
+        stats.deleteTimeNanos.accept(System.nanoTime() - delStart);
+    }
+
+    /**
+     * Writes the batch atomically. The batch's completion actions run after
+     * the store's lock has been released.
+     */
+    @Override
+    public void writeBatch(Batch batch) {
         Objects.requireNonNull(batch, "batch cannot be null");
+        BatchImpl b = (BatchImpl) batch;
+        try {
+            writeBatch_(b);
+        } finally {
+            b.complete();
+        }
+    }
+
+    private synchronized void writeBatch_(BatchImpl batch) {
+        long start = System.nanoTime();
         validateOpen();
-        WriteBatch wb = ((BatchImpl) batch).cedeOwnership();
+        WriteBatch wb = batch.cedeOwnership();
         if (wb != null) {
             try {
                 txnDb.write(writeOptions, wb);
+                batch.markWritten();
             } catch (RocksDBException e) {
                 throw new StoreException(e);
             } finally {
@@ -561,7 +863,7 @@ public final class KVStore implements StoreOps, KindManagement {
     public synchronized ForEachKeyValue scanAll(Kind kind) {
         Objects.requireNonNull(kind, "kind cannot be null");
         validateOpen();
-        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(newScanIterator((KindImpl) kind));
         stats.incOpenCursorsCount();
         it.seekToFirst();
         return new ForEachAll(it, stats, this);
@@ -572,7 +874,7 @@ public final class KVStore implements StoreOps, KindManagement {
         Objects.requireNonNull(kind, "kind cannot be null");
         Objects.requireNonNull(beginKey, "beginKey cannot be null");
         validateOpen();
-        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(newScanIterator((KindImpl) kind));
         stats.incOpenCursorsCount();
         it.seek(beginKey);
         return new ForEachAll(it, stats, this);
@@ -584,12 +886,30 @@ public final class KVStore implements StoreOps, KindManagement {
         Objects.requireNonNull(beginKey, "beginKey cannot be null");
         Objects.requireNonNull(endKey, "endKey cannot be null");
         validateOpen();
-        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(((KindImpl) kind).handle()));
+        KindImpl kindImpl = (KindImpl) kind;
+        if (kindImpl.profile() == StorageProfile.QUEUE) {
+            // the upper bound keeps the iterator from skipping over the
+            // tombstones of consumed messages beyond endKey
+            Slice upperBound = new Slice(endKey);
+            ReadOptions ro = new ReadOptions(sequentialReadOptions).setIterateUpperBound(upperBound);
+            RocksIterator it = Objects.requireNonNull(txnDb.newIterator(kindImpl.handle(), ro));
+            stats.incOpenCursorsCount();
+            it.seek(beginKey);
+            return new ForEachRange(it, endKey, stats, this, ro, upperBound);
+        }
+        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(kindImpl.handle()));
         stats.incOpenCursorsCount();
         it.seek(beginKey);
         return new ForEachRange(it, endKey, stats, this);
     }
 
+    private RocksIterator newScanIterator(KindImpl kind) {
+        if (kind.profile() == StorageProfile.QUEUE) {
+            return txnDb.newIterator(kind.handle(), sequentialReadOptions);
+        }
+        return txnDb.newIterator(kind.handle());
+    }
+
     @Override
     public synchronized byte[] findMinKey(Kind kind) {
         Objects.requireNonNull(kind, "kind cannot be null");
@@ -679,7 +999,7 @@ public final class KVStore implements StoreOps, KindManagement {
 
     @Override
     public synchronized Tx startTx() {
-        return new Transactional(txnDb.beginTransaction(writeOptions, txnOpts), readOptions, getStats());
+        return new Transactional(txnDb.beginTransaction(writeOptions, txnOpts), txnDb, readOptions, getStats());
     }
 
     @Override
@@ -687,6 +1007,37 @@ public final class KVStore implements StoreOps, KindManagement {
         return stats;
     }
 
+    /**
+     * Starts a {@link StatisticsCollector} that passes all RocksDB tickers and
+     * histograms to {@code callback} every {@code intervalMillis}
+     * milliseconds. The collector gets shut down when the store is closed
+     * (or earlier by the caller).
+     * 
+     * @param callback
+     *            receives the ticker counts and histogram data
+     * @param intervalMillis
+     *            the polling interval in milliseconds
+     * @return the started collector
+     * @throws StoreException
+     *             if the store is closed or RocksDB statistics are disabled
+     */
+    public synchronized StatisticsCollector startStatisticsCollector(StatisticsCollectorCallback callback,
+            int intervalMillis) {
+        Objects.requireNonNull(callback, "callback");
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis: " + intervalMillis);
+        }
+        validateOpen();
+        if (statistics == null) {
+            throw new StoreException("RocksDB statistics are disabled for KVStore " + path);
+        }
+        StatisticsCollector collector = new StatisticsCollector(
+                Collections.singletonList(new StatsCollectorInput(statistics, callback)), intervalMillis);
+        collector.start();
+        collectors.add(collector);
+        return collector;
+    }
+
     @Override
     public /* synchronized */ Map<String, Map<String, String>> getRocksDBStats() {
         validateOpen();
@@ -709,6 +1060,112 @@ public final class KVStore implements StoreOps, KindManagement {
         return Collections.emptyMap();
     }
 
+    public String getDirectory() {
+        return path;
+    }
+
+    /**
+     * Registers a {@link KVStoreMXBean} for this store and a
+     * {@link KindMXBean} for every Kind (also for Kinds created later) with
+     * the platform MBeanServer under the names
+     * {@code org.schwefel.kv:type=KVStore,store=<directory>} and
+     * {@code org.schwefel.kv:type=Kind,store=<directory>,name=<kind>}. The
+     * MBeans are unregistered on {@link #close()}.
+     */
+    public synchronized void registerMBeans() {
+        validateOpen();
+        jmxEnabled = true;
+        if (storeMBean == null) {
+            storeMBean = registerMBean(new KVStoreBean(this), "org.schwefel.kv:type=KVStore,store="
+                    + ObjectName.quote(path));
+        }
+        for (KindImpl kind : kinds.values()) {
+            registerMBean(kind);
+        }
+    }
+
+    private void registerMBean(KindImpl kind) {
+        kindMBeans.computeIfAbsent(kind.name(),
+                kindName -> registerMBean(new KindBean(this, kind),
+                        "org.schwefel.kv:type=Kind,store=" + ObjectName.quote(path) + ",name="
+                                + ObjectName.quote(kindName)));
+    }
+
+    private static ObjectName registerMBean(Object bean, String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+            return name;
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "registering the MBean " + objectName + " failed", e);
+            return null;
+        }
+    }
+
+    private void unregisterMBeans() {
+        jmxEnabled = false;
+        for (ObjectName name : kindMBeans.values()) {
+            unregisterMBean(name);
+        }
+        kindMBeans.clear();
+        unregisterMBean(storeMBean);
+        storeMBean = null;
+    }
+
+    private static void unregisterMBean(ObjectName name) {
+        if (name != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "unregistering " + name + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the numerical RocksDB {@code property} of {@code kind} or
+     * {@code -1} if the store is closed, the Kind has been deleted or the
+     * property is not available.
+     */
+    /* package */ synchronized long getLongProperty(KindImpl kind, String property) {
+        if (!isOpen() || kinds.get(kind.name()) != kind) {
+            return -1L;
+        }
+        return MemStats.getLongProperty(txnDb, kind, property);
+    }
+
+    /**
+     * Returns the DB-wide numerical RocksDB {@code property} or {@code -1}.
+     */
+    /* package */ synchronized long getLongProperty(String property) {
+        KindImpl defaultKind = kinds.get("default");
+        return (defaultKind == null) ? -1L : getLongProperty(defaultKind, property);
+    }
+
+    /**
+     * Returns the sum of the numerical RocksDB {@code property} over all
+     * Kinds or {@code -1} if the store is closed.
+     */
+    /* package */ synchronized long sumLongProperty(String property) {
+        if (!isOpen()) {
+            return -1L;
+        }
+        long sum = 0L;
+        for (KindImpl kind : kinds.values()) {
+            long value = MemStats.getLongProperty(txnDb, kind, property);
+            if (value > 0L) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
     public String getRocksDBVersion() {
         Version v = RocksDB.rocksdbVersion();
         return new StringBuilder(6).append(v.getMajor()).append('.').append(v.getMinor()).append('.')
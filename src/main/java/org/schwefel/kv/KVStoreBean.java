@@ -0,0 +1,212 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.rocksdb.HistogramData;
+import org.rocksdb.StatsLevel;
+
+import net.volcanite.util.LogHistogram;
+
+/**
+ * {@link KVStoreMXBean} implementation that delegates to the {@link KVStore}
+ * and its {@link Stats}.
+ */
+/* package */ final class KVStoreBean implements KVStoreMXBean {
+
+    private final KVStore store;
+    private final Stats stats;
+
+    KVStoreBean(KVStore store) {
+        this.store = store;
+        this.stats = store.getStats();
+    }
+
+    @Override
+    public String getDirectory() {
+        return store.getDirectory();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return store.isOpen();
+    }
+
+    @Override
+    public String getRocksDBVersion() {
+        return store.getRocksDBVersion();
+    }
+
+    @Override
+    public int getOpenCursors() {
+        return stats.openCursorsCount();
+    }
+
+    @Override
+    public int getOpenTransactions() {
+        return stats.openTransactionsCount();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return latencies(LogHistogram.Snapshot::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return latencies(s -> s.getValueAtPercentile(50.0));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return latencies(s -> s.getValueAtPercentile(99.0));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        return latencies(LogHistogram.Snapshot::getMax);
+    }
+
+    private Map<String, Long> latencies(ToLongFunction<LogHistogram.Snapshot> value) {
+        LinkedHashMap<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LogHistogram.Snapshot> e : stats.getLatencySnapshots(false).entrySet()) {
+            values.put(e.getKey(), value.applyAsLong(e.getValue()));
+        }
+        return values;
+    }
+
+    @Override
+    public double getAverageWalIntervalMillis() {
+        return stats.getAverageWalIntervalMillis();
+    }
+
+    @Override
+    public long getMemtableSizeBytes() {
+        return store.sumLongProperty(MemStats.CURSIZE_ALL_MEMTABLES);
+    }
+
+    @Override
+    public long getEstimatedKeys() {
+        return store.sumLongProperty(MemStats.ESTIMATE_NUMKEYS);
+    }
+
+    @Override
+    public long getLiveSstFilesSize() {
+        return store.sumLongProperty(MemStats.LIVE_SST_FILES_SIZE);
+    }
+
+    @Override
+    public long getPendingCompactionBytes() {
+        return store.sumLongProperty(MemStats.ESTIMATE_PENDING_COMPACTION_BYTES);
+    }
+
+    @Override
+    public long getRunningCompactions() {
+        return store.getLongProperty(MemStats.NUM_RUNNING_COMPACTIONS);
+    }
+
+    @Override
+    public int getTrackedSstFilesCount() {
+        return store.isOpen() ? store.getTrackedSstFiles().size() : 0;
+    }
+
+    @Override
+    public long getTrackedSstFilesSize() {
+        long size = 0L;
+        if (store.isOpen()) {
+            for (Long fileSize : store.getTrackedSstFiles().values()) {
+                size += fileSize;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String getStatsLevel() {
+        StatsLevel level = stats.getStatsLevel();
+        return (level == null) ? "NONE" : level.name();
+    }
+
+    @Override
+    public void setStatsLevel(String level) {
+        stats.setStatsLevel(StatsLevel.valueOf(level.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    @Override
+    public double getBlockCacheHitRate() {
+        return stats.getBlockCacheHitRate();
+    }
+
+    @Override
+    public long getBloomFilterUseful() {
+        return stats.getBloomFilterUseful();
+    }
+
+    @Override
+    public long getCompactionReadBytes() {
+        return stats.getCompactionReadBytes();
+    }
+
+    @Override
+    public long getCompactionWriteBytes() {
+        return stats.getCompactionWriteBytes();
+    }
+
+    @Override
+    public long getFlushWriteBytes() {
+        return stats.getFlushWriteBytes();
+    }
+
+    @Override
+    public long getStallMicros() {
+        return stats.getStallMicros();
+    }
+
+    @Override
+    public long getWalSyncs() {
+        return stats.getWalSyncs();
+    }
+
+    @Override
+    public double getWalSyncP99Micros() {
+        HistogramData walSync = stats.getWalSyncMicros();
+        return (walSync == null) ? Double.NaN : walSync.getPercentile99();
+    }
+
+    @Override
+    public Map<String, Long> getTickerCounts() {
+        return stats.getTickerCounts();
+    }
+
+    @Override
+    public void flush() {
+        store.flush();
+    }
+
+    @Override
+    public void syncWAL() {
+        store.syncWAL();
+    }
+
+    @Override
+    public void compactAll() {
+        store.compactAll();
+    }
+}
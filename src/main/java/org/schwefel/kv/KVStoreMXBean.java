@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link KVStore}, registered by
+ * {@link KVStore#registerMBeans()}. Latency percentiles (keyed by operation
+ * as in {@link Stats#getLatencySnapshots(boolean)}) are computed over the
+ * lifetime of the store, the RocksDB attributes return {@code -1} (or
+ * {@code NaN}) when RocksDB statistics are disabled.
+ */
+public interface KVStoreMXBean {
+
+    String getDirectory();
+    boolean isOpen();
+    String getRocksDBVersion();
+    int getOpenCursors();
+    int getOpenTransactions();
+    Map<String, Long> getOperationCounts();
+    Map<String, Long> getLatencyP50Nanos();
+    Map<String, Long> getLatencyP99Nanos();
+    Map<String, Long> getLatencyMaxNanos();
+    double getAverageWalIntervalMillis();
+    long getMemtableSizeBytes();
+    long getEstimatedKeys();
+    long getLiveSstFilesSize();
+    long getPendingCompactionBytes();
+    long getRunningCompactions();
+    int getTrackedSstFilesCount();
+    long getTrackedSstFilesSize();
+    String getStatsLevel();
+    void setStatsLevel(String level);
+    double getBlockCacheHitRate();
+    long getBloomFilterUseful();
+    long getCompactionReadBytes();
+    long getCompactionWriteBytes();
+    long getFlushWriteBytes();
+    long getStallMicros();
+    long getWalSyncs();
+    double getWalSyncP99Micros();
+    Map<String, Long> getTickerCounts();
+
+    void flush();
+    void syncWAL();
+    void compactAll();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+/**
+ * {@link KindMXBean} implementation that reads the RocksDB properties of
+ * the Kind on every access.
+ */
+/* package */ final class KindBean implements KindMXBean {
+
+    private final KVStore store;
+    private final KindImpl kind;
+
+    KindBean(KVStore store, KindImpl kind) {
+        this.store = store;
+        this.kind = kind;
+    }
+
+    @Override
+    public String getName() {
+        return kind.name();
+    }
+
+    @Override
+    public String getStorageProfile() {
+        return kind.profile().name();
+    }
+
+    @Override
+    public long getEstimatedKeys() {
+        return store.getLongProperty(kind, MemStats.ESTIMATE_NUMKEYS);
+    }
+
+    @Override
+    public long getMemtableSizeBytes() {
+        return store.getLongProperty(kind, MemStats.CURSIZE_ALL_MEMTABLES);
+    }
+
+    @Override
+    public long getImmutableMemtables() {
+        return store.getLongProperty(kind, MemStats.NUM_IMMUTABLE_MEMTABLE);
+    }
+
+    @Override
+    public long getLiveSstFilesSize() {
+        return store.getLongProperty(kind, MemStats.LIVE_SST_FILES_SIZE);
+    }
+
+    @Override
+    public long getPendingCompactionBytes() {
+        return store.getLongProperty(kind, MemStats.ESTIMATE_PENDING_COMPACTION_BYTES);
+    }
+
+    @Override
+    public void compact() {
+        store.compact(kind.name());
+    }
+}
@@ -24,16 +24,22 @@ final class KindImpl implements Kind {
 
     private final String name;
     private final ColumnFamilyHandle handle;
+    private final StorageProfile profile;
 
-    KindImpl(byte[] name, ColumnFamilyHandle handle) {
+    KindImpl(byte[] name, ColumnFamilyHandle handle, StorageProfile profile) {
         this.name = new String(Objects.requireNonNull(name), StandardCharsets.UTF_8);
         this.handle = Objects.requireNonNull(handle);
+        this.profile = Objects.requireNonNull(profile);
     }
 
     ColumnFamilyHandle handle() {
         return handle;
     }
 
+    StorageProfile profile() {
+        return profile;
+    }
+
     @Override
     public String name() {
         return name;
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+/**
+ * JMX view of a {@link Kind} of a {@link KVStore}, registered by
+ * {@link KVStore#registerMBeans()}. The sizes are RocksDB estimates, they
+ * are {@code -1} when the Kind has been deleted or the store is closed.
+ */
+public interface KindMXBean {
+
+    String getName();
+    String getStorageProfile();
+    long getEstimatedKeys();
+    long getMemtableSizeBytes();
+    long getImmutableMemtables();
+    long getLiveSstFilesSize();
+    long getPendingCompactionBytes();
+
+    void compact();
+}
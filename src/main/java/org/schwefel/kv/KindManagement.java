@@ -24,6 +24,7 @@ public interface KindManagement {
     Kind getOrCreateKind(String kindName);
     Kind getDefaultKind();
     void compact(String kindName);
+    void compactRange(Kind kind, byte[] beginKey, byte[] endKey);
     void compactAll();
     void deleteKind(Kind kind);
 }
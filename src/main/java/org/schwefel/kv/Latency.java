@@ -0,0 +1,36 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+import net.volcanite.util.DoubleStatistics;
+import net.volcanite.util.LogHistogram;
+
+/**
+ * The latencies of one kind of operation: the moments go into a striped
+ * {@link DoubleStatistics}, the distribution (for percentiles) into a
+ * {@link LogHistogram}. Both record lock-free, so they don't depend on the
+ * store's monitor for correctness.
+ */
+final class Latency {
+
+    final DoubleStatistics statistics = DoubleStatistics.newStripedInstance();
+    final LogHistogram histogram = new LogHistogram();
+
+    void accept(long nanos) {
+        statistics.accept(nanos);
+        histogram.record(nanos);
+    }
+}
@@ -30,7 +30,7 @@ final class MemStats {
 
     // "rocksdb.cur-size-all-mem-tables" - returns approximate size of active
     // and unflushed immutable memtables (bytes).
-    private static final String CURSIZE_ALL_MEMTABLES = "rocksdb.cur-size-all-mem-tables";
+    static final String CURSIZE_ALL_MEMTABLES = "rocksdb.cur-size-all-mem-tables";
 
     // "rocksdb.cur-size-active-mem-table" - returns approximate size of active
     // memtable (bytes).
@@ -42,7 +42,7 @@ final class MemStats {
 
     // "rocksdb.num-immutable-mem-table" - returns number of immutable
     // memtables that have not yet been flushed.
-    private static final String NUM_IMMUTABLE_MEMTABLE = "rocksdb.num-immutable-mem-table";
+    static final String NUM_IMMUTABLE_MEMTABLE = "rocksdb.num-immutable-mem-table";
 
     // "rocksdb.num-entries-imm-mem-tables" - returns total number of entries
     // in the unflushed immutable memtables.
@@ -55,11 +55,24 @@ final class MemStats {
 
     // "rocksdb.estimate-num-keys" - returns estimated number of total keys in
     // the active and unflushed immutable memtables and storage.
-    private static final String ESTIMATE_NUMKEYS = "rocksdb.estimate-num-keys";
+    static final String ESTIMATE_NUMKEYS = "rocksdb.estimate-num-keys";
+
+    // "rocksdb.live-sst-files-size" - returns total size (bytes) of all SST
+    // files belonging to the latest LSM tree.
+    static final String LIVE_SST_FILES_SIZE = "rocksdb.live-sst-files-size";
+
+    // "rocksdb.estimate-pending-compaction-bytes" - returns estimated total
+    // number of bytes compaction needs to rewrite to get all levels down to
+    // under target size.
+    static final String ESTIMATE_PENDING_COMPACTION_BYTES = "rocksdb.estimate-pending-compaction-bytes";
+
+    // "rocksdb.num-running-compactions" - returns the number of currently
+    // running compactions.
+    static final String NUM_RUNNING_COMPACTIONS = "rocksdb.num-running-compactions";
 
     private static final String[] KEYS = { SIZE_ALL_MEMTABLES, CURSIZE_ALL_MEMTABLES, CURSIZE_ACTIVE_MEMTABLE,
             NUMENTRIES_ACTIVE_MEMTABLE, NUM_IMMUTABLE_MEMTABLE, NUMENTRIES_IMM_MEMTABLES, ESTIMATE_TABLEREADERS_MEM,
-            ESTIMATE_NUMKEYS };
+            ESTIMATE_NUMKEYS, LIVE_SST_FILES_SIZE, ESTIMATE_PENDING_COMPACTION_BYTES };
 
     static Map<String, String> getStats(TransactionDB txnDb, KindImpl kind) {
         TreeMap<String, String> memStats = new TreeMap<>();
@@ -73,4 +86,12 @@ final class MemStats {
         }
         return memStats;
     }
+
+    static long getLongProperty(TransactionDB txnDb, KindImpl kind, String key) {
+        try {
+            return txnDb.getLongProperty(kind.handle(), key);
+        } catch (RocksDBException ignore) {
+            return -1L;
+        }
+    }
 }
@@ -15,63 +15,306 @@
  */
 package org.schwefel.kv;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.rocksdb.HistogramData;
+import org.rocksdb.HistogramType;
+import org.rocksdb.Statistics;
+import org.rocksdb.StatsLevel;
+import org.rocksdb.TickerType;
+
 import net.volcanite.util.DoubleStatistics;
+import net.volcanite.util.LogHistogram;
 
+/**
+ * Operation latencies of a {@link KVStore}. The {@code get...TimeNanos}
+ * methods provide count, mean, min, max and standard deviation, the
+ * {@code get...LatencyNanos} methods the latency distributions (with
+ * percentiles) which can also be snapshotted and reset per reporting
+ * interval ({@link #getLatencySnapshots(boolean)}).
+ * <p>
+ * While the store is open the RocksDB tickers and histograms are available
+ * through {@link #getTickerCount(TickerType)},
+ * {@link #getHistogramData(HistogramType)} and the typed accessors (block
+ * cache, bloom filter, compaction, stalls and WAL syncs) if they have been
+ * enabled: the {@link StatsLevel} is configured with the system property
+ * {@code org.schwefel.kv.KVStore.statsLevel}, which defaults to "none" (no
+ * RocksDB statistics at all).
+ */
 public class Stats {
 
-    final DoubleStatistics putTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics getTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics deleteTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics mergeTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics batchTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics walTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics flushTimeNanos = DoubleStatistics.newInstance();
-    final DoubleStatistics allOpsTimeNanos = DoubleStatistics.newInstance();
+    private static final TickerType[] TICKERS = { TickerType.BLOCK_CACHE_HIT, TickerType.BLOCK_CACHE_MISS,
+            TickerType.BLOCK_CACHE_INDEX_HIT, TickerType.BLOCK_CACHE_INDEX_MISS, TickerType.BLOCK_CACHE_FILTER_HIT,
+            TickerType.BLOCK_CACHE_FILTER_MISS, TickerType.BLOCK_CACHE_DATA_HIT, TickerType.BLOCK_CACHE_DATA_MISS,
+            TickerType.BLOOM_FILTER_USEFUL, TickerType.BLOOM_FILTER_FULL_POSITIVE, TickerType.MEMTABLE_HIT,
+            TickerType.MEMTABLE_MISS, TickerType.COMPACT_READ_BYTES, TickerType.COMPACT_WRITE_BYTES,
+            TickerType.FLUSH_WRITE_BYTES, TickerType.STALL_MICROS, TickerType.WAL_FILE_SYNCED,
+            TickerType.WAL_FILE_BYTES, TickerType.BYTES_WRITTEN, TickerType.BYTES_READ,
+            TickerType.NUMBER_KEYS_WRITTEN, TickerType.NUMBER_KEYS_READ };
+
+    final Latency putTimeNanos = new Latency();
+    final Latency getTimeNanos = new Latency();
+    final Latency deleteTimeNanos = new Latency();
+    final Latency mergeTimeNanos = new Latency();
+    final Latency batchTimeNanos = new Latency();
+    final Latency walTimeNanos = new Latency();
+    final Latency flushTimeNanos = new Latency();
+    final Latency allOpsTimeNanos = new Latency();
     final AtomicInteger unclosedCursorsCount = new AtomicInteger();
     final AtomicInteger openTransactions = new AtomicInteger();
+    /** the RocksDB statistics of the open store, guarded by this */
+    private Statistics statistics;
 
     public Stats() {
         //
     }
 
     public DoubleStatistics getPutTimeNanos() {
-        return putTimeNanos;
+        return putTimeNanos.statistics;
     }
 
     public DoubleStatistics getGetTimeNanos() {
-        return getTimeNanos;
+        return getTimeNanos.statistics;
     }
 
     public DoubleStatistics getDeleteTimeNanos() {
-        return deleteTimeNanos;
+        return deleteTimeNanos.statistics;
     }
 
     public DoubleStatistics getMergeTimeNanos() {
-        return mergeTimeNanos;
+        return mergeTimeNanos.statistics;
     }
 
     public DoubleStatistics getBatchTimeNanos() {
-        return batchTimeNanos;
+        return batchTimeNanos.statistics;
     }
 
     public DoubleStatistics getWalTimeNanos() {
-        return walTimeNanos;
+        return walTimeNanos.statistics;
     }
 
     public DoubleStatistics getFlushTimeNanos() {
-        return flushTimeNanos;
+        return flushTimeNanos.statistics;
     }
 
     public DoubleStatistics getAllOpsTimeNanos() {
-        return allOpsTimeNanos;
+        return allOpsTimeNanos.statistics;
+    }
+
+    public LogHistogram getPutLatencyNanos() {
+        return putTimeNanos.histogram;
+    }
+
+    public LogHistogram getGetLatencyNanos() {
+        return getTimeNanos.histogram;
+    }
+
+    public LogHistogram getDeleteLatencyNanos() {
+        return deleteTimeNanos.histogram;
+    }
+
+    public LogHistogram getMergeLatencyNanos() {
+        return mergeTimeNanos.histogram;
+    }
+
+    public LogHistogram getBatchLatencyNanos() {
+        return batchTimeNanos.histogram;
+    }
+
+    public LogHistogram getWalLatencyNanos() {
+        return walTimeNanos.histogram;
+    }
+
+    public LogHistogram getFlushLatencyNanos() {
+        return flushTimeNanos.histogram;
+    }
+
+    public LogHistogram getAllOpsLatencyNanos() {
+        return allOpsTimeNanos.histogram;
+    }
+
+    /**
+     * Returns snapshots of all latency histograms (in nanoseconds) keyed by
+     * operation: "put", "get", "delete", "merge", "batch", "wal", "flush"
+     * and "allOps".
+     * 
+     * @param reset
+     *            if {@code true} the histograms get reset, so that each call
+     *            returns the latencies of the interval since the last call
+     * @return the latency snapshots by operation
+     */
+    public Map<String, LogHistogram.Snapshot> getLatencySnapshots(boolean reset) {
+        LinkedHashMap<String, LogHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+        snapshots.put("put", snapshot(putTimeNanos, reset));
+        snapshots.put("get", snapshot(getTimeNanos, reset));
+        snapshots.put("delete", snapshot(deleteTimeNanos, reset));
+        snapshots.put("merge", snapshot(mergeTimeNanos, reset));
+        snapshots.put("batch", snapshot(batchTimeNanos, reset));
+        snapshots.put("wal", snapshot(walTimeNanos, reset));
+        snapshots.put("flush", snapshot(flushTimeNanos, reset));
+        snapshots.put("allOps", snapshot(allOpsTimeNanos, reset));
+        return snapshots;
+    }
+
+    private static LogHistogram.Snapshot snapshot(Latency latency, boolean reset) {
+        return reset ? latency.histogram.snapshotAndReset() : latency.histogram.snapshot();
+    }
+
+    synchronized void attach(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the current count of the RocksDB {@code ticker}.
+     * 
+     * @param ticker
+     *            the ticker to read
+     * @return the ticker count or {@code -1} if RocksDB statistics are
+     *         disabled or the store is closed
+     */
+    public synchronized long getTickerCount(TickerType ticker) {
+        return (statistics == null) ? -1L : statistics.getTickerCount(ticker);
+    }
+
+    /**
+     * Returns the current data of the RocksDB {@code histogram} (the unit
+     * depends on the histogram, mostly microseconds).
+     * 
+     * @param histogram
+     *            the histogram to read
+     * @return the histogram data or {@code null} if RocksDB statistics are
+     *         disabled or the store is closed
+     */
+    public synchronized HistogramData getHistogramData(HistogramType histogram) {
+        return (statistics == null) ? null : statistics.getHistogramData(histogram);
+    }
+
+    /**
+     * Returns the current {@code StatsLevel} or {@code null} if RocksDB
+     * statistics are disabled or the store is closed.
+     */
+    public synchronized StatsLevel getStatsLevel() {
+        return (statistics == null) ? null : statistics.statsLevel();
+    }
+
+    /**
+     * Changes the {@code StatsLevel} of the open store (no-op if RocksDB
+     * statistics are disabled or the store is closed).
+     */
+    public synchronized void setStatsLevel(StatsLevel level) {
+        if (statistics != null) {
+            statistics.setStatsLevel(level);
+        }
+    }
+
+    public long getBlockCacheHits() {
+        return getTickerCount(TickerType.BLOCK_CACHE_HIT);
+    }
+
+    public long getBlockCacheMisses() {
+        return getTickerCount(TickerType.BLOCK_CACHE_MISS);
+    }
+
+    /**
+     * Returns the fraction of block cache lookups that were hits or
+     * {@code Double.NaN} if there were no lookups yet (or RocksDB statistics
+     * are unavailable).
+     */
+    public synchronized double getBlockCacheHitRate() {
+        long hits = getBlockCacheHits();
+        long misses = getBlockCacheMisses();
+        if (hits < 0L || hits + misses <= 0L) {
+            return Double.NaN;
+        }
+        return (double) hits / (hits + misses);
+    }
+
+    /** Number of point lookups that a bloom filter answered negatively */
+    public long getBloomFilterUseful() {
+        return getTickerCount(TickerType.BLOOM_FILTER_USEFUL);
+    }
+
+    public long getCompactionReadBytes() {
+        return getTickerCount(TickerType.COMPACT_READ_BYTES);
+    }
+
+    public long getCompactionWriteBytes() {
+        return getTickerCount(TickerType.COMPACT_WRITE_BYTES);
+    }
+
+    public long getFlushWriteBytes() {
+        return getTickerCount(TickerType.FLUSH_WRITE_BYTES);
+    }
+
+    /** Total time writers were stalled by RocksDB in microseconds */
+    public long getStallMicros() {
+        return getTickerCount(TickerType.STALL_MICROS);
+    }
+
+    public long getWalSyncs() {
+        return getTickerCount(TickerType.WAL_FILE_SYNCED);
+    }
+
+    public long getWalBytes() {
+        return getTickerCount(TickerType.WAL_FILE_BYTES);
+    }
+
+    public long getBytesWritten() {
+        return getTickerCount(TickerType.BYTES_WRITTEN);
+    }
+
+    public long getBytesRead() {
+        return getTickerCount(TickerType.BYTES_READ);
+    }
+
+    public HistogramData getWalSyncMicros() {
+        return getHistogramData(HistogramType.WAL_FILE_SYNC_MICROS);
+    }
+
+    public HistogramData getDbGetMicros() {
+        return getHistogramData(HistogramType.DB_GET);
+    }
+
+    public HistogramData getDbWriteMicros() {
+        return getHistogramData(HistogramType.DB_WRITE);
+    }
+
+    public HistogramData getCompactionTimeMicros() {
+        return getHistogramData(HistogramType.COMPACTION_TIME);
+    }
+
+    public HistogramData getFlushTimeMicros() {
+        return getHistogramData(HistogramType.FLUSH_TIME);
+    }
+
+    public HistogramData getWriteStallMicros() {
+        return getHistogramData(HistogramType.WRITE_STALL);
+    }
+
+    /**
+     * Returns the counts of the RocksDB tickers that matter most for tuning
+     * caches and compaction keyed by {@code TickerType} name, or an empty
+     * map if RocksDB statistics are disabled or the store is closed.
+     * 
+     * @return the ticker counts by ticker name
+     */
+    public synchronized Map<String, Long> getTickerCounts() {
+        LinkedHashMap<String, Long> counts = new LinkedHashMap<>();
+        if (statistics != null) {
+            for (TickerType ticker : TICKERS) {
+                counts.put(ticker.name(), statistics.getTickerCount(ticker));
+            }
+        }
+        return counts;
     }
 
     public double getAverageWalIntervalMillis() {
+        DoubleStatistics walTimeNanos = this.walTimeNanos.statistics;
         long walCount = walTimeNanos.getCount();
         if (walCount > 0L) {
-            return (allOpsTimeNanos.getSum() - walTimeNanos.getSum()) / (1_000_000.0 * walCount);
+            return (allOpsTimeNanos.statistics.getSum() - walTimeNanos.getSum()) / (1_000_000.0 * walCount);
         }
         return Double.MAX_VALUE;
     }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv;
+
+/**
+ * The column family tuning of a {@link Kind}. A {@link KVStore} resolves the
+ * profile of each Kind by name when the Kind is created and every time the
+ * store is opened, so changing a Kind's profile only requires a reopen.
+ */
+public enum StorageProfile {
+
+    /**
+     * Leveled compaction, {@code optimizeFiltersForHits} and a 192 MB
+     * memtable budget. Good for data that gets updated and read by key.
+     */
+    DEFAULT,
+
+    /**
+     * For data that is written once, read once in key order and then
+     * deleted (queues): universal compaction (so that each message gets
+     * rewritten only a few times before it is deleted), no filters, a small
+     * memtable, readahead for range scans and LZ4 compression (see the
+     * {@code org.schwefel.kv.KVStore.queueCompression} system property).
+     */
+    QUEUE
+}
@@ -28,6 +28,7 @@ public interface StoreOps extends BasicOps, AutoCloseable {
     byte[] updateIfPresent(Kind kind, byte[] key, byte[] value);
     void singleDelete(Kind kind, byte[] key);
     byte[] singleDeleteIfPresent(Kind kind, byte[] key);
+    void deleteRange(Kind kind, byte[] beginKey, byte[] endKey);
     Batch createBatch();
     void writeBatch(Batch batch);
     ForEachKeyValue scanAll(Kind kind);
@@ -23,18 +23,28 @@ import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
+import org.rocksdb.Snapshot;
 import org.rocksdb.Transaction;
+import org.rocksdb.TransactionDB;
 
 import static org.schwefel.kv.LexicographicByteArrayComparator.lexicographicalCompare;
 
 class Transactional implements Tx {
 
     private volatile Transaction txn = null;
+    private final TransactionDB txnDb;
     private final ReadOptions readOptions;
     private final Stats stats;
+    /** lazily created ReadOptions that carry the snapshot of this Tx */
+    private ReadOptions snapshotReadOptions;
+    private boolean snapshotRequested;
+    private final CompletionHooks hooks = new CompletionHooks();
+    private boolean committed;
 
-    Transactional(Transaction txn, ReadOptions readOptions, Stats stats) {
+    Transactional(Transaction txn, TransactionDB txnDb, ReadOptions readOptions, Stats stats) {
         this.txn = Objects.requireNonNull(txn);
+        this.txnDb = Objects.requireNonNull(txnDb);
         this.stats = Objects.requireNonNull(stats).incOpenTxCount();
         this.readOptions = Objects.requireNonNull(readOptions);
     }
@@ -44,6 +54,7 @@ class Transactional implements Tx {
         validateOwned();
         try {
             txn.commit();
+            committed = true;
         } catch (RocksDBException e) {
             try {
                 rollback();
@@ -77,10 +88,58 @@ class Transactional implements Tx {
             } finally {
                 txn = null;
                 stats.decOpenTxCount();
+                if (snapshotReadOptions != null) {
+                    snapshotReadOptions.close();
+                    snapshotReadOptions = null;
+                }
+                hooks.completed(committed);
             }
         }
     }
 
+    /**
+     * Registers an action that runs after the transaction has been
+     * committed successfully.
+     */
+    @Override
+    public synchronized void onCommit(Runnable action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        validateOwned();
+        hooks.onCommit(action);
+    }
+
+    /**
+     * Registers an action that runs after the transaction has been rolled
+     * back or closed without a commit.
+     */
+    @Override
+    public synchronized void onRollback(Runnable action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        validateOwned();
+        hooks.onRollback(action);
+    }
+
+    @Override
+    public synchronized void setSnapshot() {
+        validateOwned();
+        txn.setSnapshot();
+        snapshotRequested = true;
+    }
+
+    @Override
+    public synchronized void setSnapshotOnNextOperation() {
+        validateOwned();
+        txn.setSnapshotOnNextOperation();
+        snapshotRequested = true;
+    }
+
+    @Override
+    public synchronized void clearSnapshot() {
+        validateOwned();
+        txn.clearSnapshot();
+        snapshotRequested = false;
+    }
+
     @Override
     public synchronized void disableIndexing() {
         validateOwned();
@@ -134,7 +193,7 @@ class Transactional implements Tx {
         validateOwned();
         validateReadOptions();
         try {
-            return txn.get(readOptions, ((KindImpl) kind).handle(), key);
+            return txn.get(currentReadOptions(), ((KindImpl) kind).handle(), key);
         } catch (RocksDBException e) {
             throw new StoreException(e);
         }
@@ -152,7 +211,7 @@ class Transactional implements Tx {
         validateOwned();
         validateReadOptions();
         try {
-            return txn.multiGetAsList(readOptions, toCfHandleList(kinds), keys);
+            return txn.multiGetAsList(currentReadOptions(), toCfHandleList(kinds), keys);
         } catch (RocksDBException e) {
             throw new StoreException(e);
         }
@@ -163,7 +222,7 @@ class Transactional implements Tx {
         Objects.requireNonNull(kind, "kind cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         it.seekToFirst();
         return new ForEachAll(it, stats, this);
@@ -175,7 +234,7 @@ class Transactional implements Tx {
         Objects.requireNonNull(beginKey, "beginKey cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         it.seek(beginKey);
         return new ForEachAll(it, stats, this);
@@ -188,10 +247,52 @@ class Transactional implements Tx {
         Objects.requireNonNull(endKey, "endKey cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        // the upper bound keeps both the DB iterator and the write batch
+        // iterator from stepping beyond endKey
+        Slice upperBound = new Slice(endKey);
+        ReadOptions boundedOptions = new ReadOptions(currentReadOptions()).setIterateUpperBound(upperBound);
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(boundedOptions, ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         it.seek(beginKey);
-        return new ForEachRange(it, endKey, stats, this);
+        return new ForEachRange(it, endKey, stats, this, boundedOptions, upperBound);
+    }
+
+    @Override
+    public synchronized ForEachKeyValue scanAllCommitted(Kind kind) {
+        Objects.requireNonNull(kind, "kind cannot be null");
+        validateOwned();
+        validateReadOptions();
+        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(((KindImpl) kind).handle(), currentReadOptions()));
+        stats.incOpenCursorsCount();
+        it.seekToFirst();
+        return new ForEachAll(it, stats, this);
+    }
+
+    @Override
+    public synchronized ForEachKeyValue scanAllCommitted(Kind kind, byte[] beginKey) {
+        Objects.requireNonNull(kind, "kind cannot be null");
+        Objects.requireNonNull(beginKey, "beginKey cannot be null");
+        validateOwned();
+        validateReadOptions();
+        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(((KindImpl) kind).handle(), currentReadOptions()));
+        stats.incOpenCursorsCount();
+        it.seek(beginKey);
+        return new ForEachAll(it, stats, this);
+    }
+
+    @Override
+    public synchronized ForEachKeyValue scanRangeCommitted(Kind kind, byte[] beginKey, byte[] endKey) {
+        Objects.requireNonNull(kind, "kind cannot be null");
+        Objects.requireNonNull(beginKey, "beginKey cannot be null");
+        Objects.requireNonNull(endKey, "endKey cannot be null");
+        validateOwned();
+        validateReadOptions();
+        Slice upperBound = new Slice(endKey);
+        ReadOptions boundedOptions = new ReadOptions(currentReadOptions()).setIterateUpperBound(upperBound);
+        RocksIterator it = Objects.requireNonNull(txnDb.newIterator(((KindImpl) kind).handle(), boundedOptions));
+        stats.incOpenCursorsCount();
+        it.seek(beginKey);
+        return new ForEachRange(it, endKey, stats, this, boundedOptions, upperBound);
     }
 
     @Override
@@ -199,7 +300,7 @@ class Transactional implements Tx {
         Objects.requireNonNull(kind, "kind cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         return MinMaxKeyIt.findMinKey(it, stats);
     }
@@ -210,7 +311,7 @@ class Transactional implements Tx {
         Objects.requireNonNull(keyPrefix, "keyPrefix cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         return MinMaxKeyIt.findMinKey(it, stats, keyPrefix);
     }
@@ -228,7 +329,7 @@ class Transactional implements Tx {
         Objects.requireNonNull(kind, "kind cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         return MinMaxKeyIt.findMaxKey(it, stats);
     }
@@ -239,7 +340,7 @@ class Transactional implements Tx {
         Objects.requireNonNull(keyPrefix, "keyPrefix cannot be null");
         validateOwned();
         validateReadOptions();
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         return MinMaxKeyIt.findMaxKey(it, stats, keyPrefix);
     }
@@ -262,7 +363,7 @@ class Transactional implements Tx {
         if (keyPrefix.length >= upperBound.length && lexicographicalCompare(keyPrefix, upperBound) > 0) {
             return null;
         }
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         return MinMaxKeyIt.findMaxKeyLessThan(it, stats, keyPrefix, upperBound);
     }
@@ -277,7 +378,7 @@ class Transactional implements Tx {
         if (keyPrefix.length >= lowerBound.length && lexicographicalCompare(keyPrefix, lowerBound) < 0) {
             return null;
         }
-        RocksIterator it = Objects.requireNonNull(txn.getIterator(readOptions, ((KindImpl) kind).handle()));
+        RocksIterator it = Objects.requireNonNull(txn.getIterator(currentReadOptions(), ((KindImpl) kind).handle()));
         stats.incOpenCursorsCount();
         return MinMaxKeyIt.findMinKeyGreaterThan(it, stats, keyPrefix, lowerBound);
     }
@@ -294,7 +395,7 @@ class Transactional implements Tx {
         validateOwned();
         validateReadOptions();
         try {
-            return txn.getForUpdate(readOptions, ((KindImpl) kind).handle(), key, exclusive);
+            return txn.getForUpdate(currentReadOptions(), ((KindImpl) kind).handle(), key, exclusive);
         } catch (RocksDBException e) {
             throw new StoreException(e);
         }
@@ -312,7 +413,7 @@ class Transactional implements Tx {
         validateOwned();
         validateReadOptions();
         try {
-            return txn.multiGetForUpdateAsList(readOptions, toCfHandleList(kinds), keys);
+            return txn.multiGetForUpdateAsList(currentReadOptions(), toCfHandleList(kinds), keys);
         } catch (RocksDBException e) {
             throw new StoreException(e);
         }
@@ -403,6 +504,25 @@ class Transactional implements Tx {
         return oldVal;
     }
 
+    /**
+     * Returns the ReadOptions for the next read. If a snapshot has been
+     * requested (and, in the case of {@link #setSnapshotOnNextOperation()},
+     * already been taken) reads are served from that snapshot.
+     */
+    private ReadOptions currentReadOptions() {
+        if (snapshotRequested) {
+            Snapshot snapshot = txn.getSnapshot();
+            if (snapshot != null) {
+                if (snapshotReadOptions == null) {
+                    snapshotReadOptions = new ReadOptions(readOptions);
+                }
+                snapshotReadOptions.setSnapshot(snapshot);
+                return snapshotReadOptions;
+            }
+        }
+        return readOptions;
+    }
+
     private void validateReadOptions() {
         if (!readOptions.isOwningHandle()) {
             throw new StoreException("ReadOptions already closed!?");
@@ -36,6 +36,14 @@ public final class TransmitBatchTask implements AsyncTask {
         this.keysValues = Objects.requireNonNull(keysValues);
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
+    public SortedByteArrayMap getKeysValues() {
+        return keysValues;
+    }
+
     @Override
     public void run() {
         try {
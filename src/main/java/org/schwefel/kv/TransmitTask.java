@@ -15,13 +15,14 @@
  */
 package org.schwefel.kv;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import net.volcanite.task.AsyncTask;
+import net.volcanite.task.KeyedTask;
 
-public final class TransmitTask implements AsyncTask {
+public final class TransmitTask implements KeyedTask {
 
     private static final Logger logger = Logger.getLogger(TransmitTask.class.getName());
 
@@ -29,18 +30,53 @@ public final class TransmitTask implements AsyncTask {
     private final KindImpl kind;
     private final byte[] key;
     private final byte[] value;
+    private final long createdNanos;
 
     public TransmitTask(StoreOps store, Kind kind, byte[] key, byte[] value) {
         this.store = Objects.requireNonNull(store);
         this.kind = Objects.requireNonNull((KindImpl) kind);
         this.key = key;
         this.value = value;
+        this.createdNanos = System.nanoTime();
+    }
+
+    StoreOps store() {
+        return store;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public byte[] getKey() {
+        return key;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    long createdNanos() {
+        return createdNanos;
+    }
+
+    boolean isValid() {
+        byte[] key = this.key;
+        return key != null && key.length > 0 && value != null;
+    }
+
+    /**
+     * The affinity of a {@code TransmitTask} is derived from its (Kind, key)
+     * pair.
+     */
+    @Override
+    public int affinity() {
+        return 31 * kind.name().hashCode() + Arrays.hashCode(key);
     }
 
     @Override
     public void run() {
-        byte[] key = this.key;
-        if (key != null && key.length > 0 && value != null) {
+        if (isValid()) {
             try {
                 store.put(kind, key, value);
             } catch (Throwable t) {
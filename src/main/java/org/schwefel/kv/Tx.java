@@ -21,10 +21,15 @@ public interface Tx extends BasicOps, AutoCloseable {
 
     void commit();
     void rollback();
+    void onCommit(Runnable action);
+    void onRollback(Runnable action);
     void close();
     void disableIndexing();
     void enableIndexing();
     void setLockTimeout(long lockTimeoutMillis);
+    void setSnapshot();
+    void setSnapshotOnNextOperation();
+    void clearSnapshot();
     void put(Kind kind, byte[] key, byte[] value);
     void putIfAbsent(Kind kind, byte[] key, byte[] value);
     byte[] get(Kind kind, byte[] key);
@@ -41,6 +46,9 @@ public interface Tx extends BasicOps, AutoCloseable {
     ForEachKeyValue scanAll(Kind kind);
     ForEachKeyValue scanAll(Kind kind, byte[] beginKey);
     ForEachKeyValue scanRange(Kind kind, byte[] beginKey, byte[] endKey);
+    ForEachKeyValue scanAllCommitted(Kind kind);
+    ForEachKeyValue scanAllCommitted(Kind kind, byte[] beginKey);
+    ForEachKeyValue scanRangeCommitted(Kind kind, byte[] beginKey, byte[] endKey);
     byte[] findMinKey(Kind kind);
     byte[] findMinKeyByPrefix(Kind kind, byte[] keyPrefix);
     byte[] findMinKeyByLowerBound(Kind kind, byte[] lowerBound);
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * Capacity limits of a {@link Kueue}. A queue is full if it holds
+ * {@code maxMessages} messages or if another message would make it exceed
+ * {@code maxBytes} bytes. Messages that are leased but not yet acknowledged
+ * still count, as they still occupy storage. A message that is larger than
+ * {@code maxBytes} by itself is only accepted by an empty queue.
+ */
+public final class Capacity {
+
+    /** No limits at all */
+    public static final Capacity UNBOUNDED = new Capacity(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxMessages;
+    private final long maxBytes;
+
+    /**
+     * Creates capacity limits. Use {@code Long.MAX_VALUE} for "unlimited".
+     * 
+     * @param maxMessages
+     *            the maximum number of messages
+     * @param maxBytes
+     *            the maximum size of all messages (in bytes, including the
+     *            per-message header)
+     */
+    public Capacity(long maxMessages, long maxBytes) {
+        if (maxMessages <= 0L || maxBytes <= 0L) {
+            throw new IllegalArgumentException("maxMessages: " + maxMessages + ", maxBytes: " + maxBytes);
+        }
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+    }
+
+    public static Capacity ofMessages(long maxMessages) {
+        return new Capacity(maxMessages, Long.MAX_VALUE);
+    }
+
+    public static Capacity ofBytes(long maxBytes) {
+        return new Capacity(Long.MAX_VALUE, maxBytes);
+    }
+
+    public long getMaxMessages() {
+        return maxMessages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /* package */ boolean isBounded() {
+        return maxMessages != Long.MAX_VALUE || maxBytes != Long.MAX_VALUE;
+    }
+
+    /* package */ boolean boundsBytes() {
+        return maxBytes != Long.MAX_VALUE;
+    }
+
+    /* package */ boolean hasRoom(long messages, long bytes, int n, long moreBytes) {
+        if (messages == 0L) {
+            return true;
+        }
+        return messages + n <= maxMessages && bytes + moreBytes <= maxBytes;
+    }
+
+    /**
+     * Splits the limits evenly over {@code parts} sub-queues (rounding up).
+     */
+    /* package */ Capacity split(int parts) {
+        if (!isBounded() || parts == 1) {
+            return this;
+        }
+        return new Capacity(divide(maxMessages, parts), divide(maxBytes, parts));
+    }
+
+    private static long divide(long limit, int parts) {
+        return (limit == Long.MAX_VALUE) ? limit : (limit + parts - 1) / parts;
+    }
+
+    @Override
+    public String toString() {
+        return Capacity.class.getSimpleName() + "{maxMessages=" + maxMessages + ", maxBytes=" + maxBytes + "}";
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A named reader of a {@link KueueLog} with a persisted position. All
+ * consumers that share a {@code ConsumerGroup} compete for its messages,
+ * i.e. each message is delivered once per group.
+ */
+public interface ConsumerGroup {
+
+    String name();
+    byte[] poll();
+    byte[] take() throws InterruptedException;
+    byte[] take(long timeout, TimeUnit unit) throws InterruptedException;
+    List<byte[]> takeBatch(int maxMessages, long timeout, TimeUnit unit) throws InterruptedException;
+    boolean accept(KueueMsgConsumer consumer);
+    long position();
+    long lag();
+    void seek(long sequence);
+    KueueLog log();
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * Dead-letter settings of a {@link Kueue}. A message gets dead-lettered if
+ * it is older than {@code timeToLiveMillis} when it reaches the head of the
+ * queue or if it has been delivered {@code maxDeliveries} times without
+ * being consumed (i.e., rejected by {@code accept} or leased and not
+ * acknowledged). A dead-lettered message is atomically moved to the
+ * dead-letter queue or simply removed if there is none. Delivery counts are
+ * tracked in memory only, so they start over after a restart.
+ */
+public final class DeadLetterPolicy {
+
+    /** Never dead-letters any message */
+    public static final DeadLetterPolicy NONE = new DeadLetterPolicy(null, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final String deadLetterKueue;
+    private final long timeToLiveMillis;
+    private final int maxDeliveries;
+
+    /**
+     * Creates dead-letter settings. Use {@code Long.MAX_VALUE} (or
+     * {@code Integer.MAX_VALUE}) for "unlimited".
+     * 
+     * @param deadLetterKueue
+     *            the identifier of the {@link Kueue} that receives the
+     *            dead-lettered messages ({@code null} discards them)
+     * @param timeToLiveMillis
+     *            the maximum age of a message (in milliseconds)
+     * @param maxDeliveries
+     *            the maximum number of deliveries of a message
+     */
+    public DeadLetterPolicy(String deadLetterKueue, long timeToLiveMillis, int maxDeliveries) {
+        if (timeToLiveMillis <= 0L || maxDeliveries <= 0) {
+            throw new IllegalArgumentException(
+                    "timeToLiveMillis: " + timeToLiveMillis + ", maxDeliveries: " + maxDeliveries);
+        }
+        if (deadLetterKueue != null && deadLetterKueue.isEmpty()) {
+            throw new IllegalArgumentException("deadLetterKueue: empty");
+        }
+        this.deadLetterKueue = deadLetterKueue;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxDeliveries = maxDeliveries;
+    }
+
+    public static DeadLetterPolicy ofTimeToLive(String deadLetterKueue, long timeToLiveMillis) {
+        return new DeadLetterPolicy(deadLetterKueue, timeToLiveMillis, Integer.MAX_VALUE);
+    }
+
+    public static DeadLetterPolicy ofMaxDeliveries(String deadLetterKueue, int maxDeliveries) {
+        return new DeadLetterPolicy(deadLetterKueue, Long.MAX_VALUE, maxDeliveries);
+    }
+
+    public String getDeadLetterKueue() {
+        return deadLetterKueue;
+    }
+
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public int getMaxDeliveries() {
+        return maxDeliveries;
+    }
+
+    /* package */ boolean expires() {
+        return timeToLiveMillis != Long.MAX_VALUE;
+    }
+
+    /* package */ boolean expired(long ageMillis) {
+        return ageMillis > timeToLiveMillis;
+    }
+
+    /* package */ boolean exhausted(int deliveries) {
+        return deliveries >= maxDeliveries;
+    }
+
+    @Override
+    public String toString() {
+        return DeadLetterPolicy.class.getSimpleName() + "{deadLetterKueue=" + deadLetterKueue + ", timeToLiveMillis="
+                + timeToLiveMillis + ", maxDeliveries=" + maxDeliveries + "}";
+    }
+}
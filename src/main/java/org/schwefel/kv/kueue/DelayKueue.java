@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A RocksDB-based in-process durable queue whose messages become available
+ * only after their due time. Messages are taken in due time order (FIFO for
+ * equal due times).
+ */
+public interface DelayKueue {
+
+    void put(byte[] value, long delay, TimeUnit unit);
+    void putAt(byte[] value, long dueTimeMillis);
+    byte[] poll();
+    byte[] take() throws InterruptedException;
+    byte[] take(long timeout, TimeUnit unit) throws InterruptedException;
+    long nextDueTimeMillis();
+    long size();
+    boolean isEmpty();
+    boolean isClosed();
+    String identifier();
+    void clear();
+    long totalPuts();
+    long totalTakes();
+    KueueManager getKueueManager();
+}
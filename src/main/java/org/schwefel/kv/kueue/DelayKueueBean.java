@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/* package */ final class DelayKueueBean implements DelayKueueMXBean {
+
+    private final DelayKueue kueue;
+
+    DelayKueueBean(DelayKueue kueue) {
+        this.kueue = kueue;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return kueue.identifier();
+    }
+
+    @Override
+    public long getSize() {
+        return kueue.size();
+    }
+
+    @Override
+    public long getTotalPuts() {
+        return kueue.totalPuts();
+    }
+
+    @Override
+    public long getTotalTakes() {
+        return kueue.totalTakes();
+    }
+
+    @Override
+    public long getNextDueTimeMillis() {
+        return kueue.nextDueTimeMillis();
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.ForEachKeyValue;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+
+import net.volcanite.util.Byte8Key;
+
+import static org.schwefel.kv.LexicographicByteArrayComparator.lexicographicalCompare;
+
+/**
+ * A RocksDB-based in-process durable delay queue. Keys are 16 bytes: the
+ * big-endian due time in milliseconds followed by a big-endian sequence
+ * number, so that the RocksDB order is the due order. The meta record holds
+ * the upper bound of the reserved sequence numbers and the number of
+ * messages; it is written atomically with every put and take, so opening
+ * the queue doesn't have to count the messages.
+ */
+/* package */ class DelayKueueImpl implements DelayKueue {
+
+    private static final int KEY_LENGTH = 16;
+    private static final long MAX_DUE_TIME = Long.MAX_VALUE - 1L;
+    /** Number of sequence numbers reserved at once */
+    private static final long SEQUENCE_BLOCK = 1_024L;
+    /** Length of the meta record: reserved sequence bound and count */
+    private static final int SEQUENCE_RECORD_LENGTH = 16;
+    /** Number of takes after which the dead head region gets compacted */
+    private static final long COMPACT_INTERVAL = 65_536L;
+
+    private final KueueManager manager;
+    private final StoreOps ops;
+    private final Kind id;
+    /** Kind holding the reserved sequence numbers and the count */
+    private final Kind meta;
+    private final byte[] sequenceKey;
+
+    /** Lock held by all operations */
+    private final ReentrantLock lock = new ReentrantLock(true);
+    /** Wait queue for takes (signalled when the head changes) */
+    private final Condition headChanged = lock.newCondition();
+    /** Next sequence number */
+    private long sequence;
+    /** Sequence numbers below this one have been reserved */
+    private long reservedUpTo;
+    /** No live message has a key below this bound */
+    private byte[] floor = new byte[KEY_LENGTH];
+    /** The current head (cached) or null if unknown */
+    private byte[] head;
+    /** Current number of messages (guarded by lock) */
+    private volatile long count;
+    /** Total number of successful puts */
+    private long totalPuts;
+    /** Total number of successful takes */
+    private long totalTakes;
+
+    /* package */ DelayKueueImpl(StoreOps store, String identifier, KueueManager mgr) {
+        manager = mgr;
+        ops = Objects.requireNonNull(store, "store");
+        id = store.getKindManagement().getOrCreateKind(Objects.requireNonNull(identifier, "identifier"));
+        meta = store.getKindManagement().getOrCreateKind(KueueManager.META_KIND);
+        sequenceKey = MetaKeys.delaySequence(identifier);
+        byte[] reserved = null;
+        synchronized (ops) {
+            reserved = ops.get(meta, sequenceKey);
+            head = ops.findMinKey(id);
+        }
+        // skip the rest of the block that was reserved before the restart,
+        // the first put reserves a new one
+        sequence = (reserved == null) ? 0L : new Byte8Key(Arrays.copyOf(reserved, 8)).currentValue();
+        reservedUpTo = sequence;
+        if (head != null) {
+            floor = head;
+            if (reserved != null && reserved.length == SEQUENCE_RECORD_LENGTH) {
+                count = ByteBuffer.wrap(reserved, 8, 8).getLong();
+            } else {
+                // a queue whose meta record doesn't carry the count yet
+                long[] n = new long[1];
+                try (ForEachKeyValue it = ops.scanAll(id, head)) {
+                    it.forEachRemaining((k, v) -> ++n[0]);
+                }
+                count = n[0];
+            }
+        }
+        if (reserved == null || reserved.length != SEQUENCE_RECORD_LENGTH) {
+            // also marks the identifier as a DelayKueue
+            ops.put(meta, sequenceKey, sequenceRecord(reservedUpTo, count));
+        }
+    }
+
+    @Override
+    public void put(byte[] value, long delay, TimeUnit unit) {
+        long dueTime = System.currentTimeMillis() + unit.toMillis(Math.max(delay, 0L));
+        putAt(value, (dueTime < 0L) ? MAX_DUE_TIME : dueTime);
+    }
+
+    @Override
+    public void putAt(byte[] value, long dueTimeMillis) {
+        Objects.requireNonNull(value, "value");
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            long reserved = (sequence == reservedUpTo) ? reservedUpTo + SEQUENCE_BLOCK : reservedUpTo;
+            byte[] key = key(Math.min(Math.max(dueTimeMillis, 0L), MAX_DUE_TIME), sequence);
+            try (Batch batch = ops.createBatch()) {
+                batch.put(id, key, value);
+                batch.put(meta, sequenceKey, sequenceRecord(reserved, count + 1L));
+                ops.writeBatch(batch);
+            }
+            reservedUpTo = reserved;
+            ++sequence;
+            ++count;
+            ++totalPuts;
+            if (lexicographicalCompare(key, floor) < 0) {
+                floor = key;
+            }
+            if (head == null || lexicographicalCompare(key, head) < 0) {
+                // the new message is due earlier than the current head
+                head = key;
+                headChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] poll() {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (count == 0L || dueTimeMillis(head) > System.currentTimeMillis()) {
+                return null;
+            }
+            return removeHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] take() throws InterruptedException {
+        ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                if (count == 0L) {
+                    headChanged.await();
+                } else {
+                    long delay = dueTimeMillis(head) - System.currentTimeMillis();
+                    if (delay <= 0L) {
+                        return removeHead();
+                    }
+                    headChanged.await(delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] take(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                if (count == 0L) {
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    nanos = headChanged.awaitNanos(nanos);
+                } else {
+                    long delay = TimeUnit.MILLISECONDS.toNanos(dueTimeMillis(head) - System.currentTimeMillis());
+                    if (delay <= 0L) {
+                        return removeHead();
+                    }
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    long waitNanos = Math.min(nanos, delay);
+                    nanos -= waitNanos - headChanged.awaitNanos(waitNanos);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long nextDueTimeMillis() {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return (count == 0L) ? -1L : dueTimeMillis(head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0L;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !ops.isOpen();
+    }
+
+    @Override
+    public String identifier() {
+        return id.name();
+    }
+
+    @Override
+    public void clear() {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (count > 0L) {
+                byte[] end = key(Long.MAX_VALUE, Long.MAX_VALUE);
+                ops.deleteRange(id, floor, end);
+                ops.put(meta, sequenceKey, sequenceRecord(reservedUpTo, 0L));
+                totalTakes += count;
+                count = 0L;
+                head = null;
+                floor = new byte[KEY_LENGTH];
+                if (manager != null) {
+                    manager.compactAsync(id, new byte[KEY_LENGTH], end);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long totalPuts() {
+        return totalPuts;
+    }
+
+    @Override
+    public long totalTakes() {
+        return totalTakes;
+    }
+
+    @Override
+    public KueueManager getKueueManager() {
+        return manager;
+    }
+
+    /**
+     * Removes the head message and locates the next head. The search starts
+     * at the removed key, so it doesn't have to skip over the tombstones of
+     * the messages taken before. Must be called while holding the lock.
+     */
+    private byte[] removeHead() {
+        byte[] key = head;
+        byte[] value = ops.get(id, key);
+        try (Batch batch = ops.createBatch()) {
+            if (value != null) {
+                batch.singleDelete(id, key);
+            }
+            batch.put(meta, sequenceKey, sequenceRecord(reservedUpTo, count - 1L));
+            ops.writeBatch(batch);
+        }
+        --count;
+        ++totalTakes;
+        floor = key;
+        head = (count == 0L) ? null : ops.findMinKeyByLowerBound(id, key);
+        if (head == null) {
+            count = 0L;
+        } else if (count > 0L) {
+            // signal other waiting takers
+            headChanged.signal();
+        }
+        if (totalTakes % COMPACT_INTERVAL == 0L && manager != null) {
+            manager.compactAsync(id, new byte[KEY_LENGTH], key);
+        }
+        return value;
+    }
+
+    private static byte[] sequenceRecord(long reservedUpTo, long count) {
+        return ByteBuffer.allocate(SEQUENCE_RECORD_LENGTH).put(new Byte8Key(reservedUpTo).current())
+                .putLong(count).array();
+    }
+
+    private static byte[] key(long dueTimeMillis, long sequence) {
+        byte[] key = new byte[KEY_LENGTH];
+        System.arraycopy(new Byte8Key(dueTimeMillis).current(), 0, key, 0, 8);
+        System.arraycopy(new Byte8Key(sequence).current(), 0, key, 8, 8);
+        return key;
+    }
+
+    private static long dueTimeMillis(byte[] key) {
+        long due = 0L;
+        for (int i = 0; i < 8; ++i) {
+            due = (due << 8) | (key[i] & 0xFFL);
+        }
+        return due;
+    }
+}
@@ -15,24 +15,107 @@
  */
 package org.schwefel.kv.kueue;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.Tx;
+
 /**
  * A simple RocksDB-based in-process durable queue.
+ * <p>
+ * The {@code take}, {@code accept} and {@code drainTo} methods remove
+ * messages right away. The {@code poll} methods lease a message instead: it
+ * becomes invisible until it is acknowledged, nacked or its visibility
+ * timeout expires (see {@link KueueLease}). Nacked and expired messages are
+ * redelivered only through {@code poll}.
+ * <p>
+ * The consumer offset is persisted every few hundred consumed messages and
+ * when the {@link KueueManager} is closed. After a crash the messages that
+ * have been consumed since the offset was last persisted are delivered
+ * again, so {@code take} is at-most-once only for clean shutdowns.
+ * <p>
+ * Taken and leased messages share that single offset, which never moves past
+ * the oldest unacknowledged lease. When {@code take} and {@code poll} are
+ * mixed on the same queue, every message taken after an outstanding lease
+ * is therefore delivered again after a crash, no matter how long ago it has
+ * been taken. Use either {@code take} or leases per queue if that matters.
+ * <p>
+ * {@code subscribe} pushes messages to a consumer on a shared
+ * {@link Executor} (using leases under the hood), so that no thread has to
+ * park in {@code take} while the queue is empty. At most
+ * {@code maxInFlight} messages are handed to the executor at any time; use
+ * {@code maxInFlight == 1} to preserve FIFO order. The leases of a
+ * subscription have a visibility timeout of 60 seconds unless another one is
+ * given, a message whose consumer runs longer than that is delivered a
+ * second time. A message that the consumer rejects (or fails on) is
+ * redelivered after a backoff that doubles with each delivery (100 ms up
+ * to 30 s).
+ * <p>
+ * {@code peek}, {@code browse} and {@code get} are for inspection only. They
+ * read from a snapshot of the pending messages (those neither taken nor
+ * currently leased) without ever acquiring the consumers' lock, so they
+ * can't stall production consumers. Sequence numbers are the ones reported
+ * by {@link KueueLease#sequence()}. A sharded queue has no total order of
+ * its messages, it numbers them by shard-qualified positions instead.
+ * <p>
+ * {@code put(Tx, byte[])} and {@code put(Batch, byte[])} enqueue a message
+ * atomically with other updates of the same store (outbox pattern): the
+ * message becomes visible to consumers only after the enclosing transaction
+ * or batch has been committed.
+ * <p>
+ * {@code putPacked} stores many small messages as a single record under a
+ * single key. The messages keep sequence numbers of their own and are
+ * unpacked transparently when they are consumed, browsed or fetched.
+ * <p>
+ * A queue is unbounded unless a {@link Capacity} is set. When a bounded
+ * queue is full, {@code put} and {@code putAll} throw an
+ * {@code IllegalStateException}, {@code offer} returns {@code false} and
+ * the timed {@code offer} waits for consumers to make room.
+ * <p>
+ * A {@link DeadLetterPolicy} keeps poison messages and stale messages from
+ * stalling the queue: messages that have expired or have been delivered too
+ * often are moved to a dead-letter queue instead of being delivered again.
  */
 public interface Kueue {
 
     void put(byte[] value);
+    boolean offer(byte[] value);
+    boolean offer(byte[] value, long timeout, TimeUnit unit) throws InterruptedException;
+    void putAll(List<byte[]> values);
+    void putPacked(List<byte[]> values);
+    void put(Tx tx, byte[] value);
+    void put(Batch batch, byte[] value);
     byte[] take() throws InterruptedException;
     byte[] take(long timeout, TimeUnit unit) throws InterruptedException;
+    List<byte[]> takeBatch(int maxMessages, long timeout, TimeUnit unit) throws InterruptedException;
+    int drainTo(Collection<? super byte[]> c, int maxMessages);
     boolean accept(KueueMsgConsumer consumer);
     boolean accept(long timeout, TimeUnit unit, KueueMsgConsumer consumer) throws InterruptedException;
+    KueueLease poll(long visibilityTimeout, TimeUnit unit);
+    KueueLease poll(long timeout, long visibilityTimeout, TimeUnit unit) throws InterruptedException;
+    long inFlightCount();
+    byte[] peek();
+    KueueCursor browse(long fromSequence, int limit);
+    byte[] get(long sequence);
+    DeadLetterPolicy getDeadLetterPolicy();
+    void setDeadLetterPolicy(DeadLetterPolicy policy);
+    long totalDeadLettered();
+    KueueSubscription subscribe(KueueMsgConsumer consumer, Executor executor, int maxInFlight);
+    KueueSubscription subscribe(KueueMsgConsumer consumer, Executor executor, int maxInFlight,
+            long visibilityTimeout, TimeUnit unit);
     long size();
+    long sizeInBytes();
+    Capacity getCapacity();
+    void setCapacity(Capacity capacity);
     boolean isEmpty();
     boolean isClosed();
     String identifier();
     void clear();
     long totalPuts();
     long totalTakes();
+    KueueMetrics getMetrics();
     KueueManager getKueueManager();
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * A bounded read-only cursor over the pending messages of a {@link Kueue}
+ * as returned by {@link Kueue#browse(long, int)}. It reads from the
+ * consistent snapshot that was current when it has been created, so
+ * concurrent puts and takes don't affect it (and aren't blocked by it). A
+ * cursor must be closed after use.
+ */
+public interface KueueCursor extends AutoCloseable {
+
+    boolean next();
+    long sequence();
+    byte[] value();
+    void close();
+}
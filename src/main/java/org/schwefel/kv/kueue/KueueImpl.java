@@ -15,67 +15,230 @@
  */
 package org.schwefel.kv.kueue;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.ForEachKeyValue;
 import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreException;
 import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.Tx;
 
 import net.volcanite.util.Byte8Key;
+import net.volcanite.util.LogHistogram;
 
 /**
  * A simple RocksDB-based in-process durable queue.
  */
-/* package */ class KueueImpl implements Kueue {
+/* package */ class KueueImpl implements Kueue, KueueSubscriptionImpl.Source {
+
+    /** Number of consumed messages after which the offset gets persisted */
+    private static final long OFFSET_COMMIT_INTERVAL = 256L;
+    /** Number of consumed messages after which the head region gets range-deleted */
+    private static final long TRUNCATE_INTERVAL = 4_096L;
+    /** Number of range deletes after which the dead head region gets compacted */
+    private static final int COMPACT_INTERVAL = 16;
+
+    private static final Logger logger = Logger.getLogger(KueueImpl.class.getName());
 
     private Byte8Key minKey = new Byte8Key(Byte8Key.minKey());
+    /** Sequence of the first pending message as seen by lock-free readers */
+    private volatile long headSeq;
     private Byte8Key maxKey = new Byte8Key(Byte8Key.minKey());
 
     private final KueueManager manager;
     private final StoreOps ops;
     private final Kind id;
+    /** Kind holding the consumer offsets */
+    private final Kind meta;
+    /** Key of this queue's offset record in {@link #meta} */
+    private final byte[] offsetKey;
+    /** Start of the consumed head region that hasn't been range-deleted yet */
+    private Byte8Key truncatedTo = new Byte8Key(Byte8Key.minKey());
+    /** Key of this queue's hole record in {@link #meta} */
+    private final byte[] holeKey;
+    /** Highest sequence that may be a hole left by a failed put (or -1) */
+    private volatile long highestHole = -1L;
+    /** First sequence stored with a {@link Records} header (older ones are raw) */
+    private final long recordsFrom;
+    /** Key of this queue's packing record in {@link #meta} */
+    private final byte[] packedKey;
+    /** First sequence that may be stored in a packed record (or Long.MAX_VALUE) */
+    private volatile long packedFrom = Long.MAX_VALUE;
+    /** The packed record that has been unpacked last (may be stale) */
+    private volatile Pack pack;
+    /** The offset that has been persisted last (everything below is consumed) */
+    private long persistedOffset = Long.MIN_VALUE;
+    /** Leased messages that haven't been acknowledged yet, by sequence */
+    private final TreeMap<Long, Delivery> inFlight = new TreeMap<>();
+    /** Leased messages that have been nacked or whose lease has expired */
+    private final TreeSet<Long> redeliver = new TreeSet<>();
+    /** Lease deadlines (may contain stale entries) */
+    private final PriorityQueue<Expiry> expiries = new PriorityQueue<>();
+    /** Number of range deletes since the last compaction of the head region */
+    private int truncations;
+    /** Current dead-letter settings */
+    private volatile DeadLetterPolicy deadLetterPolicy = DeadLetterPolicy.NONE;
+    /** The dead-letter queue of the current policy (or null) */
+    private volatile KueueImpl deadLetters;
+    /** Number of queues that use this queue as their dead-letter queue */
+    private final AtomicInteger deadLetterSources = new AtomicInteger();
+    /** Sequence of the head message that has last been rejected by accept */
+    private long rejectedSeq = -1L;
+    /** Number of times the message {@link #rejectedSeq} has been rejected */
+    private int rejections;
+    /** Sequence ranges of enclosing Tx / Batch puts in order, guarded by the put lock */
+    private final TreeMap<Long, Reservation> reservations = new TreeMap<>();
+    /** Push-based consumers */
+    private final CopyOnWriteArrayList<KueueSubscriptionImpl> subscriptions = new CopyOnWriteArrayList<>();
 
     /** Lock held by put */
-    private final ReentrantLock putLock = new ReentrantLock(true);
+    private final ReentrantLock putLock;
     /** Lock held by take */
-    private final ReentrantLock takeLock = new ReentrantLock(true);
+    private final ReentrantLock takeLock;
     /** Wait queue for waiting takes */
-    private final Condition notEmpty = takeLock.newCondition();
+    private final Condition notEmpty;
     /** Current number of messages */
     private final AtomicLong count;
-    /** Total number of successful puts */
-    private long totalPuts;
-    /** Total number of successful takes */
-    private long totalTakes;
+    /** Capacity limits (checked under the put lock) */
+    private volatile Capacity capacity = Capacity.UNBOUNDED;
+    /** Number of messages that occupy storage: pending, leased or reserved */
+    private final AtomicLong held = new AtomicLong();
+    /** Size of the held messages in bytes (valid once measured) */
+    private final AtomicLong heldBytes = new AtomicLong();
+    /** Whether {@link #heldBytes} is accurate (false after open or a gap) */
+    private volatile boolean bytesMeasured;
+    /** Lock only used for parking producers while the queue is full */
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    /** Wait queue for waiting offers */
+    private final Condition notFull = spaceLock.newCondition();
+    /** Number of parked producers (consumers only signal if there are any) */
+    private final AtomicLong putWaiters = new AtomicLong();
+    /** Total number of successful puts (written under the put lock only) */
+    private volatile long totalPuts;
+    /** Total number of successful takes (written under the take lock only) */
+    private volatile long totalTakes;
+    /** Total number of dead-lettered messages (written under the take lock only) */
+    private volatile long totalDeadLettered;
+    /** When the put lock has been acquired (guarded by the put lock) */
+    private long putLockedAt;
+    /** When the take lock has been acquired (guarded by the take lock) */
+    private long takeLockedAt;
+    private final LogHistogram timeInQueueMillis = new LogHistogram();
+    private final LogHistogram consumerWaitNanos = new LogHistogram();
+    private final LogHistogram putLockHoldNanos = new LogHistogram();
+    private final LogHistogram takeLockHoldNanos = new LogHistogram();
 
     /* package */ KueueImpl(StoreOps store, String identifier, KueueManager mgr) {
+        this(store, identifier, mgr, true);
+    }
+
+    /* package */ KueueImpl(StoreOps store, String identifier, KueueManager mgr, boolean fair) {
+        putLock = new ReentrantLock(fair);
+        takeLock = new ReentrantLock(fair);
+        notEmpty = takeLock.newCondition();
         manager = mgr;
         ops = Objects.requireNonNull(store, "store");
         id = store.getKindManagement().getOrCreateKind(Objects.requireNonNull(identifier, "identifier"));
-        Byte8Key lastMax = maxKey;
+        meta = store.getKindManagement().getOrCreateKind(KueueManager.META_KIND);
+        offsetKey = MetaKeys.queueOffset(identifier);
+        holeKey = MetaKeys.queueHoles(identifier);
+        byte[] recordsKey = MetaKeys.queueRecords(identifier);
+        packedKey = MetaKeys.queuePacked(identifier);
+        byte[] offset = null;
+        byte[] holes = null;
+        byte[] records = null;
+        byte[] packed = null;
         byte[] currentMin = null;
         byte[] currentMax = null;
         synchronized (ops) {
-            currentMin = ops.findMinKey(id);
+            offset = ops.get(meta, offsetKey);
+            holes = ops.get(meta, holeKey);
+            records = ops.get(meta, recordsKey);
+            packed = ops.get(meta, packedKey);
+            // seek directly behind the consumed (range-deleted) head region
+            currentMin = (offset == null) ? ops.findMinKey(id) : ops.findMinKeyByLowerBound(id, offset);
             currentMax = ops.findMaxKey(id);
         }
+        if (packed != null) {
+            packedFrom = new Byte8Key(packed).currentValue();
+        }
         if (currentMin != null) {
             minKey = new Byte8Key(currentMin);
+        } else if (offset != null) {
+            minKey = new Byte8Key(offset);
+        }
+        if (offset != null) {
+            persistedOffset = new Byte8Key(offset).currentValue();
+            if (minKey.currentValue() > persistedOffset && packCovering(persistedOffset) != null) {
+                // the offset points into a partially consumed packed record
+                minKey = new Byte8Key(persistedOffset);
+            }
         }
         if (currentMax != null) {
             Byte8Key nextMax = new Byte8Key(currentMax);
-            lastMax = new Byte8Key(nextMax.currentValue());
             nextMax.increment();
             maxKey = nextMax;
+            if (nextMax.currentValue() > packedFrom) {
+                byte[] last = ops.get(id, currentMax);
+                if (last != null && Records.isPacked(last)) {
+                    // the other messages of the last record have no keys
+                    maxKey = new Byte8Key(new Pack(nextMax.currentValue() - 1L, last).end());
+                }
+            }
+        }
+        if (maxKey.currentValue() < minKey.currentValue()) {
+            if (offset == null) {
+                throw new IllegalStateException("maxKey < minKey");
+            }
+            // everything up to the offset has been consumed already
+            maxKey = new Byte8Key(minKey.currentValue());
         }
-        if (lastMax.currentValue() < minKey.currentValue()) {
-            throw new IllegalStateException("maxKey < minKey");
+        if (records != null) {
+            recordsFrom = new Byte8Key(records).currentValue();
+        } else {
+            // messages of a pre-existing queue keep their raw format
+            recordsFrom = maxKey.currentValue();
+            ops.put(meta, recordsKey, maxKey.current());
         }
+        headSeq = minKey.currentValue();
         long quantity = maxKey.minus(minKey);
+        if (holes != null) {
+            highestHole = new Byte8Key(holes).currentValue();
+            if (highestHole >= minKey.currentValue()) {
+                // keys are dense above the highest hole, only count below
+                long denseFrom = Math.min(highestHole + 1L, maxKey.currentValue());
+                quantity = maxKey.currentValue() - denseFrom + countMessages(minKey.currentValue(), denseFrom);
+            }
+        }
         count = new AtomicLong(quantity);
+        held.set(quantity);
+        bytesMeasured = (quantity == 0L);
+    }
+
+    private long countMessages(long from, long to) {
+        long[] n = new long[1];
+        if (from < to) {
+            scanMessages(from, to, (seq, record) -> ++n[0]);
+        }
+        return n[0];
     }
 
     @Override
@@ -117,12 +280,11 @@ import net.volcanite.util.Byte8Key;
      * Signals a waiting take. Called only from put.
      */
     private void signalNotEmpty() {
-        ReentrantLock takeLock = this.takeLock;
-        takeLock.lock();
+        lockTake();
         try {
             notEmpty.signal();
         } finally {
-            takeLock.unlock();
+            unlockTake();
         }
     }
 
@@ -130,178 +292,1710 @@ import net.volcanite.util.Byte8Key;
      * Locks to prevent both puts and takes.
      */
     private void fullyLock() {
-        putLock.lock();
-        takeLock.lock();
+        lockPut();
+        lockTake();
     }
 
     /**
      * Unlocks to allow both puts and takes.
      */
     private void fullyUnlock() {
-        takeLock.unlock();
+        unlockTake();
+        unlockPut();
+    }
+
+    private void lockPut() {
+        putLock.lock();
+        if (putLock.getHoldCount() == 1) {
+            putLockedAt = System.nanoTime();
+        }
+    }
+
+    private void unlockPut() {
+        if (putLock.getHoldCount() == 1) {
+            putLockHoldNanos.record(System.nanoTime() - putLockedAt);
+        }
         putLock.unlock();
     }
 
+    private void lockTake() {
+        takeLock.lock();
+        if (takeLock.getHoldCount() == 1) {
+            takeLockedAt = System.nanoTime();
+        }
+    }
+
+    private void lockTakeInterruptibly() throws InterruptedException {
+        takeLock.lockInterruptibly();
+        if (takeLock.getHoldCount() == 1) {
+            takeLockedAt = System.nanoTime();
+        }
+    }
+
+    private void unlockTake() {
+        if (takeLock.getHoldCount() == 1) {
+            takeLockHoldNanos.record(System.nanoTime() - takeLockedAt);
+        }
+        takeLock.unlock();
+    }
+
+    /**
+     * Records the time a blocking consumer has waited for a message since
+     * {@code start} and restarts the take lock hold time (the lock has been
+     * released while waiting). Must be called while holding the take lock.
+     */
+    private void waited(long start) {
+        long now = System.nanoTime();
+        consumerWaitNanos.record(now - start);
+        takeLockedAt = now;
+    }
+
+    /**
+     * Records how long the message {@code seq} has been in the queue.
+     */
+    private void dequeued(long seq, byte[] record, long nowMillis) {
+        if (seq >= recordsFrom) {
+            timeInQueueMillis.record(nowMillis - Records.timestamp(record));
+        }
+    }
+
+    /**
+     * Appends {@code value}.
+     * 
+     * @throws IllegalStateException
+     *             if the queue is at its capacity
+     */
     @Override
     public void put(byte[] value) {
+        if (!offer(value)) {
+            throw new IllegalStateException(identifier() + " is full (" + capacity + ")");
+        }
+    }
+
+    @Override
+    public boolean offer(byte[] value) {
         Objects.requireNonNull(value, "value");
+        long size = Records.HEADER_LENGTH + value.length;
         long c = -1L;
-        ReentrantLock putLock = this.putLock;
-        AtomicLong count = this.count;
-        putLock.lock();
+        lockPut();
+        long seq = maxKey.currentValue();
         try {
-            ops.put(id, maxKey.next(), value);
-            c = count.getAndIncrement();
+            if (!hasRoomLocked(1, size)) {
+                return false;
+            }
+            guardPendingReservations();
+            ops.put(id, maxKey.next(), Records.encode((byte) 0, System.currentTimeMillis(), value));
+            added(1, size);
+            c = publish(seq, 1);
             ++totalPuts;
         } catch (Throwable t) {
-            maxKey.decrement();
+            if (failedPut(seq, 1, size) == 0L) {
+                signalNotEmpty();
+            }
             throw t;
         } finally {
-            putLock.unlock();
+            unlockPut();
         }
         if (c == 0L) {
             signalNotEmpty();
         }
+        signalSubscribers();
+        return true;
     }
 
+    /**
+     * Appends {@code value}, waiting up to the specified wait time for space
+     * to become available if the queue is at its capacity.
+     * 
+     * @return {@code true} if successful, {@code false} if the wait time
+     *         elapsed before space was available
+     */
     @Override
-    public byte[] take() throws InterruptedException {
-        byte[] value;
+    public boolean offer(byte[] value, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(value, "value");
+        long size = Records.HEADER_LENGTH + value.length;
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            if (offer(value)) {
+                return true;
+            }
+            if (nanos <= 0L) {
+                return false;
+            }
+            spaceLock.lockInterruptibly();
+            putWaiters.incrementAndGet();
+            try {
+                // re-check after registering as a waiter
+                if (!hasRoom(1, size)) {
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } finally {
+                putWaiters.decrementAndGet();
+                spaceLock.unlock();
+            }
+        }
+    }
+
+    private boolean hasRoom(int n, long bytes) {
+        Capacity capacity = this.capacity;
+        return !capacity.isBounded() || capacity.hasRoom(held.get(), heldBytes.get(), n, bytes);
+    }
+
+    /**
+     * {@link #hasRoom(int, long)} for producers that hold the put lock: if
+     * byte limits apply and the size of the held messages has become unknown,
+     * it gets measured again first.
+     */
+    private boolean hasRoomLocked(int n, long bytes) {
+        if (!bytesMeasured && capacity.boundsBytes()) {
+            measureBytes();
+        }
+        return hasRoom(n, bytes);
+    }
+
+    private void added(int n, long bytes) {
+        held.addAndGet(n);
+        heldBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Accounts for {@code n} messages that no longer occupy storage and wakes
+     * up parked producers.
+     */
+    private void released(int n, long bytes) {
+        held.addAndGet(-n);
+        heldBytes.addAndGet(-bytes);
+        if (putWaiters.get() > 0L) {
+            signalNotFull();
+        }
+    }
+
+    private void signalNotFull() {
+        ReentrantLock spaceLock = this.spaceLock;
+        spaceLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+
+    @Override
+    public Capacity getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the capacity limits. Lowering them doesn't remove anything, the
+     * queue just doesn't accept new messages until it has drained below the
+     * new limits. Byte limits require the size of the messages that were
+     * there on open to be known, which is measured once (with a scan of the
+     * queue) on the first call.
+     */
+    @Override
+    public void setCapacity(Capacity capacity) {
+        Objects.requireNonNull(capacity, "capacity");
+        if (capacity.boundsBytes()) {
+            measureBytes();
+        }
+        this.capacity = capacity;
+        signalNotFull();
+    }
+
+    /**
+     * Returns the size of all messages that occupy storage (pending, leased
+     * or reserved) in bytes. The first call scans the queue if it has been
+     * non-empty on open or if a missing message has been skipped since.
+     */
+    @Override
+    public long sizeInBytes() {
+        measureBytes();
+        return heldBytes.get();
+    }
+
+    private void measureBytes() {
+        if (bytesMeasured) {
+            return;
+        }
+        fullyLock();
+        try {
+            if (!bytesMeasured) {
+                long[] bytes = { 0L };
+                scanMessages(minKey.currentValue(), maxKey.currentValue(), (seq, record) -> bytes[0] += record.length);
+                for (Delivery d : inFlight.values()) {
+                    bytes[0] += d.bytes;
+                }
+                for (Reservation r : reservations.values()) {
+                    if (r.state == Reservation.PENDING) {
+                        bytes[0] += r.bytes;
+                    }
+                }
+                heldBytes.set(bytes[0]);
+                bytesMeasured = true;
+            }
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    /**
+     * Deals with a put of {@code n} messages starting at sequence {@code seq}
+     * that has thrown. The sequence numbers are never reused: the write may
+     * have been applied after all (e.g. if only the subsequent WAL sync
+     * failed), in which case the messages are counted. Otherwise they are
+     * recorded as holes that the take side skips. Must be called while
+     * holding the put lock.
+     * 
+     * @return the count before the messages were counted or -1
+     */
+    private long failedPut(long seq, int n, long bytes) {
+        boolean applied = false;
+        try {
+            applied = ops.get(id, new Byte8Key(seq).current()) != null;
+        } catch (RuntimeException ignore) {
+        }
+        if (applied) {
+            added(n, bytes);
+            totalPuts += n;
+            return publish(seq, n);
+        }
+        recordHole(seq + n - 1L);
+        return -1L;
+    }
+
+    /**
+     * Records that the keys up to {@code seq} may contain holes. Must be
+     * called while holding the put lock.
+     */
+    private void recordHole(long seq) {
+        if (seq <= highestHole) {
+            return;
+        }
+        highestHole = seq;
+        try {
+            ops.put(meta, holeKey, new Byte8Key(seq).current());
+        } catch (RuntimeException ignore) {
+            // the store is most likely broken anyway
+        }
+    }
+
+    /**
+     * A key that gets reserved or written while the {@code Tx} or
+     * {@code Batch} of an earlier reservation is still pending turns that
+     * reservation into a hole if the process dies before it completes. So
+     * the pending reservations are recorded as possible holes up front,
+     * which costs a write only while puts and open transactions overlap.
+     * Must be called while holding the put lock.
+     */
+    private void guardPendingReservations() {
+        for (Reservation r : reservations.descendingMap().values()) {
+            if (r.state == Reservation.PENDING) {
+                recordHole(r.seq + r.n - 1L);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Makes the {@code n} messages that have just been written from sequence
+     * {@code seq} on visible to consumers. If an enclosing {@code Tx} or
+     * {@code Batch} that has reserved an earlier sequence hasn't completed
+     * yet, they only become visible together with it, so that consumers
+     * never pass over a message that is still to come. Must be called while
+     * holding the put lock.
+     * 
+     * @return the count before the messages were made visible or -1 if
+     *         nothing became visible
+     */
+    private long publish(long seq, int n) {
+        if (reservations.isEmpty()) {
+            return count.getAndAdd(n);
+        }
+        Reservation r = new Reservation(seq, n, 0L);
+        r.state = Reservation.COMMITTED;
+        reservations.put(seq, r);
+        return publishReservations();
+    }
+
+    /**
+     * Makes all completed reservations in front of the first pending one
+     * visible. Must be called while holding the put lock.
+     */
+    private long publishReservations() {
+        long n = 0L;
+        Map.Entry<Long, Reservation> first;
+        while ((first = reservations.firstEntry()) != null && first.getValue().state != Reservation.PENDING) {
+            reservations.pollFirstEntry();
+            if (first.getValue().state == Reservation.COMMITTED) {
+                n += first.getValue().n;
+            }
+        }
+        return (n == 0L) ? -1L : count.getAndAdd(n);
+    }
+
+    /**
+     * Appends {@code value} as part of the enclosing transaction. The
+     * sequence number is reserved right away, but the message becomes
+     * visible to consumers only after {@code tx} has been committed. The
+     * transaction must be committed or rolled back eventually, until then
+     * messages put after it stay invisible as well.
+     */
+    @Override
+    public void put(Tx tx, byte[] value) {
+        Objects.requireNonNull(tx, "tx");
+        Objects.requireNonNull(value, "value");
+        Reservation r = reserve(Records.HEADER_LENGTH + value.length);
+        try {
+            tx.onCommit(() -> complete(r, true));
+            tx.onRollback(() -> complete(r, false));
+            tx.put(id, new Byte8Key(r.seq).current(), Records.encode((byte) 0, System.currentTimeMillis(), value));
+        } catch (Throwable t) {
+            complete(r, false);
+            throw t;
+        }
+    }
+
+    /**
+     * Appends {@code value} as part of the enclosing batch. The sequence
+     * number is reserved right away, but the message becomes visible to
+     * consumers only after {@code batch} has been written. The batch must be
+     * written or closed eventually, until then messages put after it stay
+     * invisible as well.
+     */
+    @Override
+    public void put(Batch batch, byte[] value) {
+        Objects.requireNonNull(batch, "batch");
+        Objects.requireNonNull(value, "value");
+        Reservation r = reserve(Records.HEADER_LENGTH + value.length);
+        try {
+            batch.onCommit(() -> complete(r, true));
+            batch.onRollback(() -> complete(r, false));
+            batch.put(id, new Byte8Key(r.seq).current(), Records.encode((byte) 0, System.currentTimeMillis(), value));
+        } catch (Throwable t) {
+            complete(r, false);
+            throw t;
+        }
+    }
+
+    private Reservation reserve(long bytes) {
+        lockPut();
+        try {
+            if (!hasRoomLocked(1, bytes)) {
+                throw new IllegalStateException(identifier() + " is full (" + capacity + ")");
+            }
+            guardPendingReservations();
+            Reservation r = new Reservation(maxKey.currentValue(), 1, bytes);
+            added(1, bytes);
+            maxKey.increment();
+            reservations.put(r.seq, r);
+            return r;
+        } finally {
+            unlockPut();
+        }
+    }
+
+    /**
+     * Completes a reservation after the enclosing {@code Tx} or {@code Batch}
+     * has been committed or rolled back. A rolled back reservation leaves a
+     * hole.
+     */
+    private void complete(Reservation r, boolean committed) {
         long c = -1L;
-        ReentrantLock takeLock = this.takeLock;
-        AtomicLong count = this.count;
-        takeLock.lock();
+        lockPut();
         try {
-            while (count.get() == 0L) {
-                notEmpty.await();
+            if (r.state != Reservation.PENDING) {
+                return;
             }
-            value = ops.singleDeleteIfPresent(id, minKey.current());
-            if (value != null) {
-                c = count.getAndDecrement();
-                ++totalTakes;
+            r.state = committed ? Reservation.COMMITTED : Reservation.ROLLED_BACK;
+            if (reservations.get(r.seq) != r) {
+                // the queue has been cleared in the meantime
+                if (committed) {
+                    ops.deleteRange(id, new Byte8Key(r.seq).current(), new Byte8Key(r.seq + r.n).current());
+                }
+                return;
             }
-            minKey.increment();
-            if (c > 1L) {
-                // signal other waiting takers
-                notEmpty.signal();
+            if (committed) {
+                totalPuts += r.n;
+            } else {
+                recordHole(r.seq + r.n - 1L);
+                released(r.n, r.bytes);
             }
+            c = publishReservations();
         } finally {
-            takeLock.unlock();
+            unlockPut();
+        }
+        if (c == 0L) {
+            signalNotEmpty();
+        }
+        if (c >= 0L) {
+            signalSubscribers();
         }
-        return value;
     }
 
+    /**
+     * Appends all {@code values} with a single {@code WriteBatch} (one WAL
+     * record) under a single acquisition of the put lock.
+     * 
+     * @throws IllegalStateException
+     *             if not all values fit into the queue's capacity (nothing
+     *             gets appended in that case)
+     */
     @Override
-    public byte[] take(long timeout, TimeUnit unit) throws InterruptedException {
-        byte[] value;
+    public void putAll(List<byte[]> values) {
+        Objects.requireNonNull(values, "values");
+        int n = values.size();
+        if (n == 0) {
+            return;
+        }
+        long size = 0L;
+        for (byte[] value : values) {
+            size += Records.HEADER_LENGTH + Objects.requireNonNull(value, "value").length;
+        }
         long c = -1L;
-        long nanos = unit.toNanos(timeout);
-        ReentrantLock takeLock = this.takeLock;
-        AtomicLong count = this.count;
-        takeLock.lockInterruptibly();
+        lockPut();
+        long maxKeyBefore = maxKey.currentValue();
         try {
-            while (count.get() == 0L) {
-                if (nanos <= 0L) {
-                    return null;
+            if (!hasRoomLocked(n, size)) {
+                throw new IllegalStateException(identifier() + " has no room for " + n + " messages (" + capacity + ")");
+            }
+            guardPendingReservations();
+            try (Batch batch = ops.createBatch()) {
+                long now = System.currentTimeMillis();
+                for (byte[] value : values) {
+                    batch.put(id, maxKey.next(), Records.encode((byte) 0, now, value));
                 }
-                nanos = notEmpty.awaitNanos(nanos);
+                ops.writeBatch(batch);
             }
-            value = ops.singleDeleteIfPresent(id, minKey.current());
-            if (value != null) {
-                c = count.getAndDecrement();
-                ++totalTakes;
+            added(n, size);
+            c = publish(maxKeyBefore, n);
+            totalPuts += n;
+        } catch (Throwable t) {
+            if (maxKey.currentValue() == maxKeyBefore) {
+                // nothing has been reserved
+                throw t;
             }
-            minKey.increment();
-            if (c > 1L) {
-                // signal other waiting takers
-                notEmpty.signal();
+            maxKey = new Byte8Key(maxKeyBefore + n);
+            if (failedPut(maxKeyBefore, n, size) == 0L) {
+                signalNotEmpty();
             }
+            throw t;
         } finally {
-            takeLock.unlock();
+            unlockPut();
         }
-        return value;
+        if (c == 0L) {
+            signalNotEmpty();
+        }
+        signalSubscribers();
     }
 
+    /**
+     * Appends all {@code values} as a single packed record under a single
+     * key, which saves RocksDB's per-key overhead for small messages. The
+     * messages still get a sequence number of their own and consumers
+     * unpack them transparently. Acknowledgements and dead-lettering of the
+     * messages of a packed record are only tracked in memory until the
+     * whole record has been consumed, they might be redelivered after a
+     * restart.
+     * 
+     * @throws IllegalStateException
+     *             if not all values fit into the queue's capacity (nothing
+     *             gets appended in that case)
+     */
     @Override
-    public boolean accept(KueueMsgConsumer consumer) {
-        if (consumer == null) {
-            return false;
+    public void putPacked(List<byte[]> values) {
+        Objects.requireNonNull(values, "values");
+        int n = values.size();
+        if (n == 0) {
+            return;
         }
-        if (count.get() == 0L) {
-            return false;
+        long size = 0L;
+        for (byte[] value : values) {
+            size += Records.HEADER_LENGTH + Objects.requireNonNull(value, "value").length;
         }
-        ReentrantLock takeLock = this.takeLock;
-        takeLock.lock();
+        long c = -1L;
+        lockPut();
+        long seq = maxKey.currentValue();
         try {
-            byte[] key = minKey.current();
-            byte[] msg = ops.get(id, key);
-            if (msg != null) {
-                if (consumer.accept(msg)) {
-                    ops.singleDelete(id, key);
-                    if (count.getAndDecrement() > 1L) {
-                        // signal other waiting takers
-                        notEmpty.signal();
-                    }
-                    minKey.increment();
-                    ++totalTakes;
-                    return true;
-                }
+            if (!hasRoomLocked(n, size)) {
+                throw new IllegalStateException(identifier() + " has no room for " + n + " messages (" + capacity + ")");
+            }
+            guardPendingReservations();
+            if (packedFrom == Long.MAX_VALUE) {
+                ops.put(meta, packedKey, maxKey.current());
+                packedFrom = seq;
+            }
+            byte[] record = Records.pack(System.currentTimeMillis(), values);
+            // the messages after the first one occupy sequences without keys
+            maxKey = new Byte8Key(seq + n);
+            ops.put(id, new Byte8Key(seq).current(), record);
+            added(n, size);
+            c = publish(seq, n);
+            totalPuts += n;
+        } catch (Throwable t) {
+            if (maxKey.currentValue() == seq) {
+                // nothing has been reserved
+                throw t;
             }
+            if (failedPut(seq, n, size) == 0L) {
+                signalNotEmpty();
+            }
+            throw t;
         } finally {
-            takeLock.unlock();
+            unlockPut();
         }
-        return false;
+        if (c == 0L) {
+            signalNotEmpty();
+        }
+        signalSubscribers();
     }
 
     @Override
-    public boolean accept(long timeout, TimeUnit unit, KueueMsgConsumer consumer) throws InterruptedException {
-        if (consumer == null) {
-            return false;
+    public byte[] take() throws InterruptedException {
+        byte[] record;
+        long start = System.nanoTime();
+        lockTake();
+        try {
+            while ((record = liveHead()) == null) {
+                notEmpty.await();
+            }
+            waited(start);
+            return removeHead(record);
+        } finally {
+            unlockTake();
         }
+    }
+
+    @Override
+    public byte[] take(long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] record;
+        long start = System.nanoTime();
         long nanos = unit.toNanos(timeout);
-        ReentrantLock takeLock = this.takeLock;
-        AtomicLong count = this.count;
-        takeLock.lockInterruptibly();
+        lockTakeInterruptibly();
         try {
-            while (count.get() == 0L) {
+            while ((record = liveHead()) == null) {
                 if (nanos <= 0L) {
-                    return false;
+                    return null;
                 }
                 nanos = notEmpty.awaitNanos(nanos);
             }
-            byte[] key = minKey.current();
-            byte[] msg = ops.get(id, key);
-            if (msg != null) {
-                if (consumer.accept(msg)) {
-                    ops.singleDelete(id, key);
-                    if (count.getAndDecrement() > 1L) {
-                        // signal other waiting takers
-                        notEmpty.signal();
-                    }
-                    minKey.increment();
-                    ++totalTakes;
-                    return true;
-                }
-            }
+            waited(start);
+            return removeHead(record);
         } finally {
-            takeLock.unlock();
+            unlockTake();
         }
-        return false;
     }
 
-    @Override
-    public void clear() {
-        fullyLock();
+    /**
+     * Removes the head message if there is one, without waiting.
+     */
+    /* package */ byte[] tryTake() {
+        if (count.get() == 0L) {
+            return null;
+        }
+        lockTake();
         try {
-            AtomicLong count = this.count;
-            while (count.get() > 0L) {
-                ops.singleDelete(id, minKey.current());
-                count.getAndDecrement();
-                ++totalTakes;
-                minKey.increment();
+            byte[] record = liveHead();
+            return (record == null) ? null : removeHead(record);
+        } finally {
+            unlockTake();
+        }
+    }
+
+    /**
+     * Removes the head message whose record has just been returned by
+     * {@link #liveHead()} and returns its payload. Must be called while
+     * holding the take lock.
+     */
+    private byte[] removeHead(byte[] record) {
+        long seq = minKey.currentValue();
+        advanceHead(seq + 1L);
+        dequeued(seq, record, System.currentTimeMillis());
+        released(1, record.length);
+        ++totalTakes;
+        if (count.getAndDecrement() > 1L) {
+            // signal other waiting takers
+            notEmpty.signal();
+        }
+        return payload(seq, record);
+    }
+
+    /**
+     * Waits up to the specified wait time for at least one message and then
+     * removes up to {@code maxMessages} messages in one go.
+     * 
+     * @return the messages taken (in FIFO order), an empty list if the wait
+     *         time elapsed before a message became available
+     */
+    @Override
+    public List<byte[]> takeBatch(int maxMessages, long timeout, TimeUnit unit) throws InterruptedException {
+        if (maxMessages <= 0) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        long nanos = unit.toNanos(timeout);
+        ArrayList<byte[]> values = new ArrayList<>(Math.min(maxMessages, 1_024));
+        AtomicLong count = this.count;
+        lockTakeInterruptibly();
+        try {
+            while (count.get() == 0L) {
+                if (nanos <= 0L) {
+                    return values;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
             }
+            waited(start);
+            removeRange(values, maxMessages);
+        } finally {
+            unlockTake();
+        }
+        return values;
+    }
+
+    /**
+     * Removes up to {@code maxMessages} available messages without waiting
+     * and adds them to the given collection.
+     * 
+     * @return the number of messages transferred
+     */
+    @Override
+    public int drainTo(Collection<? super byte[]> c, int maxMessages) {
+        Objects.requireNonNull(c, "c");
+        if (maxMessages <= 0 || count.get() == 0L) {
+            return 0;
+        }
+        ArrayList<byte[]> values = new ArrayList<>(Math.min(maxMessages, 1_024));
+        lockTake();
+        try {
+            removeRange(values, maxMessages);
+        } finally {
+            unlockTake();
+        }
+        c.addAll(values);
+        return values.size();
+    }
+
+    /**
+     * Reads the next {@code min(size(), maxMessages)} messages with a single
+     * range scan (unpacking packed records), commits the new offset and
+     * removes the consumed region with a single {@code deleteRange}. A scan
+     * stops at the first expired message, which {@link #liveHead()} then
+     * dead-letters before the next scan continues behind it. Must be called
+     * while holding the take lock.
+     */
+    private void removeRange(ArrayList<byte[]> values, int maxMessages) {
+        DeadLetterPolicy policy = deadLetterPolicy;
+        while (values.size() < maxMessages && liveHead() != null) {
+            int taken = values.size();
+            long from = minKey.currentValue();
+            long nextMin = from + Math.min(count.get(), maxMessages - taken);
+            long now = System.currentTimeMillis();
+            long[] end = { nextMin };
+            long[] bytes = { 0L };
+            scanMessages(from, nextMin, (seq, record) -> {
+                if (seq >= end[0]) {
+                    return;
+                }
+                if (policy.expires() && isExpired(seq, record, policy, now)) {
+                    end[0] = seq;
+                    return;
+                }
+                dequeued(seq, record, now);
+                bytes[0] += record.length;
+                values.add(payload(seq, record));
+            });
+            int removed = values.size() - taken;
+            if (end[0] > from) {
+                advanceHead(end[0], true);
+                truncateHead();
+            }
+            released(removed, bytes[0]);
+            count.getAndAdd(-removed);
+            totalTakes += removed;
+            if (end[0] == nextMin) {
+                break;
+            }
+        }
+        if (!values.isEmpty() && count.get() > 0L) {
+            // signal other waiting takers
+            notEmpty.signal();
+        }
+    }
+
+    @Override
+    public boolean accept(KueueMsgConsumer consumer) {
+        if (consumer == null) {
+            return false;
+        }
+        if (count.get() == 0L) {
+            return false;
+        }
+        lockTake();
+        try {
+            byte[] record = liveHead();
+            if (record != null) {
+                long seq = minKey.currentValue();
+                if (consumer.accept(payload(seq, record))) {
+                    removeHead(record);
+                    return true;
+                }
+                rejected(seq, record);
+            }
+        } finally {
+            unlockTake();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean accept(long timeout, TimeUnit unit, KueueMsgConsumer consumer) throws InterruptedException {
+        if (consumer == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        long nanos = unit.toNanos(timeout);
+        AtomicLong count = this.count;
+        lockTakeInterruptibly();
+        try {
+            while (count.get() == 0L) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            waited(start);
+            byte[] record = liveHead();
+            if (record != null) {
+                long seq = minKey.currentValue();
+                if (consumer.accept(payload(seq, record))) {
+                    removeHead(record);
+                    return true;
+                }
+                rejected(seq, record);
+            }
+        } finally {
+            unlockTake();
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        fullyLock();
+        try {
+            AtomicLong count = this.count;
+            long c = count.get();
+            totalTakes += inFlight.size();
+            // messages of still pending transactions are cleared as well
+            reservations.clear();
+            inFlight.clear();
+            redeliver.clear();
+            expiries.clear();
+            if (c > 0L || persistedOffset < maxKey.currentValue()) {
+                advanceHead(maxKey.currentValue(), true);
+                truncateHead();
+                count.addAndGet(-c);
+                totalTakes += c;
+            }
+            held.set(0L);
+            heldBytes.set(0L);
         } finally {
             fullyUnlock();
         }
+        signalNotFull();
+    }
+
+    /**
+     * Reads the message at the head, moving the head past any holes left by
+     * failed puts. Above the highest hole the keys are dense, so a single
+     * point lookup suffices in the normal case. Must be called while holding
+     * the take lock.
+     */
+    private byte[] readHead() {
+        byte[] value = messageAt(minKey.currentValue());
+        long hole = highestHole;
+        if (value == null && minKey.currentValue() <= hole) {
+            byte[] end = new Byte8Key(hole + 1L).current();
+            byte[][] next = new byte[2][];
+            try (ForEachKeyValue it = ops.scanRange(id, minKey.current(), end)) {
+                it.tryAdvance((k, v) -> {
+                    next[0] = k;
+                    next[1] = v;
+                });
+            }
+            if (next[0] != null) {
+                minKey = new Byte8Key(next[0]);
+                value = message(minKey.currentValue(), next[1]);
+            } else {
+                minKey = new Byte8Key(end);
+                value = messageAt(hole + 1L);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the record at the head after dead-lettering the expired
+     * messages in front of it, or {@code null} if the queue is empty. Only
+     * the head needs to be checked for expiry: the records are appended in
+     * timestamp order, so the expired messages always form a prefix of the
+     * queue. Must be called while holding the take lock.
+     */
+    private byte[] liveHead() {
+        DeadLetterPolicy policy = deadLetterPolicy;
+        long now = policy.expires() ? System.currentTimeMillis() : 0L;
+        while (count.get() > 0L) {
+            byte[] record = readHead();
+            long seq = minKey.currentValue();
+            if (record == null) {
+                // shouldn't happen: count and keys disagree, skip the gap.
+                // The size of the missing message is unknown, so the byte
+                // size gets measured again like after a recovery
+                advanceHead(seq + 1L);
+                count.decrementAndGet();
+                released(1, 0L);
+                bytesMeasured = false;
+            } else if (policy.expires() && isExpired(seq, record, policy, now)) {
+                deadLetterHead(seq, record);
+            } else {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts a rejection of the head message by {@code accept} and
+     * dead-letters the message once it has been delivered too often. Must be
+     * called while holding the take lock.
+     */
+    private void rejected(long seq, byte[] record) {
+        if (seq != rejectedSeq) {
+            rejectedSeq = seq;
+            rejections = 0;
+        }
+        if (deadLetterPolicy.exhausted(++rejections)) {
+            deadLetterHead(seq, record);
+            if (count.get() > 0L) {
+                // let other waiting takers see the next message
+                notEmpty.signal();
+            }
+        }
+    }
+
+    private void deadLetterHead(long seq, byte[] record) {
+        deadLetter(seq, record);
+        advanceHead(seq + 1L);
+        count.decrementAndGet();
+    }
+
+    /**
+     * Removes the message {@code seq} and appends it to the dead-letter
+     * queue with a single {@code WriteBatch} (if there is no dead-letter
+     * queue the message is just removed). The removed key is recorded as a
+     * hole in the same batch, so that recovery doesn't count it. A message
+     * of a packed record has no key of its own, it is removed along with the
+     * packed record once all of the record's messages have been consumed.
+     * Must be called while holding the take lock.
+     */
+    private void deadLetter(long seq, byte[] record) {
+        boolean member = seq >= packedFrom && Records.isMember(record);
+        long hole = member ? highestHole : Math.max(highestHole, seq);
+        try (Batch batch = ops.createBatch()) {
+            if (!member) {
+                batch.delete(id, new Byte8Key(seq).current());
+                batch.put(meta, holeKey, new Byte8Key(hole).current());
+            }
+            KueueImpl target = deadLetters;
+            if (target != null) {
+                target.putDeadLetter(batch, payload(seq, record));
+            } else {
+                ops.writeBatch(batch);
+            }
+        }
+        highestHole = hole;
+        ++totalDeadLettered;
+        released(1, record.length);
+    }
+
+    /**
+     * Appends a message dead-lettered by another queue as part of that
+     * queue's {@code batch}, so that the move is atomic.
+     */
+    /* package */ void putDeadLetter(Batch batch, byte[] value) {
+        long c = -1L;
+        lockPut();
+        long seq = maxKey.currentValue();
+        try {
+            batch.put(id, maxKey.next(), Records.encode(Records.DEAD_LETTER, System.currentTimeMillis(), value));
+            ops.writeBatch(batch);
+            added(1, Records.HEADER_LENGTH + value.length);
+            c = publish(seq, 1);
+            ++totalPuts;
+        } catch (Throwable t) {
+            if (failedPut(seq, 1, Records.HEADER_LENGTH + value.length) == 0L) {
+                signalNotEmpty();
+            }
+            throw t;
+        } finally {
+            unlockPut();
+        }
+        if (c == 0L) {
+            signalNotEmpty();
+        }
+        signalSubscribers();
+    }
+
+    private boolean isExpired(long seq, byte[] record, DeadLetterPolicy policy, long now) {
+        return seq >= recordsFrom && policy.expired(now - Records.timestamp(record));
+    }
+
+    /**
+     * Strips the header from the record stored under {@code seq} (unless it
+     * predates the header format).
+     */
+    private byte[] payload(long seq, byte[] record) {
+        return (record == null || seq < recordsFrom) ? record : Records.payload(record);
+    }
+
+    /**
+     * Returns the record of the message {@code seq} (unpacked if the message
+     * is part of a packed record) or {@code null} if there is none.
+     */
+    private byte[] messageAt(long seq) {
+        Pack p = pack;
+        if (p != null && p.covers(seq)) {
+            return p.member(seq);
+        }
+        byte[] record = ops.get(id, new Byte8Key(seq).current());
+        if (record == null) {
+            p = packCovering(seq);
+            return (p == null) ? null : p.member(seq);
+        }
+        return message(seq, record);
+    }
+
+    /**
+     * Returns the first message of the record stored under {@code seq} if it
+     * is a packed record, otherwise the record itself.
+     */
+    private byte[] message(long seq, byte[] record) {
+        if (seq >= packedFrom && Records.isPacked(record)) {
+            Pack p = new Pack(seq, record);
+            pack = p;
+            return p.member(seq);
+        }
+        return record;
+    }
+
+    /**
+     * Returns the packed record that contains the message {@code seq} as one
+     * of the messages without a key of their own or {@code null} if there is
+     * no such record. Costs a seek unless the record is the cached one.
+     */
+    private Pack packCovering(long seq) {
+        if (seq <= packedFrom) {
+            return null;
+        }
+        Pack p = pack;
+        if (p != null && p.covers(seq)) {
+            return (p.seq < seq) ? p : null;
+        }
+        byte[] key = ops.findMaxKeyByUpperBound(id, new Byte8Key(seq).current());
+        if (key != null) {
+            long start = new Byte8Key(key).currentValue();
+            byte[] record = (start >= packedFrom) ? ops.get(id, key) : null;
+            if (record != null && Records.isPacked(record)) {
+                p = new Pack(start, record);
+                if (p.covers(seq)) {
+                    pack = p;
+                    return p;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visits the messages in {@code [from, to)} in order, unpacking packed
+     * records (including one that starts below {@code from}).
+     */
+    private void scanMessages(long from, long to, RecordVisitor visitor) {
+        long next = from;
+        Pack p = packCovering(from);
+        if (p != null) {
+            next = Math.min(p.end(), to);
+            for (long seq = from; seq < next; ++seq) {
+                visitor.visit(seq, p.member(seq));
+            }
+        }
+        if (next >= to) {
+            return;
+        }
+        long packedFrom = this.packedFrom;
+        try (ForEachKeyValue it = ops.scanRange(id, new Byte8Key(next).current(), new Byte8Key(to).current())) {
+            it.forEachRemaining((k, v) -> {
+                long seq = new Byte8Key(k).currentValue();
+                if (seq >= packedFrom && Records.isPacked(v)) {
+                    Pack q = new Pack(seq, v);
+                    long end = Math.min(q.end(), to);
+                    for (long s = seq; s < end; ++s) {
+                        visitor.visit(s, q.member(s));
+                    }
+                } else {
+                    visitor.visit(seq, v);
+                }
+            });
+        }
+    }
+
+    @Override
+    public DeadLetterPolicy getDeadLetterPolicy() {
+        return deadLetterPolicy;
+    }
+
+    /**
+     * Sets the dead-letter settings. A dead-letter queue can't have a
+     * dead-letter queue of its own (this keeps the lock order acyclic).
+     */
+    @Override
+    public void setDeadLetterPolicy(DeadLetterPolicy policy) {
+        Objects.requireNonNull(policy, "policy");
+        KueueImpl target = null;
+        String name = policy.getDeadLetterKueue();
+        if (name != null) {
+            if (name.equals(identifier())) {
+                throw new IllegalArgumentException("A Kueue can't be its own dead-letter queue: " + name);
+            }
+            if (manager == null) {
+                throw new IllegalStateException("No KueueManager to resolve " + name);
+            }
+            target = (KueueImpl) manager.get(name);
+            if (target.deadLetters != null || deadLetterSources.get() > 0) {
+                throw new IllegalArgumentException("Dead-letter queues can't be chained: " + identifier() + " -> " + name);
+            }
+        }
+        lockTake();
+        try {
+            KueueImpl previous = deadLetters;
+            if (target != null) {
+                target.deadLetterSources.incrementAndGet();
+            }
+            if (previous != null) {
+                previous.deadLetterSources.decrementAndGet();
+            }
+            deadLetters = target;
+            deadLetterPolicy = policy;
+        } finally {
+            unlockTake();
+        }
+    }
+
+    @Override
+    public long totalDeadLettered() {
+        return totalDeadLettered;
+    }
+
+    private void advanceHead(long nextMin) {
+        advanceHead(nextMin, false);
+    }
+
+    /**
+     * Moves the queue head to {@code nextMin}. The consumer offset gets
+     * committed before the head moves, so that a failed write leaves the
+     * queue unchanged. Everything below the persisted offset counts as
+     * consumed, even if it hasn't been physically removed yet. Consumed
+     * messages are removed in bulk by periodic range deletes. Must be called
+     * while holding the take lock.
+     * 
+     * @param commit
+     *            whether the offset must be persisted right away (otherwise
+     *            it is persisted every {@link #OFFSET_COMMIT_INTERVAL}
+     *            messages)
+     */
+    private void advanceHead(long nextMin, boolean commit) {
+        commitOffset(nextMin, commit);
+        minKey = new Byte8Key(nextMin);
+        headSeq = nextMin;
+        if (persistedOffset - truncatedTo.currentValue() >= TRUNCATE_INTERVAL) {
+            truncateHead();
+        }
+    }
+
+    /**
+     * Persists the smallest sequence that is neither consumed nor
+     * acknowledged for the queue head {@code head}, but only if
+     * {@code force} is set or the offset has moved by at least
+     * {@link #OFFSET_COMMIT_INTERVAL} since it has been persisted last.
+     * Everything at or above the persisted offset gets delivered again after
+     * a crash, so this bounds the redeliveries of taken messages without
+     * paying a write per message. An outstanding lease pins the offset, so
+     * messages taken after it are redelivered too (see {@link Kueue}). Must
+     * be called while holding the take lock.
+     */
+    private void commitOffset(long head, boolean force) {
+        long offset = head;
+        if (!inFlight.isEmpty()) {
+            offset = Math.min(offset, inFlight.firstKey());
+        }
+        if (offset != persistedOffset && (force || persistedOffset == Long.MIN_VALUE
+                || offset - persistedOffset >= OFFSET_COMMIT_INTERVAL)) {
+            ops.put(meta, offsetKey, new Byte8Key(offset).current());
+            persistedOffset = offset;
+        }
+    }
+
+    /**
+     * Persists the current consumer offset, so that a clean shutdown doesn't
+     * deliver any consumed message again.
+     */
+    /* package */ void checkpoint() {
+        lockTake();
+        try {
+            commitOffset(minKey.currentValue(), true);
+        } finally {
+            unlockTake();
+        }
+    }
+
+    /**
+     * Range-deletes the consumed head region and occasionally schedules a
+     * compaction of it, so that reads at the head don't have to skip over
+     * large numbers of tombstones. A failed range delete is only logged, it
+     * gets retried with the next truncation. Must be called while holding the
+     * take lock.
+     */
+    private void truncateHead() {
+        long offset = persistedOffset;
+        Pack p = packCovering(offset);
+        if (p != null) {
+            // keep a partially consumed packed record
+            offset = p.seq;
+        }
+        if (offset <= truncatedTo.currentValue()) {
+            return;
+        }
+        byte[] end = new Byte8Key(offset).current();
+        try {
+            ops.deleteRange(id, truncatedTo.current(), end);
+        } catch (StoreException e) {
+            logger.log(Level.WARNING, "truncating the head of " + identifier() + " failed", e);
+            return;
+        }
+        truncatedTo = new Byte8Key(offset);
+        if (++truncations >= COMPACT_INTERVAL) {
+            truncations = 0;
+            if (manager != null) {
+                manager.compactAsync(id, Byte8Key.minKey(), end);
+            }
+        }
+    }
+
+    @Override
+    public KueueLease poll(long visibilityTimeout, TimeUnit unit) {
+        long visibilityNanos = unit.toNanos(visibilityTimeout);
+        lockTake();
+        try {
+            return lease(visibilityNanos);
+        } finally {
+            unlockTake();
+        }
+    }
+
+    @Override
+    public KueueLease poll(long timeout, long visibilityTimeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long nanos = unit.toNanos(timeout);
+        long visibilityNanos = unit.toNanos(visibilityTimeout);
+        lockTakeInterruptibly();
+        try {
+            KueueLease lease;
+            while ((lease = lease(visibilityNanos)) == null) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                long waitNanos = nanos;
+                Expiry next = expiries.peek();
+                if (next != null) {
+                    // wake up when the next lease expires
+                    waitNanos = Math.min(waitNanos, Math.max(next.deadline - System.nanoTime(), 0L) + 1L);
+                }
+                nanos -= waitNanos - notEmpty.awaitNanos(waitNanos);
+            }
+            waited(start);
+            return lease;
+        } finally {
+            unlockTake();
+        }
+    }
+
+    @Override
+    public long inFlightCount() {
+        lockTake();
+        try {
+            expireLeases();
+            return inFlight.size() - redeliver.size();
+        } finally {
+            unlockTake();
+        }
+    }
+
+    @Override
+    public KueueMetrics getMetrics() {
+        long inFlight;
+        lockTake();
+        try {
+            expireLeases();
+            inFlight = this.inFlight.size() - redeliver.size();
+        } finally {
+            unlockTake();
+        }
+        return new KueueMetrics(identifier(), size(), inFlight, totalPuts, totalTakes, totalDeadLettered,
+                oldestMessageAgeMillis(), timeInQueueMillis.snapshot(), consumerWaitNanos.snapshot(),
+                putLockHoldNanos.snapshot(), takeLockHoldNanos.snapshot());
+    }
+
+    /**
+     * Returns the age of the first pending message from its stored timestamp
+     * without acquiring the take lock (-1 if it has no timestamp).
+     */
+    private long oldestMessageAgeMillis() {
+        if (count.get() == 0L) {
+            return 0L;
+        }
+        try (CursorImpl cursor = cursor(headSeq, 1)) {
+            if (!cursor.next()) {
+                return 0L;
+            }
+            return (cursor.sequence() < recordsFrom) ? -1L
+                    : Math.max(0L, System.currentTimeMillis() - Records.timestamp(cursor.record));
+        }
+    }
+
+    @Override
+    public byte[] peek() {
+        try (KueueCursor cursor = browse(headSeq, 1)) {
+            return cursor.next() ? cursor.value() : null;
+        }
+    }
+
+    /**
+     * Returns a cursor over at most {@code limit} pending messages starting
+     * at {@code fromSequence} (or at the head if {@code fromSequence} has
+     * already been consumed). Doesn't acquire the take lock.
+     */
+    @Override
+    public KueueCursor browse(long fromSequence, int limit) {
+        return cursor(Math.max(fromSequence, headSeq), limit);
+    }
+
+    private CursorImpl cursor(long from, int limit) {
+        if (limit <= 0 || from < 0L) {
+            return new CursorImpl(null, 0, recordsFrom, packedFrom, null, from);
+        }
+        Pack p = packCovering(from);
+        long scanFrom = (p == null) ? from : p.end();
+        return new CursorImpl(ops.scanAll(id, new Byte8Key(scanFrom).current()), limit, recordsFrom, packedFrom, p,
+                from);
+    }
+
+    /**
+     * Returns the pending message with the given sequence number or
+     * {@code null} if there is no such message. Doesn't acquire the take
+     * lock.
+     */
+    @Override
+    public byte[] get(long sequence) {
+        if (sequence < headSeq) {
+            return null;
+        }
+        return payload(sequence, messageAt(sequence));
+    }
+
+    /**
+     * Leases the oldest redeliverable message or, if there is none, the next
+     * new message. Must be called while holding the take lock.
+     */
+    private KueueLease lease(long visibilityNanos) {
+        expireLeases();
+        DeadLetterPolicy policy = deadLetterPolicy;
+        while (!redeliver.isEmpty()) {
+            Delivery d = inFlight.get(redeliver.pollFirst());
+            byte[] record = messageAt(d.seq);
+            if (record != null) {
+                if (!policy.exhausted(d.deliveries)
+                        && !(policy.expires() && isExpired(d.seq, record, policy, System.currentTimeMillis()))) {
+                    return d.lease(payload(d.seq, record), visibilityNanos);
+                }
+                deadLetter(d.seq, record);
+            } else {
+                released(1, d.bytes);
+            }
+            inFlight.remove(d.seq);
+            commitOffset(minKey.currentValue(), false);
+        }
+        byte[] record = liveHead();
+        if (record == null) {
+            return null;
+        }
+        long seq = minKey.currentValue();
+        minKey.increment();
+        headSeq = seq + 1L;
+        dequeued(seq, record, System.currentTimeMillis());
+        long c = count.getAndDecrement();
+        Delivery d = new Delivery(seq, record.length);
+        inFlight.put(seq, d);
+        if (c > 1L) {
+            // signal other waiting takers
+            notEmpty.signal();
+        }
+        return d.lease(payload(seq, record), visibilityNanos);
+    }
+
+    /**
+     * Makes all messages whose lease has expired available for redelivery.
+     * Must be called while holding the take lock.
+     */
+    private void expireLeases() {
+        long now = System.nanoTime();
+        Expiry e;
+        while ((e = expiries.peek()) != null && e.deadline - now <= 0L) {
+            expiries.poll();
+            if (e.isCurrent()) {
+                e.delivery.generation++;
+                redeliver.add(e.delivery.seq);
+            }
+        }
+    }
+
+    private boolean ack(LeaseImpl lease) {
+        lockTake();
+        try {
+            expireLeases();
+            if (!lease.isCurrent()) {
+                return false;
+            }
+            Delivery d = lease.delivery;
+            inFlight.remove(d.seq);
+            d.generation++;
+            ++totalTakes;
+            released(1, d.bytes);
+            commitOffset(minKey.currentValue(), false);
+            return true;
+        } finally {
+            unlockTake();
+        }
+    }
+
+    private boolean nack(LeaseImpl lease) {
+        lockTake();
+        try {
+            expireLeases();
+            if (!lease.isCurrent()) {
+                return false;
+            }
+            lease.delivery.generation++;
+            redeliver.add(lease.delivery.seq);
+            notEmpty.signalAll();
+        } finally {
+            unlockTake();
+        }
+        signalSubscribers();
+        return true;
+    }
+
+    @Override
+    public KueueSubscription subscribe(KueueMsgConsumer consumer, Executor executor, int maxInFlight) {
+        return subscribe(consumer, executor, maxInFlight, KueueSubscriptionImpl.VISIBILITY_TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public KueueSubscription subscribe(KueueMsgConsumer consumer, Executor executor, int maxInFlight,
+            long visibilityTimeout, TimeUnit unit) {
+        KueueSubscriptionImpl subscription = new KueueSubscriptionImpl(this, consumer, executor, maxInFlight,
+                visibilityTimeout, unit);
+        addSubscription(subscription);
+        subscription.signal();
+        return subscription;
+    }
+
+    /* package */ void addSubscription(KueueSubscriptionImpl subscription) {
+        subscriptions.add(subscription);
+    }
+
+    @Override
+    public void unsubscribe(KueueSubscriptionImpl subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Leases up to {@code maxMessages} messages with a single acquisition of
+     * the take lock.
+     */
+    @Override
+    public void pollBatch(int maxMessages, long visibilityNanos, List<KueueLease> leases) {
+        lockTake();
+        try {
+            KueueLease lease;
+            for (int i = 0; i < maxMessages && (lease = lease(visibilityNanos)) != null; ++i) {
+                leases.add(lease);
+            }
+        } finally {
+            unlockTake();
+        }
+    }
+
+    @Override
+    public boolean hasMessages() {
+        if (count.get() > 0L) {
+            return true;
+        }
+        lockTake();
+        try {
+            expireLeases();
+            return !redeliver.isEmpty();
+        } finally {
+            unlockTake();
+        }
+    }
+
+    private void signalSubscribers() {
+        for (KueueSubscriptionImpl subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    private boolean extend(LeaseImpl lease, long visibilityNanos) {
+        lockTake();
+        try {
+            expireLeases();
+            if (!lease.isCurrent()) {
+                return false;
+            }
+            Delivery d = lease.delivery;
+            d.deadline = System.nanoTime() + visibilityNanos;
+            expiries.add(new Expiry(d));
+            return true;
+        } finally {
+            unlockTake();
+        }
+    }
+
+    /** The in-flight state of a leased message (guarded by the take lock) */
+    private final class Delivery {
+        final long seq;
+        final int bytes;
+        int deliveries;
+        int generation;
+        long deadline;
+
+        Delivery(long seq, int bytes) {
+            this.seq = seq;
+            this.bytes = bytes;
+        }
+
+        LeaseImpl lease(byte[] value, long visibilityNanos) {
+            ++deliveries;
+            ++generation;
+            deadline = System.nanoTime() + visibilityNanos;
+            expiries.add(new Expiry(this));
+            return new LeaseImpl(this, value);
+        }
+    }
+
+    /** A sequence range of the queue whose visibility is deferred (guarded by the put lock) */
+    private static final class Reservation {
+        static final int PENDING = 0;
+        static final int COMMITTED = 1;
+        static final int ROLLED_BACK = 2;
+
+        final long seq;
+        final int n;
+        final long bytes;
+        int state;
+
+        Reservation(long seq, int n, long bytes) {
+            this.seq = seq;
+            this.n = n;
+            this.bytes = bytes;
+        }
+    }
+
+    private final class Expiry implements Comparable<Expiry> {
+        final Delivery delivery;
+        final int generation;
+        final long deadline;
+
+        Expiry(Delivery delivery) {
+            this.delivery = delivery;
+            this.generation = delivery.generation;
+            this.deadline = delivery.deadline;
+        }
+
+        boolean isCurrent() {
+            return inFlight.get(delivery.seq) == delivery && delivery.generation == generation
+                    && delivery.deadline == deadline;
+        }
+
+        @Override
+        public int compareTo(Expiry other) {
+            return Long.compare(deadline - other.deadline, 0L);
+        }
+    }
+
+    /** Receives the messages of a range scan */
+    private interface RecordVisitor {
+        void visit(long seq, byte[] record);
+    }
+
+    /** A packed record and the offsets of its messages */
+    private static final class Pack {
+        final long seq;
+        final byte[] record;
+        final int[] offsets;
+
+        Pack(long seq, byte[] record) {
+            this.seq = seq;
+            this.record = record;
+            this.offsets = Records.memberOffsets(record);
+        }
+
+        /** The sequence following the last message */
+        long end() {
+            return seq + offsets.length;
+        }
+
+        boolean covers(long sequence) {
+            return sequence >= seq && sequence < end();
+        }
+
+        byte[] member(long sequence) {
+            return Records.member(record, offsets[(int) (sequence - seq)]);
+        }
+    }
+
+    private static final class CursorImpl implements KueueCursor {
+        private final ForEachKeyValue it;
+        private final long recordsFrom;
+        private final long packedFrom;
+        private int remaining;
+        /** The packed record whose messages are being returned (or null) */
+        private Pack pack;
+        /** The next message of {@link #pack} */
+        private long nextInPack;
+        private long sequence = -1L;
+        private byte[] record;
+        private byte[] value;
+
+        CursorImpl(ForEachKeyValue it, int limit, long recordsFrom, long packedFrom, Pack pack, long from) {
+            this.it = it;
+            this.remaining = limit;
+            this.recordsFrom = recordsFrom;
+            this.packedFrom = packedFrom;
+            this.pack = pack;
+            this.nextInPack = from;
+        }
+
+        @Override
+        public boolean next() {
+            if (remaining <= 0 || (!nextInPack() && !nextRecord())) {
+                close();
+                return false;
+            }
+            value = (sequence < recordsFrom) ? record : Records.payload(record);
+            --remaining;
+            return true;
+        }
+
+        private boolean nextInPack() {
+            if (pack == null || nextInPack >= pack.end()) {
+                pack = null;
+                return false;
+            }
+            sequence = nextInPack++;
+            record = pack.member(sequence);
+            return true;
+        }
+
+        private boolean nextRecord() {
+            return it != null && it.tryAdvance((k, v) -> {
+                sequence = new Byte8Key(k).currentValue();
+                record = v;
+                if (sequence >= packedFrom && Records.isPacked(v)) {
+                    pack = new Pack(sequence, v);
+                    nextInPack = sequence + 1L;
+                    record = pack.member(sequence);
+                }
+            });
+        }
+
+        @Override
+        public long sequence() {
+            return sequence;
+        }
+
+        @Override
+        public byte[] value() {
+            return value;
+        }
+
+        @Override
+        public void close() {
+            remaining = 0;
+            pack = null;
+            record = null;
+            value = null;
+            if (it != null) {
+                it.close();
+            }
+        }
+    }
+
+    private final class LeaseImpl implements KueueLease {
+        final Delivery delivery;
+        final int generation;
+        final int deliveryCount;
+        private final byte[] value;
+
+        LeaseImpl(Delivery delivery, byte[] value) {
+            this.delivery = delivery;
+            this.generation = delivery.generation;
+            this.deliveryCount = delivery.deliveries;
+            this.value = value;
+        }
+
+        boolean isCurrent() {
+            return inFlight.get(delivery.seq) == delivery && delivery.generation == generation;
+        }
+
+        @Override
+        public long sequence() {
+            return delivery.seq;
+        }
+
+        @Override
+        public byte[] value() {
+            return value;
+        }
+
+        @Override
+        public int deliveryCount() {
+            return deliveryCount;
+        }
+
+        @Override
+        public boolean ack() {
+            return KueueImpl.this.ack(this);
+        }
+
+        @Override
+        public boolean nack() {
+            return KueueImpl.this.nack(this);
+        }
+
+        @Override
+        public boolean extend(long visibilityTimeout, TimeUnit unit) {
+            return KueueImpl.this.extend(this, unit.toNanos(visibilityTimeout));
+        }
     }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A message delivered by {@link Kueue#poll(long, TimeUnit)}. The message
+ * stays in the queue but is invisible to other consumers until either
+ * {@link #ack()} removes it, {@link #nack()} makes it visible again, or the
+ * visibility timeout expires (in which case it gets redelivered). If the
+ * process dies before the message has been acknowledged it is delivered
+ * again after a restart (at-least-once delivery).
+ */
+public interface KueueLease {
+
+    long sequence();
+    byte[] value();
+    int deliveryCount();
+    boolean ack();
+    boolean nack();
+    boolean extend(long visibilityTimeout, TimeUnit unit);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A RocksDB-based in-process durable log. Unlike a {@link Kueue}, consuming
+ * a message doesn't remove it: every named {@link ConsumerGroup} reads the
+ * log independently from its own persisted position. Messages are removed
+ * according to the log's {@link Retention}, but never before all consumer
+ * groups have consumed them. As long as no consumer group exists nothing is
+ * removed.
+ */
+public interface KueueLog {
+
+    long append(byte[] value);
+    long appendAll(List<byte[]> values);
+    ConsumerGroup group(String name);
+    boolean deleteGroup(String name);
+    Set<String> groups();
+    Retention getRetention();
+    void setRetention(Retention retention);
+    long enforceRetention();
+    long firstSequence();
+    long nextSequence();
+    long size();
+    long sizeInBytes();
+    boolean isEmpty();
+    boolean isClosed();
+    String identifier();
+    KueueManager getKueueManager();
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/* package */ final class KueueLogBean implements KueueLogMXBean {
+
+    private final KueueLogImpl log;
+
+    KueueLogBean(KueueLogImpl log) {
+        this.log = log;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return log.identifier();
+    }
+
+    @Override
+    public long getSize() {
+        return log.size();
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return log.sizeInBytes();
+    }
+
+    @Override
+    public long getFirstSequence() {
+        return log.firstSequence();
+    }
+
+    @Override
+    public long getNextSequence() {
+        return log.nextSequence();
+    }
+
+    @Override
+    public int getGroupCount() {
+        return log.groups().size();
+    }
+
+    @Override
+    public long getMaxGroupLag() {
+        return log.maxGroupLag();
+    }
+
+    @Override
+    public String getRetention() {
+        return log.getRetention().toString();
+    }
+
+    @Override
+    public long enforceRetention() {
+        return log.enforceRetention();
+    }
+}
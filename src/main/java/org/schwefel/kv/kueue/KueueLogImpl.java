@@ -0,0 +1,575 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.ForEachKeyValue;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+
+import net.volcanite.util.Byte8Key;
+
+/**
+ * A RocksDB-based in-process durable log with independent consumer groups.
+ */
+/* package */ class KueueLogImpl implements KueueLog {
+
+    /** Number of messages consumed by all groups between retention checks */
+    private static final long RETENTION_INTERVAL = 1_024L;
+    /** Length of a head record: first retained sequence and retained bytes */
+    private static final int HEAD_RECORD_LENGTH = 16;
+    /** Number of range deletes after which the dead head region gets compacted */
+    private static final int COMPACT_INTERVAL = 16;
+
+    private final KueueManager manager;
+    private final StoreOps ops;
+    private final Kind id;
+    /** Kind holding the log head and the group offsets */
+    private final Kind meta;
+    private final String identifier;
+    /** Key of this log's head record in {@link #meta} */
+    private final byte[] headKey;
+
+    /** Lock guarding the log and all of its consumer groups */
+    private final ReentrantLock lock = new ReentrantLock(true);
+    /** Wait queue for consumers waiting for new messages */
+    private final Condition appended = lock.newCondition();
+    private final HashMap<String, GroupImpl> groups = new HashMap<>();
+    private volatile Retention retention = Retention.UNTIL_CONSUMED;
+    /** Sequence of the first retained message */
+    private volatile long head;
+    /** Sequence of the next appended message */
+    private volatile long next;
+    /** Total size of all retained records */
+    private volatile long bytes;
+    /** Number of range deletes since the last compaction of the head region */
+    private int truncations;
+    /** Position consumed by all groups when retention has been checked last */
+    private long retentionCheckedAt = Long.MIN_VALUE;
+
+    /* package */ KueueLogImpl(StoreOps store, String identifier, KueueManager mgr) {
+        manager = mgr;
+        ops = Objects.requireNonNull(store, "store");
+        this.identifier = Objects.requireNonNull(identifier, "identifier");
+        id = store.getKindManagement().getOrCreateKind(identifier);
+        meta = store.getKindManagement().getOrCreateKind(KueueManager.META_KIND);
+        headKey = MetaKeys.logHead(identifier);
+        byte[] headRecord = null;
+        byte[] currentMin = null;
+        byte[] currentMax = null;
+        synchronized (ops) {
+            headRecord = ops.get(meta, headKey);
+            currentMin = (headRecord == null) ? ops.findMinKey(id)
+                    : ops.findMinKeyByLowerBound(id, Arrays.copyOf(headRecord, 8));
+            currentMax = ops.findMaxKey(id);
+        }
+        if (currentMin != null) {
+            head = seq(currentMin);
+        } else if (headRecord != null) {
+            head = seq(Arrays.copyOf(headRecord, 8));
+        }
+        next = (currentMax != null) ? Math.max(seq(currentMax) + 1L, head) : head;
+        if (headRecord != null && headRecord.length == HEAD_RECORD_LENGTH) {
+            bytes = ByteBuffer.wrap(headRecord, 8, 8).getLong();
+        } else {
+            // a new log or one whose head record doesn't carry the size yet
+            long[] sum = new long[1];
+            try (ForEachKeyValue it = ops.scanAll(id, key(head))) {
+                it.forEachRemaining((k, v) -> sum[0] += v.length);
+            }
+            bytes = sum[0];
+            ops.put(meta, headKey, headRecord(head, bytes));
+        }
+        try (ForEachKeyValue it = ops.scanRange(meta, MetaKeys.groupPrefix(identifier),
+                MetaKeys.groupPrefixEnd(identifier))) {
+            it.forEachRemaining((k, v) -> {
+                String name = MetaKeys.groupName(identifier, k);
+                groups.put(name, new GroupImpl(name, Math.max(seq(v), head)));
+            });
+        }
+        ops.put(meta, MetaKeys.logMarker(identifier), new byte[0]);
+    }
+
+    @Override
+    public long append(byte[] value) {
+        Objects.requireNonNull(value, "value");
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            byte[] record = Records.encode((byte) 0, System.currentTimeMillis(), value);
+            long seq = next;
+            try (Batch batch = ops.createBatch()) {
+                batch.put(id, key(seq), record);
+                batch.put(meta, headKey, headRecord(head, bytes + record.length));
+                ops.writeBatch(batch);
+            }
+            next = seq + 1L;
+            bytes += record.length;
+            appended.signalAll();
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long appendAll(List<byte[]> values) {
+        Objects.requireNonNull(values, "values");
+        for (byte[] value : values) {
+            Objects.requireNonNull(value, "value");
+        }
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            long first = next;
+            if (values.isEmpty()) {
+                return first;
+            }
+            long now = System.currentTimeMillis();
+            long size = 0L;
+            long seq = first;
+            try (Batch batch = ops.createBatch()) {
+                for (byte[] value : values) {
+                    byte[] record = Records.encode((byte) 0, now, value);
+                    batch.put(id, key(seq++), record);
+                    size += record.length;
+                }
+                batch.put(meta, headKey, headRecord(head, bytes + size));
+                ops.writeBatch(batch);
+            }
+            next = seq;
+            bytes += size;
+            appended.signalAll();
+            return first;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ConsumerGroup group(String name) {
+        if (Objects.requireNonNull(name, "name").isEmpty()) {
+            throw new IllegalArgumentException("name: ");
+        }
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            GroupImpl group = groups.get(name);
+            if (group == null) {
+                // a new group starts at the first retained message
+                group = new GroupImpl(name, head);
+                ops.put(meta, group.offsetKey, key(head));
+                groups.put(name, group);
+            }
+            return group;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteGroup(String name) {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            GroupImpl group = groups.remove(Objects.requireNonNull(name, "name"));
+            if (group != null) {
+                ops.delete(meta, group.offsetKey);
+                group.deleted = true;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Set<String> groups() {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return Collections.unmodifiableSet(new TreeSet<>(groups.keySet()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Retention getRetention() {
+        return retention;
+    }
+
+    @Override
+    public void setRetention(Retention retention) {
+        Objects.requireNonNull(retention, "retention");
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            this.retention = retention;
+            // the next commit checks the new retention right away
+            retentionCheckedAt = Long.MIN_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all messages that have been consumed by all groups and exceed
+     * the current {@link Retention}. This happens automatically in batches
+     * while the groups make progress.
+     * 
+     * @return the number of removed messages
+     */
+    @Override
+    public long enforceRetention() {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return enforceRetentionLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages the slowest consumer group has yet to
+     * consume ({@code 0} if there is no group).
+     */
+    /* package */ long maxGroupLag() {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return groups.isEmpty() ? 0L : next - consumedByAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long firstSequence() {
+        return head;
+    }
+
+    @Override
+    public long nextSequence() {
+        return next;
+    }
+
+    @Override
+    public long size() {
+        return next - head;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0L;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !ops.isOpen();
+    }
+
+    @Override
+    public String identifier() {
+        return identifier;
+    }
+
+    @Override
+    public KueueManager getKueueManager() {
+        return manager;
+    }
+
+    /**
+     * Returns the smallest position of all groups, or {@code head} if there is
+     * no group. Must be called while holding the lock.
+     */
+    private long consumedByAll() {
+        if (groups.isEmpty()) {
+            return head;
+        }
+        long min = Long.MAX_VALUE;
+        for (GroupImpl group : groups.values()) {
+            min = Math.min(min, group.position);
+        }
+        return min;
+    }
+
+    private long enforceRetentionLocked() {
+        long end = consumedByAll();
+        if (end <= head) {
+            return 0L;
+        }
+        Retention retention = this.retention;
+        long now = System.currentTimeMillis();
+        long count = next - head;
+        long size = bytes;
+        long newHead = head;
+        byte[][] record = new byte[1][];
+        try (ForEachKeyValue it = ops.scanRange(id, key(head), key(end))) {
+            while (it.tryAdvance((k, v) -> record[0] = v)) {
+                if (!retention.exceeded(count, size, now - Records.timestamp(record[0]))) {
+                    break;
+                }
+                --count;
+                size -= record[0].length;
+                ++newHead;
+            }
+        }
+        long removed = newHead - head;
+        if (removed > 0L) {
+            byte[] oldHeadKey = key(head);
+            byte[] newHeadKey = key(newHead);
+            ops.put(meta, headKey, headRecord(newHead, size));
+            ops.deleteRange(id, oldHeadKey, newHeadKey);
+            head = newHead;
+            bytes = size;
+            if (++truncations >= COMPACT_INTERVAL) {
+                truncations = 0;
+                if (manager != null) {
+                    manager.compactAsync(id, Byte8Key.minKey(), newHeadKey);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * The head record holds the first retained sequence (as a key) followed
+     * by the total size of the retained records, so that opening a log
+     * doesn't have to scan it.
+     */
+    private static byte[] headRecord(long head, long bytes) {
+        return ByteBuffer.allocate(HEAD_RECORD_LENGTH).put(key(head)).putLong(bytes).array();
+    }
+
+    private static byte[] key(long seq) {
+        return new Byte8Key(seq).current();
+    }
+
+    private static long seq(byte[] key) {
+        return new Byte8Key(key).currentValue();
+    }
+
+    private final class GroupImpl implements ConsumerGroup {
+
+        private final String name;
+        private final byte[] offsetKey;
+        /** Next sequence to deliver (guarded by the log's lock) */
+        private long position;
+        private volatile boolean deleted;
+
+        GroupImpl(String name, long position) {
+            this.name = name;
+            this.offsetKey = MetaKeys.groupOffset(identifier, name);
+            this.position = position;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public byte[] poll() {
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lock();
+            try {
+                validate();
+                if (position >= next) {
+                    return null;
+                }
+                return takeOne();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public byte[] take() throws InterruptedException {
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lockInterruptibly();
+            try {
+                validate();
+                while (position >= next) {
+                    appended.await();
+                    validate();
+                }
+                return takeOne();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public byte[] take(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lockInterruptibly();
+            try {
+                validate();
+                while (position >= next) {
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    nanos = appended.awaitNanos(nanos);
+                    validate();
+                }
+                return takeOne();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public List<byte[]> takeBatch(int maxMessages, long timeout, TimeUnit unit) throws InterruptedException {
+            if (maxMessages <= 0) {
+                return Collections.emptyList();
+            }
+            long nanos = unit.toNanos(timeout);
+            ArrayList<byte[]> values = new ArrayList<>(Math.min(maxMessages, 1_024));
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lockInterruptibly();
+            try {
+                validate();
+                while (position >= next) {
+                    if (nanos <= 0L) {
+                        return values;
+                    }
+                    nanos = appended.awaitNanos(nanos);
+                    validate();
+                }
+                long end = Math.min(next, position + maxMessages);
+                try (ForEachKeyValue range = ops.scanRange(id, key(position), key(end))) {
+                    range.forEachRemaining((k, v) -> values.add(Records.payload(v)));
+                }
+                commit(end);
+            } finally {
+                lock.unlock();
+            }
+            return values;
+        }
+
+        @Override
+        public boolean accept(KueueMsgConsumer consumer) {
+            if (consumer == null) {
+                return false;
+            }
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lock();
+            try {
+                validate();
+                if (position >= next) {
+                    return false;
+                }
+                byte[] record = ops.get(id, key(position));
+                if (record != null && consumer.accept(Records.payload(record))) {
+                    commit(position + 1L);
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            return false;
+        }
+
+        @Override
+        public long position() {
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lock();
+            try {
+                return position;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long lag() {
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lock();
+            try {
+                return Math.max(next - position, 0L);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Moves this group to {@code sequence}, clamped to the range of
+         * retained messages.
+         */
+        @Override
+        public void seek(long sequence) {
+            ReentrantLock lock = KueueLogImpl.this.lock;
+            lock.lock();
+            try {
+                validate();
+                commit(Math.min(Math.max(sequence, head), next));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public KueueLog log() {
+            return KueueLogImpl.this;
+        }
+
+        private byte[] takeOne() {
+            byte[] record = ops.get(id, key(position));
+            commit(position + 1L);
+            return (record == null) ? null : Records.payload(record);
+        }
+
+        private void commit(long newPosition) {
+            ops.put(meta, offsetKey, key(newPosition));
+            position = newPosition;
+            // checking retention opens an iterator, so only check again once
+            // the groups have consumed another RETENTION_INTERVAL messages
+            long consumed = consumedByAll();
+            if (consumed - Math.max(head, retentionCheckedAt) >= RETENTION_INTERVAL) {
+                retentionCheckedAt = consumed;
+                enforceRetentionLocked();
+            }
+        }
+
+        private void validate() {
+            if (deleted) {
+                throw new IllegalStateException("consumer group " + name + " has been deleted");
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * JMX view of a {@link KueueLog}, registered by
+ * {@link KueueManager#registerMBeans()}.
+ */
+public interface KueueLogMXBean {
+
+    String getIdentifier();
+    long getSize();
+    long getSizeInBytes();
+    long getFirstSequence();
+    long getNextSequence();
+    int getGroupCount();
+    long getMaxGroupLag();
+    String getRetention();
+
+    long enforceRetention();
+}
@@ -16,34 +16,329 @@
 package org.schwefel.kv.kueue;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.rocksdb.RocksDB;
 import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
 import org.schwefel.kv.Stats;
+import org.schwefel.kv.StorageProfile;
 import org.schwefel.kv.StoreOps;
 
+import net.volcanite.task.AsyncExecutor;
+
 public final class KueueManager implements AutoCloseable {
 
+    private static final Logger logger = Logger.getLogger(KueueManager.class.getName());
+
+    /** Name of the Kind that holds the consumer offsets of all queues */
+    public static final String META_KIND = "__kueue_meta";
+
+    private static final long MAINTENANCE_DRAIN_MILLIS = 60_000L;
+
+    /** File in the store directory that lists the Kinds of the queues */
+    private static final String QUEUE_KINDS_FILE = "KUEUE-KINDS";
+
+    private static final String MODE_KUEUE = Kueue.class.getSimpleName();
+    private static final String MODE_LOG = KueueLog.class.getSimpleName();
+    private static final String MODE_SHARDED = "sharded " + Kueue.class.getSimpleName();
+    private static final String MODE_DELAYED = DelayKueue.class.getSimpleName();
+    private static final String MODE_PRIORITY = PriorityKueue.class.getSimpleName();
+
     private final StoreOps ops;
+    private final AsyncExecutor maintenance = new AsyncExecutor("KueueManager-Maintenance", 64);
     private final Path dir;
+    /** Kinds created by the queue factories (they use the QUEUE profile) */
+    private final Set<String> queueKinds = ConcurrentHashMap.newKeySet();
     private final ConcurrentHashMap<String, KueueImpl> kueues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, KueueLogImpl> logs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ShardedKueueImpl> sharded = new ConcurrentHashMap<>();
+    /** The sub-queues of the sharded queues, they are never handed out */
+    private final ConcurrentHashMap<String, KueueImpl> shardQueues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DelayKueueImpl> delayed = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PriorityKueueImpl> prioritized = new ConcurrentHashMap<>();
+    /** MBeans registered since {@link #registerMBeans()} has been called */
+    private final ConcurrentHashMap<String, ObjectName> mbeans = new ConcurrentHashMap<>();
+    private volatile boolean jmxEnabled;
 
     public KueueManager(Path directory) {
-        ops = new KVStore(Objects.requireNonNull(directory));
-        dir = directory;
+        dir = Objects.requireNonNull(directory);
+        queueKinds.addAll(readQueueKinds(directory));
+        ops = new KVStore(directory, this::storageProfile);
+        maintenance.start();
+    }
+
+    /**
+     * The Kinds of the plain, sharded, delayed and priority queues use the
+     * {@link StorageProfile#QUEUE} profile. All other Kinds (the meta Kind,
+     * the logs and whatever else the application keeps in the store) keep
+     * the default profile.
+     */
+    private StorageProfile storageProfile(String kindName) {
+        return queueKinds.contains(kindName) ? StorageProfile.QUEUE : StorageProfile.DEFAULT;
+    }
+
+    /**
+     * The profile of a Kind is needed when the store opens, before the meta
+     * Kind could be read, so the queue Kinds are listed in a file of their
+     * own.
+     */
+    private static Set<String> readQueueKinds(Path directory) {
+        try {
+            return new HashSet<>(Files.readAllLines(directory.resolve(QUEUE_KINDS_FILE), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return Collections.emptySet();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "reading " + QUEUE_KINDS_FILE + " failed", e);
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Records {@code kindName} as a queue Kind. Must be called before the
+     * Kind gets created.
+     */
+    private synchronized void registerQueueKind(String kindName) {
+        if (queueKinds.add(kindName)) {
+            try {
+                Files.write(dir.resolve(QUEUE_KINDS_FILE), Collections.singletonList(kindName),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "recording the queue Kind " + kindName + " failed", e);
+            }
+        }
     }
 
     public Kueue get(String identifier) {
+        checkIdentifier(identifier);
         if (!isClosed()) {
-            return kueues.computeIfAbsent(Objects.requireNonNull(identifier), id -> new KueueImpl(ops, id, this));
+            Kueue kueue = kueues.computeIfAbsent(identifier, id -> {
+                checkMode(id, MODE_KUEUE);
+                registerQueueKind(id);
+                return new KueueImpl(ops, id, this);
+            });
+            if (jmxEnabled) {
+                registerMBean(kueue);
+            }
+            return kueue;
         }
         throw new IllegalStateException(KueueManager.class.getName() + " for " + getDirectory() + " is closed");
     }
 
+    /**
+     * Returns the {@link KueueLog} with the given identifier, creating it if
+     * it doesn't exist yet.
+     * 
+     * @param identifier
+     *            the name of the log
+     * @return the log
+     */
+    public KueueLog getLog(String identifier) {
+        checkIdentifier(identifier);
+        if (!isClosed()) {
+            KueueLogImpl log = logs.computeIfAbsent(identifier, id -> {
+                checkMode(id, MODE_LOG);
+                return new KueueLogImpl(ops, id, this);
+            });
+            if (jmxEnabled) {
+                registerMBean(log);
+            }
+            return log;
+        }
+        throw new IllegalStateException(KueueManager.class.getName() + " for " + getDirectory() + " is closed");
+    }
+
+    /**
+     * Returns the sharded {@link Kueue} with the given identifier, creating it
+     * if it doesn't exist yet. A sharded queue spreads its messages over
+     * {@code shards} sub-queues so that concurrent producers and consumers
+     * contend less. Messages are FIFO per shard only, there is no global
+     * order. The number of shards is fixed when the queue is created.
+     * 
+     * @param identifier
+     *            the name of the queue
+     * @param shards
+     *            the number of sub-queues
+     * @return the sharded queue
+     * @throws IllegalArgumentException
+     *             if the queue already exists with a different number of
+     *             shards
+     */
+    public Kueue getSharded(String identifier, int shards) {
+        checkIdentifier(identifier);
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards: " + shards);
+        }
+        if (!isClosed()) {
+            ShardedKueueImpl kueue = sharded.computeIfAbsent(identifier, id -> {
+                checkMode(id, MODE_SHARDED);
+                int n = shardCount(id);
+                if (n == 0) {
+                    n = shards;
+                    ops.put(meta(), MetaKeys.shardCount(id), ByteBuffer.allocate(4).putInt(n).array());
+                }
+                KueueImpl[] subQueues = new KueueImpl[n];
+                for (int i = 0; i < n; ++i) {
+                    subQueues[i] = shardQueues.computeIfAbsent(ShardedKueueImpl.shardIdentifier(id, i),
+                            shardId -> {
+                                registerQueueKind(shardId);
+                                return new KueueImpl(ops, shardId, this, false);
+                            });
+                }
+                return new ShardedKueueImpl(subQueues, id, this);
+            });
+            if (kueue.shardCount() != shards) {
+                throw new IllegalArgumentException(
+                        identifier + " has " + kueue.shardCount() + " shards (requested: " + shards + ")");
+            }
+            if (jmxEnabled) {
+                registerMBean(kueue);
+            }
+            return kueue;
+        }
+        throw new IllegalStateException(KueueManager.class.getName() + " for " + getDirectory() + " is closed");
+    }
+
+    /**
+     * Returns the {@link DelayKueue} with the given identifier, creating it if
+     * it doesn't exist yet.
+     * 
+     * @param identifier
+     *            the name of the queue
+     * @return the delay queue
+     */
+    public DelayKueue getDelayed(String identifier) {
+        checkIdentifier(identifier);
+        if (!isClosed()) {
+            DelayKueueImpl kueue = delayed.computeIfAbsent(identifier, id -> {
+                checkMode(id, MODE_DELAYED);
+                registerQueueKind(id);
+                return new DelayKueueImpl(ops, id, this);
+            });
+            if (jmxEnabled) {
+                registerMBean(kueue);
+            }
+            return kueue;
+        }
+        throw new IllegalStateException(KueueManager.class.getName() + " for " + getDirectory() + " is closed");
+    }
+
+    /**
+     * Returns the {@link PriorityKueue} with the given identifier, creating it
+     * if it doesn't exist yet. The number of lanes is fixed when the queue is
+     * created.
+     * 
+     * @param identifier
+     *            the name of the queue
+     * @param lanes
+     *            the number of priority lanes (1 to 256)
+     * @return the priority queue
+     * @throws IllegalArgumentException
+     *             if the queue already exists with a different number of
+     *             lanes
+     */
+    public PriorityKueue getPrioritized(String identifier, int lanes) {
+        checkIdentifier(identifier);
+        if (lanes <= 0 || lanes > 256) {
+            throw new IllegalArgumentException("lanes: " + lanes);
+        }
+        if (!isClosed()) {
+            PriorityKueueImpl kueue = prioritized.computeIfAbsent(identifier, id -> {
+                checkMode(id, MODE_PRIORITY);
+                byte[] persisted = ops.get(meta(), MetaKeys.priorityLanes(id));
+                int n = lanes;
+                if (persisted == null) {
+                    ops.put(meta(), MetaKeys.priorityLanes(id), ByteBuffer.allocate(4).putInt(n).array());
+                } else {
+                    n = ByteBuffer.wrap(persisted).getInt();
+                }
+                registerQueueKind(id);
+                return new PriorityKueueImpl(ops, id, n, this);
+            });
+            if (kueue.lanes() != lanes) {
+                throw new IllegalArgumentException(
+                        identifier + " has " + kueue.lanes() + " lanes (requested: " + lanes + ")");
+            }
+            if (jmxEnabled) {
+                registerMBean(kueue);
+            }
+            return kueue;
+        }
+        throw new IllegalStateException(KueueManager.class.getName() + " for " + getDirectory() + " is closed");
+    }
+
+    /**
+     * The meta Kind and the names of the shards of sharded queues
+     * ({@code <identifier>#<n>}) are reserved.
+     */
+    private static void checkIdentifier(String identifier) {
+        if (META_KIND.equals(Objects.requireNonNull(identifier))
+                || ShardedKueueImpl.isShardIdentifier(identifier)) {
+            throw new IllegalArgumentException("reserved identifier: " + identifier);
+        }
+    }
+
+    /**
+     * An identifier can only be used for one kind of queue. Every queue type
+     * except the plain {@link Kueue} leaves a marker in the meta Kind when it
+     * gets created.
+     */
+    private void checkMode(String identifier, String wanted) {
+        String mode = modeOf(identifier);
+        if (mode != null && !mode.equals(wanted)) {
+            throw new IllegalStateException(identifier + " is a " + mode + ", not a " + wanted);
+        }
+    }
+
+    private String modeOf(String identifier) {
+        Kind meta = ops.getKindManagement().getKind(META_KIND);
+        if (meta != null) {
+            if (ops.get(meta, MetaKeys.logMarker(identifier)) != null) {
+                return MODE_LOG;
+            }
+            if (ops.get(meta, MetaKeys.shardCount(identifier)) != null) {
+                return MODE_SHARDED;
+            }
+            if (ops.get(meta, MetaKeys.delaySequence(identifier)) != null) {
+                return MODE_DELAYED;
+            }
+            if (ops.get(meta, MetaKeys.priorityLanes(identifier)) != null) {
+                return MODE_PRIORITY;
+            }
+        }
+        return (ops.getKindManagement().getKind(identifier) != null) ? MODE_KUEUE : null;
+    }
+
+    private int shardCount(String identifier) {
+        byte[] count = ops.get(meta(), MetaKeys.shardCount(identifier));
+        return (count == null) ? 0 : ByteBuffer.wrap(count).getInt();
+    }
+
+    private Kind meta() {
+        return ops.getKindManagement().getOrCreateKind(META_KIND);
+    }
+
     public Path getPath() {
         return dir;
     }
@@ -65,16 +360,155 @@ public final class KueueManager implements AutoCloseable {
         return !ops.isOpen();
     }
 
+    /**
+     * Returns a metrics snapshot of every {@link Kueue} (plain or sharded)
+     * that has been opened by this manager, keyed by identifier.
+     * 
+     * @return the current metrics of the open queues
+     */
+    public Map<String, KueueMetrics> getMetrics() {
+        TreeMap<String, KueueMetrics> metrics = new TreeMap<>();
+        for (Kueue kueue : openKueues()) {
+            metrics.put(kueue.identifier(), kueue.getMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Registers a {@link KueueMetricsMXBean} for every open {@link Kueue}, a
+     * {@link KueueLogMXBean} for every open {@link KueueLog}, a
+     * {@link DelayKueueMXBean} for every open {@link DelayKueue} and a
+     * {@link PriorityKueueMXBean} for every open {@link PriorityKueue} (and
+     * for those opened later) with the platform MBeanServer under the name
+     * {@code org.schwefel.kv:type=<type>,store=<directory>,name=<identifier>}
+     * where {@code <type>} is {@code Kueue}, {@code KueueLog},
+     * {@code DelayKueue} or {@code PriorityKueue}, together with the MBeans of
+     * the underlying store and its Kinds (see {@link KVStore#registerMBeans()}).
+     * The MBeans are unregistered on {@link #close()}.
+     */
+    public void registerMBeans() {
+        ((KVStore) ops).registerMBeans();
+        jmxEnabled = true;
+        for (Kueue kueue : openKueues()) {
+            registerMBean(kueue);
+        }
+        for (KueueLogImpl log : logs.values()) {
+            registerMBean(log);
+        }
+        for (DelayKueueImpl kueue : delayed.values()) {
+            registerMBean(kueue);
+        }
+        for (PriorityKueueImpl kueue : prioritized.values()) {
+            registerMBean(kueue);
+        }
+    }
+
+    /**
+     * The plain and sharded queues, without the shards of the latter.
+     */
+    private Iterable<Kueue> openKueues() {
+        TreeMap<String, Kueue> open = new TreeMap<>(sharded);
+        open.putAll(kueues);
+        return open.values();
+    }
+
+    private void registerMBean(Kueue kueue) {
+        registerMBean("Kueue", kueue.identifier(), () -> new KueueMetricsBean(kueue));
+    }
+
+    private void registerMBean(KueueLogImpl log) {
+        registerMBean("KueueLog", log.identifier(), () -> new KueueLogBean(log));
+    }
+
+    private void registerMBean(DelayKueue kueue) {
+        registerMBean("DelayKueue", kueue.identifier(), () -> new DelayKueueBean(kueue));
+    }
+
+    private void registerMBean(PriorityKueue kueue) {
+        registerMBean("PriorityKueue", kueue.identifier(), () -> new PriorityKueueBean(kueue));
+    }
+
+    /**
+     * Identifiers are unique across all kinds of queues (see
+     * {@link #checkMode(String, String)}), so they key the MBeans.
+     */
+    private void registerMBean(String type, String identifier, Supplier<Object> bean) {
+        mbeans.computeIfAbsent(identifier, id -> {
+            try {
+                ObjectName name = new ObjectName("org.schwefel.kv:type=" + type + ",store="
+                        + ObjectName.quote(getDirectory()) + ",name=" + ObjectName.quote(id));
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(bean.get(), name);
+                }
+                return name;
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "registering the MBean of " + id + " failed", e);
+                return null;
+            }
+        });
+    }
+
+    private void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : mbeans.values()) {
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "unregistering " + name + " failed", e);
+            }
+        }
+        mbeans.clear();
+    }
+
     @Override
     public void close() {
+        jmxEnabled = false;
+        unregisterMBeans();
+        maintenance.drain(MAINTENANCE_DRAIN_MILLIS);
+        checkpoint(kueues.values());
+        checkpoint(shardQueues.values());
         ops.close();
         kueues.clear();
+        shardQueues.clear();
+        logs.clear();
+        sharded.clear();
+        delayed.clear();
+        prioritized.clear();
+    }
+
+    private static void checkpoint(Iterable<KueueImpl> queues) {
+        for (KueueImpl kueue : queues) {
+            try {
+                kueue.checkpoint();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "checkpointing " + kueue.identifier() + " failed", e);
+            }
+        }
     }
 
     public void compactAll() {
         ((KVStore) ops).compactAll();
     }
 
+    /**
+     * Compacts the key range {@code [beginKey, endKey)} of {@code kind} in the
+     * background (used to get rid of the tombstones of consumed messages).
+     */
+    void compactAsync(Kind kind, byte[] beginKey, byte[] endKey) {
+        maintenance.execute(() -> {
+            try {
+                if (!isClosed()) {
+                    ops.getKindManagement().compactRange(kind, beginKey, endKey);
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "compaction of " + kind.name() + " failed", e);
+            }
+        });
+    }
+
     public void syncWAL() {
         ops.syncWAL();
     }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import net.volcanite.util.LogHistogram;
+
+/**
+ * An immutable point-in-time snapshot of the metrics of a {@link Kueue}.
+ * Rates are derived from two snapshots, e.g.
+ * {@code current.getEnqueueRate(previous)}. Time-in-queue is measured from
+ * the timestamp stored with every message to its removal (or first lease),
+ * consumer wait from entering a blocking take until a message is available
+ * and lock hold times exclude the time spent waiting for messages. All
+ * durations are in nanoseconds except those in milliseconds as indicated by
+ * the method name.
+ */
+public final class KueueMetrics {
+
+    private final String identifier;
+    private final long timestampNanos;
+    private final long size;
+    private final long inFlight;
+    private final long totalPuts;
+    private final long totalTakes;
+    private final long totalDeadLettered;
+    private final long oldestMessageAgeMillis;
+    private final LogHistogram.Snapshot timeInQueueMillis;
+    private final LogHistogram.Snapshot consumerWaitNanos;
+    private final LogHistogram.Snapshot putLockHoldNanos;
+    private final LogHistogram.Snapshot takeLockHoldNanos;
+
+    /* package */ KueueMetrics(String identifier, long size, long inFlight, long totalPuts, long totalTakes,
+            long totalDeadLettered, long oldestMessageAgeMillis, LogHistogram.Snapshot timeInQueueMillis,
+            LogHistogram.Snapshot consumerWaitNanos, LogHistogram.Snapshot putLockHoldNanos,
+            LogHistogram.Snapshot takeLockHoldNanos) {
+        this.identifier = identifier;
+        this.timestampNanos = System.nanoTime();
+        this.size = size;
+        this.inFlight = inFlight;
+        this.totalPuts = totalPuts;
+        this.totalTakes = totalTakes;
+        this.totalDeadLettered = totalDeadLettered;
+        this.oldestMessageAgeMillis = oldestMessageAgeMillis;
+        this.timeInQueueMillis = timeInQueueMillis;
+        this.consumerWaitNanos = consumerWaitNanos;
+        this.putLockHoldNanos = putLockHoldNanos;
+        this.takeLockHoldNanos = takeLockHoldNanos;
+    }
+
+    /* package */ static KueueMetrics empty(String identifier) {
+        LogHistogram.Snapshot none = LogHistogram.Snapshot.empty();
+        return new KueueMetrics(identifier, 0L, 0L, 0L, 0L, 0L, 0L, none, none, none, none);
+    }
+
+    /**
+     * Combines the metrics of the shards of a sharded queue.
+     */
+    /* package */ KueueMetrics merge(String identifier, KueueMetrics other) {
+        return new KueueMetrics(identifier, size + other.size, inFlight + other.inFlight, totalPuts + other.totalPuts,
+                totalTakes + other.totalTakes, totalDeadLettered + other.totalDeadLettered,
+                Math.max(oldestMessageAgeMillis, other.oldestMessageAgeMillis),
+                timeInQueueMillis.merge(other.timeInQueueMillis), consumerWaitNanos.merge(other.consumerWaitNanos),
+                putLockHoldNanos.merge(other.putLockHoldNanos), takeLockHoldNanos.merge(other.takeLockHoldNanos));
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /** The {@code System.nanoTime()} when this snapshot has been taken */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /** The number of messages that are waiting for a consumer */
+    public long getSize() {
+        return size;
+    }
+
+    /** The number of leased messages that haven't been acknowledged yet */
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    public long getTotalPuts() {
+        return totalPuts;
+    }
+
+    public long getTotalTakes() {
+        return totalTakes;
+    }
+
+    public long getTotalDeadLettered() {
+        return totalDeadLettered;
+    }
+
+    /**
+     * The age of the oldest waiting message, {@code 0} if there is none and
+     * {@code -1} if it predates the message timestamps.
+     */
+    public long getOldestMessageAgeMillis() {
+        return oldestMessageAgeMillis;
+    }
+
+    public LogHistogram.Snapshot getTimeInQueueMillis() {
+        return timeInQueueMillis;
+    }
+
+    public LogHistogram.Snapshot getConsumerWaitNanos() {
+        return consumerWaitNanos;
+    }
+
+    public LogHistogram.Snapshot getPutLockHoldNanos() {
+        return putLockHoldNanos;
+    }
+
+    public LogHistogram.Snapshot getTakeLockHoldNanos() {
+        return takeLockHoldNanos;
+    }
+
+    /**
+     * Returns the number of messages put per second since an earlier
+     * snapshot of the same queue.
+     */
+    public double getEnqueueRate(KueueMetrics earlier) {
+        return rate(totalPuts - earlier.totalPuts, earlier);
+    }
+
+    /**
+     * Returns the number of messages taken (or acknowledged) per second since
+     * an earlier snapshot of the same queue.
+     */
+    public double getDequeueRate(KueueMetrics earlier) {
+        return rate(totalTakes - earlier.totalTakes, earlier);
+    }
+
+    private double rate(long delta, KueueMetrics earlier) {
+        long elapsed = timestampNanos - earlier.timestampNanos;
+        return elapsed <= 0L ? 0.0 : delta * 1_000_000_000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return KueueMetrics.class.getSimpleName() + "{identifier=" + identifier + ", size=" + size + ", inFlight="
+                + inFlight + ", totalPuts=" + totalPuts + ", totalTakes=" + totalTakes + ", totalDeadLettered="
+                + totalDeadLettered + ", oldestMessageAgeMillis=" + oldestMessageAgeMillis + ", timeInQueueMillis=["
+                + timeInQueueMillis + "], consumerWaitNanos=[" + consumerWaitNanos + "], putLockHoldNanos=["
+                + putLockHoldNanos + "], takeLockHoldNanos=[" + takeLockHoldNanos + "]}";
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * {@link KueueMetricsMXBean} implementation that caches the latest snapshot
+ * for a second so that reading all attributes takes only one snapshot.
+ */
+/* package */ final class KueueMetricsBean implements KueueMetricsMXBean {
+
+    private static final long REFRESH_NANOS = 1_000_000_000L;
+
+    private final Kueue kueue;
+    private KueueMetrics previous;
+    private KueueMetrics current;
+
+    KueueMetricsBean(Kueue kueue) {
+        this.kueue = kueue;
+        this.current = kueue.getMetrics();
+        this.previous = current;
+    }
+
+    private synchronized KueueMetrics current() {
+        if (System.nanoTime() - current.getTimestampNanos() >= REFRESH_NANOS) {
+            previous = current;
+            current = kueue.getMetrics();
+        }
+        return current;
+    }
+
+    private synchronized KueueMetrics previous() {
+        current();
+        return previous;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return kueue.identifier();
+    }
+
+    @Override
+    public long getSize() {
+        return current().getSize();
+    }
+
+    @Override
+    public long getInFlight() {
+        return current().getInFlight();
+    }
+
+    @Override
+    public long getTotalPuts() {
+        return current().getTotalPuts();
+    }
+
+    @Override
+    public long getTotalTakes() {
+        return current().getTotalTakes();
+    }
+
+    @Override
+    public long getTotalDeadLettered() {
+        return current().getTotalDeadLettered();
+    }
+
+    @Override
+    public long getOldestMessageAgeMillis() {
+        return current().getOldestMessageAgeMillis();
+    }
+
+    @Override
+    public synchronized double getEnqueueRate() {
+        return current().getEnqueueRate(previous());
+    }
+
+    @Override
+    public synchronized double getDequeueRate() {
+        return current().getDequeueRate(previous());
+    }
+
+    @Override
+    public long getTimeInQueueP50Millis() {
+        return current().getTimeInQueueMillis().getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getTimeInQueueP99Millis() {
+        return current().getTimeInQueueMillis().getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getTimeInQueueMaxMillis() {
+        return current().getTimeInQueueMillis().getMax();
+    }
+
+    @Override
+    public long getConsumerWaitP99Nanos() {
+        return current().getConsumerWaitNanos().getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getPutLockHoldP99Nanos() {
+        return current().getPutLockHoldNanos().getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getTakeLockHoldP99Nanos() {
+        return current().getTakeLockHoldNanos().getValueAtPercentile(99.0);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * JMX view of the {@link KueueMetrics} of a {@link Kueue}, registered by
+ * {@link KueueManager#registerMBeans()}. Percentiles are computed over the
+ * lifetime of the queue object, rates over the interval since the previous
+ * refresh (the snapshot is refreshed at most once per second).
+ */
+public interface KueueMetricsMXBean {
+
+    String getIdentifier();
+    long getSize();
+    long getInFlight();
+    long getTotalPuts();
+    long getTotalTakes();
+    long getTotalDeadLettered();
+    long getOldestMessageAgeMillis();
+    double getEnqueueRate();
+    double getDequeueRate();
+    long getTimeInQueueP50Millis();
+    long getTimeInQueueP99Millis();
+    long getTimeInQueueMaxMillis();
+    long getConsumerWaitP99Nanos();
+    long getPutLockHoldP99Nanos();
+    long getTakeLockHoldP99Nanos();
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.SortedByteArrayMap;
+import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.TransmitBatchTask;
+import org.schwefel.kv.TransmitTask;
+
+import net.volcanite.task.AsyncTask;
+import net.volcanite.task.OverflowStrategy;
+import net.volcanite.task.SpillHandler;
+
+/**
+ * A {@link SpillHandler} for the {@link OverflowStrategy#SPILL} strategy that
+ * serializes overflowed {@link TransmitTask}s and {@link TransmitBatchTask}s
+ * into a durable {@link Kueue}. The spilled writes can later be applied to a
+ * store with {@link #replay(StoreOps)}.
+ */
+public final class KueueSpillHandler implements SpillHandler {
+
+    private static final byte SINGLE = 1;
+    private static final byte BATCH = 2;
+
+    private final Kueue kueue;
+
+    public KueueSpillHandler(Kueue kueue) {
+        this.kueue = Objects.requireNonNull(kueue, "kueue");
+    }
+
+    @Override
+    public boolean spill(AsyncTask task) {
+        if (kueue.isClosed()) {
+            return false;
+        }
+        if (task instanceof TransmitTask) {
+            TransmitTask t = (TransmitTask) task;
+            byte[] key = t.getKey();
+            if (key == null || key.length == 0 || t.getValue() == null) {
+                // would have been a no-op anyway
+                return true;
+            }
+            kueue.put(encode(t));
+            return true;
+        }
+        if (task instanceof TransmitBatchTask) {
+            kueue.put(encode((TransmitBatchTask) task));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies all spilled writes to the given store, oldest first. A message
+     * is removed from the spill queue only after its write has succeeded.
+     * 
+     * @param store
+     *            the store to replay the spilled writes into
+     * @return the number of replayed tasks
+     */
+    public long replay(StoreOps store) {
+        Objects.requireNonNull(store, "store");
+        long replayed = 0L;
+        while (kueue.accept(msg -> apply(store, msg))) {
+            ++replayed;
+        }
+        return replayed;
+    }
+
+    public Kueue getKueue() {
+        return kueue;
+    }
+
+    private static boolean apply(StoreOps store, byte[] msg) {
+        ByteBuffer buf = ByteBuffer.wrap(msg);
+        byte type = buf.get();
+        Kind kind = store.getKindManagement().getOrCreateKind(new String(readBytes(buf), StandardCharsets.UTF_8));
+        if (type == SINGLE) {
+            store.put(kind, readBytes(buf), readBytes(buf));
+        } else {
+            int size = buf.getInt();
+            try (Batch batch = store.createBatch()) {
+                for (int i = 0; i < size; ++i) {
+                    batch.put(kind, readBytes(buf), readBytes(buf));
+                }
+                store.writeBatch(batch);
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encode(TransmitTask task) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                task.getKey().length + task.getValue().length + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SINGLE);
+            writeBytes(out, task.getKind().name().getBytes(StandardCharsets.UTF_8));
+            writeBytes(out, task.getKey());
+            writeBytes(out, task.getValue());
+        } catch (IOException cannotHappen) {
+            throw new IllegalStateException(cannotHappen);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encode(TransmitBatchTask task) {
+        SortedByteArrayMap keysValues = task.getKeysValues();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(BATCH);
+            writeBytes(out, task.getKind().name().getBytes(StandardCharsets.UTF_8));
+            int size = 0;
+            for (Map.Entry<byte[], byte[]> entry : keysValues.entrySet()) {
+                if (isValid(entry.getKey(), entry.getValue())) {
+                    ++size;
+                }
+            }
+            out.writeInt(size);
+            for (Map.Entry<byte[], byte[]> entry : keysValues.entrySet()) {
+                if (isValid(entry.getKey(), entry.getValue())) {
+                    writeBytes(out, entry.getKey());
+                    writeBytes(out, entry.getValue());
+                }
+            }
+        } catch (IOException cannotHappen) {
+            throw new IllegalStateException(cannotHappen);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isValid(byte[] key, byte[] value) {
+        return key != null && key.length > 0 && value != null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static byte[] readBytes(ByteBuffer buf) {
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return b;
+    }
+}
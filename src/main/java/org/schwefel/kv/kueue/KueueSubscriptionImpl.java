@@ -0,0 +1,209 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dispatches leased messages to a {@link KueueMsgConsumer} on a shared
+ * {@link Executor}. No thread is parked while the queue is empty: the queue
+ * {@link #signal() signals} the subscription when messages arrive, and a
+ * single drain task then leases up to {@code maxInFlight - inFlight}
+ * messages in one go and hands each of them to the executor. A message is
+ * acknowledged when the consumer returns {@code true}. When the consumer
+ * returns {@code false} or throws, the message stays invisible for a backoff
+ * that doubles with every delivery of the message (from
+ * {@value #MIN_REDELIVERY_BACKOFF_MILLIS} ms up to
+ * {@value #MAX_REDELIVERY_BACKOFF_MILLIS} ms) before it gets redelivered,
+ * so that a poison message can't keep the executor busy.
+ */
+/* package */ final class KueueSubscriptionImpl implements KueueSubscription {
+
+    private static final Logger logger = Logger.getLogger(KueueSubscriptionImpl.class.getName());
+
+    /** Default visibility timeout of the leases held by a subscription */
+    static final long VISIBILITY_TIMEOUT_MILLIS = 60_000L;
+    /** Backoff before the first redelivery of a rejected message */
+    static final long MIN_REDELIVERY_BACKOFF_MILLIS = 100L;
+    /** Upper bound of the redelivery backoff */
+    static final long MAX_REDELIVERY_BACKOFF_MILLIS = 30_000L;
+    /** Maximum number of messages leased by a single drain task */
+    static final int MAX_BATCH = 256;
+
+    /** Where a subscription gets its messages from */
+    interface Source {
+        void pollBatch(int maxMessages, long visibilityNanos, List<KueueLease> leases);
+        boolean hasMessages();
+        void unsubscribe(KueueSubscriptionImpl subscription);
+    }
+
+    private final Source source;
+    private final KueueMsgConsumer consumer;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final long visibilityNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean cancelled;
+
+    KueueSubscriptionImpl(Source source, KueueMsgConsumer consumer, Executor executor, int maxInFlight,
+            long visibilityTimeout, TimeUnit unit) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight: " + maxInFlight);
+        }
+        if (visibilityTimeout <= 0L) {
+            throw new IllegalArgumentException("visibilityTimeout: " + visibilityTimeout);
+        }
+        this.visibilityNanos = unit.toNanos(visibilityTimeout);
+        this.source = source;
+        this.consumer = Objects.requireNonNull(consumer, "consumer");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Schedules a drain task unless one is already scheduled or there is no
+     * demand.
+     */
+    void signal() {
+        if (!cancelled && inFlight.get() < maxInFlight && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                logger.log(Level.WARNING, "drain task rejected", e);
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        source.unsubscribe(this);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long delivered() {
+        return delivered.get();
+    }
+
+    @Override
+    public long rejected() {
+        return rejected.get();
+    }
+
+    private void drain() {
+        try {
+            int permits;
+            while (!cancelled && (permits = maxInFlight - inFlight.get()) > 0) {
+                ArrayList<KueueLease> leases = new ArrayList<>(Math.min(permits, MAX_BATCH));
+                source.pollBatch(Math.min(permits, MAX_BATCH), visibilityNanos, leases);
+                if (leases.isEmpty()) {
+                    break;
+                }
+                inFlight.addAndGet(leases.size());
+                for (KueueLease lease : leases) {
+                    dispatch(lease);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "", e);
+        } finally {
+            scheduled.set(false);
+        }
+        // a signal might have been swallowed while we were still scheduled
+        if (!cancelled && source.hasMessages()) {
+            signal();
+        }
+    }
+
+    private void dispatch(KueueLease lease) {
+        try {
+            executor.execute(() -> deliver(lease));
+        } catch (RejectedExecutionException e) {
+            lease.nack();
+            inFlight.decrementAndGet();
+            logger.log(Level.WARNING, "delivery rejected", e);
+        }
+    }
+
+    private void deliver(KueueLease lease) {
+        boolean ok = false;
+        try {
+            ok = !cancelled && consumer.accept(lease.value());
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "consumer failed", t);
+        }
+        try {
+            if (ok) {
+                lease.ack();
+                delivered.incrementAndGet();
+            } else {
+                rejected.incrementAndGet();
+                backOff(lease);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        signal();
+    }
+
+    /**
+     * Keeps a rejected message invisible for the redelivery backoff and
+     * signals this subscription once it has become redeliverable.
+     */
+    private void backOff(KueueLease lease) {
+        int shift = Math.min(Math.max(lease.deliveryCount() - 1, 0), 20);
+        long backoff = Math.min(MIN_REDELIVERY_BACKOFF_MILLIS << shift, MAX_REDELIVERY_BACKOFF_MILLIS);
+        if (!cancelled && lease.extend(backoff, TimeUnit.MILLISECONDS)) {
+            Redelivery.TIMER.schedule(this::signal, backoff + 1L, TimeUnit.MILLISECONDS);
+        } else {
+            lease.nack();
+        }
+    }
+
+    /** Lazily started timer for the redelivery signals of all subscriptions */
+    private static final class Redelivery {
+        static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "KueueSubscription-Redelivery");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
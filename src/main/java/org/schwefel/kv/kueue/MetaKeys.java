@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Key layout of the records in the {@link KueueManager#META_KIND} Kind. Queue
+ * offsets are keyed by the plain UTF-8 identifier. All other records start
+ * with {@code 0xFF} (which never occurs in UTF-8) followed by a type byte.
+ */
+/* package */ final class MetaKeys {
+
+    private static final byte ESCAPE = (byte) 0xFF;
+    private static final byte LOG_MARKER = 'L';
+    private static final byte LOG_HEAD = 'H';
+    private static final byte GROUP_OFFSET = 'G';
+    private static final byte SHARD_COUNT = 'S';
+    private static final byte DELAY_SEQUENCE = 'D';
+    private static final byte PRIORITY_LANES = 'P';
+    private static final byte QUEUE_HOLES = 'X';
+    private static final byte QUEUE_RECORDS = 'R';
+    private static final byte QUEUE_PACKED = 'K';
+
+    /** Consumer offset of a destructive {@link Kueue} */
+    static byte[] queueOffset(String identifier) {
+        return identifier.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Highest sequence of a {@link Kueue} that may be a hole */
+    static byte[] queueHoles(String identifier) {
+        return typed(QUEUE_HOLES, identifier);
+    }
+
+    /** First sequence of a {@link Kueue} that is stored with a header */
+    static byte[] queueRecords(String identifier) {
+        return typed(QUEUE_RECORDS, identifier);
+    }
+
+    /** First sequence of a {@link Kueue} that may be stored in a packed record */
+    static byte[] queuePacked(String identifier) {
+        return typed(QUEUE_PACKED, identifier);
+    }
+
+    /** Marks {@code identifier} as a {@link KueueLog} */
+    static byte[] logMarker(String identifier) {
+        return typed(LOG_MARKER, identifier);
+    }
+
+    /** First retained sequence of a {@link KueueLog} */
+    static byte[] logHead(String identifier) {
+        return typed(LOG_HEAD, identifier);
+    }
+
+    /** Number of shards of a sharded {@link Kueue} */
+    static byte[] shardCount(String identifier) {
+        return typed(SHARD_COUNT, identifier);
+    }
+
+    /** Reserved sequence numbers of a {@link DelayKueue} */
+    static byte[] delaySequence(String identifier) {
+        return typed(DELAY_SEQUENCE, identifier);
+    }
+
+    /** Number of lanes of a {@link PriorityKueue} */
+    static byte[] priorityLanes(String identifier) {
+        return typed(PRIORITY_LANES, identifier);
+    }
+
+    /** Common prefix of all consumer group offsets of a {@link KueueLog} */
+    static byte[] groupPrefix(String identifier) {
+        byte[] id = typed(GROUP_OFFSET, identifier);
+        byte[] prefix = new byte[id.length + 1];
+        System.arraycopy(id, 0, prefix, 0, id.length);
+        return prefix;
+    }
+
+    /** Exclusive upper bound of all keys starting with {@link #groupPrefix} */
+    static byte[] groupPrefixEnd(String identifier) {
+        byte[] end = groupPrefix(identifier);
+        end[end.length - 1] = 1;
+        return end;
+    }
+
+    /** Offset of consumer group {@code group} of a {@link KueueLog} */
+    static byte[] groupOffset(String identifier, String group) {
+        byte[] prefix = groupPrefix(identifier);
+        byte[] name = group.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[prefix.length + name.length];
+        System.arraycopy(prefix, 0, key, 0, prefix.length);
+        System.arraycopy(name, 0, key, prefix.length, name.length);
+        return key;
+    }
+
+    /** Extracts the group name from a key created by {@link #groupOffset} */
+    static String groupName(String identifier, byte[] key) {
+        int offset = groupPrefix(identifier).length;
+        return new String(key, offset, key.length - offset, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] typed(byte type, String identifier) {
+        byte[] id = identifier.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[id.length + 2];
+        key[0] = ESCAPE;
+        key[1] = type;
+        System.arraycopy(id, 0, key, 2, id.length);
+        return key;
+    }
+
+    private MetaKeys() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A RocksDB-based in-process durable queue with a fixed number of priority
+ * lanes. Lane {@code 0} has the highest priority. By default {@code take}
+ * serves the highest-priority non-empty lane first (strict priority). With
+ * {@link #setWeights(int...)} the lanes are served in proportion to their
+ * weights instead, so that low-priority lanes can't starve. Messages are
+ * FIFO within a lane.
+ */
+public interface PriorityKueue {
+
+    void put(byte[] value, int priority);
+    void putAll(List<byte[]> values, int priority);
+    byte[] poll();
+    byte[] take() throws InterruptedException;
+    byte[] take(long timeout, TimeUnit unit) throws InterruptedException;
+    void setWeights(int... weights);
+    int lanes();
+    long size();
+    long size(int priority);
+    boolean isEmpty();
+    boolean isClosed();
+    String identifier();
+    void clear();
+    long totalPuts();
+    long totalTakes();
+    KueueManager getKueueManager();
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/* package */ final class PriorityKueueBean implements PriorityKueueMXBean {
+
+    private final PriorityKueue kueue;
+
+    PriorityKueueBean(PriorityKueue kueue) {
+        this.kueue = kueue;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return kueue.identifier();
+    }
+
+    @Override
+    public long getSize() {
+        return kueue.size();
+    }
+
+    @Override
+    public int getLanes() {
+        return kueue.lanes();
+    }
+
+    @Override
+    public long[] getLaneSizes() {
+        long[] sizes = new long[kueue.lanes()];
+        for (int i = 0; i < sizes.length; ++i) {
+            sizes[i] = kueue.size(i);
+        }
+        return sizes;
+    }
+
+    @Override
+    public long getTotalPuts() {
+        return kueue.totalPuts();
+    }
+
+    @Override
+    public long getTotalTakes() {
+        return kueue.totalTakes();
+    }
+}
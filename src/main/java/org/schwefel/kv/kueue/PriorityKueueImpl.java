@@ -0,0 +1,391 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+
+import net.volcanite.util.Byte8Key;
+
+/**
+ * A RocksDB-based in-process durable priority queue. Keys are 9 bytes: the
+ * priority byte followed by the big-endian {@link Byte8Key} sequence of the
+ * lane.
+ */
+/* package */ class PriorityKueueImpl implements PriorityKueue {
+
+    /** Number of takes from a lane after which its dead region gets compacted */
+    private static final long COMPACT_INTERVAL = 65_536L;
+
+    private final KueueManager manager;
+    private final StoreOps ops;
+    private final Kind id;
+    private final Lane[] lanes;
+
+    /** Lock held by put */
+    private final ReentrantLock putLock = new ReentrantLock(true);
+    /** Lock held by take */
+    private final ReentrantLock takeLock = new ReentrantLock(true);
+    /** Wait queue for waiting takes */
+    private final Condition notEmpty = takeLock.newCondition();
+    /** Current number of messages in all lanes */
+    private final AtomicLong count = new AtomicLong();
+    /** Lane weights for weighted fair selection (null: strict priority) */
+    private int[] weights;
+    /** Smooth weighted round-robin state (guarded by takeLock) */
+    private long[] current;
+    /** Total number of successful puts */
+    private long totalPuts;
+    /** Total number of successful takes */
+    private long totalTakes;
+
+    /* package */ PriorityKueueImpl(StoreOps store, String identifier, int laneCount, KueueManager mgr) {
+        if (laneCount <= 0 || laneCount > 256) {
+            throw new IllegalArgumentException("lanes: " + laneCount);
+        }
+        manager = mgr;
+        ops = Objects.requireNonNull(store, "store");
+        id = store.getKindManagement().getOrCreateKind(Objects.requireNonNull(identifier, "identifier"));
+        lanes = new Lane[laneCount];
+        long total = 0L;
+        synchronized (ops) {
+            for (int i = 0; i < laneCount; ++i) {
+                byte[] prefix = { (byte) i };
+                Lane lane = new Lane(prefix[0]);
+                byte[] currentMin = ops.findMinKeyByPrefix(id, prefix);
+                byte[] currentMax = ops.findMaxKeyByPrefix(id, prefix);
+                if (currentMin != null) {
+                    lane.minKey = new Byte8Key(sequence(currentMin));
+                }
+                if (currentMax != null) {
+                    lane.maxKey = new Byte8Key(sequence(currentMax) + 1L);
+                }
+                if (lane.maxKey.currentValue() < lane.minKey.currentValue()) {
+                    throw new IllegalStateException("maxKey < minKey in lane " + i);
+                }
+                lane.count.set(lane.maxKey.minus(lane.minKey));
+                total += lane.count.get();
+                lanes[i] = lane;
+            }
+        }
+        count.set(total);
+    }
+
+    @Override
+    public void put(byte[] value, int priority) {
+        Objects.requireNonNull(value, "value");
+        Lane lane = lane(priority);
+        long c = -1L;
+        ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            ops.put(id, lane.key(lane.maxKey.currentValue()), value);
+            lane.maxKey.increment();
+            lane.count.incrementAndGet();
+            c = count.getAndIncrement();
+            ++totalPuts;
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0L) {
+            signalNotEmpty();
+        }
+    }
+
+    @Override
+    public void putAll(List<byte[]> values, int priority) {
+        Objects.requireNonNull(values, "values");
+        Lane lane = lane(priority);
+        int n = values.size();
+        if (n == 0) {
+            return;
+        }
+        for (byte[] value : values) {
+            Objects.requireNonNull(value, "value");
+        }
+        long c = -1L;
+        ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            long seq = lane.maxKey.currentValue();
+            try (Batch batch = ops.createBatch()) {
+                for (byte[] value : values) {
+                    batch.put(id, lane.key(seq++), value);
+                }
+                ops.writeBatch(batch);
+            }
+            lane.maxKey = new Byte8Key(seq);
+            lane.count.addAndGet(n);
+            c = count.getAndAdd(n);
+            totalPuts += n;
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0L) {
+            signalNotEmpty();
+        }
+    }
+
+    @Override
+    public byte[] poll() {
+        if (count.get() == 0L) {
+            return null;
+        }
+        ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            return (count.get() == 0L) ? null : removeNext();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] take() throws InterruptedException {
+        ReentrantLock takeLock = this.takeLock;
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0L) {
+                notEmpty.await();
+            }
+            return removeNext();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] take(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        ReentrantLock takeLock = this.takeLock;
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0L) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeNext();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the lane weights for weighted fair selection: while several lanes
+     * are non-empty, lane {@code i} gets {@code weights[i]} out of
+     * {@code sum(weights)} takes. Calling this method without arguments (or
+     * with {@code null}) restores strict priority.
+     */
+    @Override
+    public void setWeights(int... weights) {
+        if (weights != null && weights.length > 0) {
+            if (weights.length != lanes.length) {
+                throw new IllegalArgumentException("expected " + lanes.length + " weights: " + weights.length);
+            }
+            for (int w : weights) {
+                if (w <= 0) {
+                    throw new IllegalArgumentException("weights must be positive: " + w);
+                }
+            }
+        }
+        ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            if (weights == null || weights.length == 0) {
+                this.weights = null;
+                this.current = null;
+            } else {
+                this.weights = weights.clone();
+                this.current = new long[weights.length];
+            }
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @Override
+    public int lanes() {
+        return lanes.length;
+    }
+
+    @Override
+    public long size() {
+        return count.get();
+    }
+
+    @Override
+    public long size(int priority) {
+        return lane(priority).count.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0L;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !ops.isOpen();
+    }
+
+    @Override
+    public String identifier() {
+        return id.name();
+    }
+
+    @Override
+    public void clear() {
+        putLock.lock();
+        takeLock.lock();
+        try {
+            for (Lane lane : lanes) {
+                long c = lane.count.get();
+                if (c > 0L) {
+                    ops.deleteRange(id, lane.key(lane.minKey.currentValue()), lane.key(lane.maxKey.currentValue()));
+                    lane.minKey = new Byte8Key(lane.maxKey.currentValue());
+                    lane.count.addAndGet(-c);
+                    count.addAndGet(-c);
+                    totalTakes += c;
+                }
+            }
+        } finally {
+            takeLock.unlock();
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public long totalPuts() {
+        return totalPuts;
+    }
+
+    @Override
+    public long totalTakes() {
+        return totalTakes;
+    }
+
+    @Override
+    public KueueManager getKueueManager() {
+        return manager;
+    }
+
+    /**
+     * Removes the head of the next lane to serve. Must be called while holding
+     * the take lock and only if {@code count > 0}.
+     */
+    private byte[] removeNext() {
+        Lane lane = selectLane();
+        byte[] key = lane.key(lane.minKey.currentValue());
+        byte[] value = ops.singleDeleteIfPresent(id, key);
+        lane.minKey.increment();
+        lane.count.decrementAndGet();
+        if (count.getAndDecrement() > 1L) {
+            // signal other waiting takers
+            notEmpty.signal();
+        }
+        ++totalTakes;
+        if (++lane.takes % COMPACT_INTERVAL == 0L && manager != null) {
+            manager.compactAsync(id, lane.key(0L), key);
+        }
+        return value;
+    }
+
+    private Lane selectLane() {
+        int[] weights = this.weights;
+        if (weights == null) {
+            for (Lane lane : lanes) {
+                if (lane.count.get() > 0L) {
+                    return lane;
+                }
+            }
+        } else {
+            // smooth weighted round-robin over the non-empty lanes
+            long total = 0L;
+            int best = -1;
+            for (int i = 0; i < lanes.length; ++i) {
+                if (lanes[i].count.get() > 0L) {
+                    current[i] += weights[i];
+                    total += weights[i];
+                    if (best < 0 || current[i] > current[best]) {
+                        best = i;
+                    }
+                }
+            }
+            if (best >= 0) {
+                current[best] -= total;
+                return lanes[best];
+            }
+        }
+        throw new IllegalStateException("all lanes are empty");
+    }
+
+    /**
+     * Signals a waiting take. Called only from put.
+     */
+    private void signalNotEmpty() {
+        ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    private Lane lane(int priority) {
+        if (priority < 0 || priority >= lanes.length) {
+            throw new IllegalArgumentException("priority: " + priority + " (lanes: " + lanes.length + ")");
+        }
+        return lanes[priority];
+    }
+
+    private static long sequence(byte[] key) {
+        byte[] seq = new byte[8];
+        System.arraycopy(key, 1, seq, 0, 8);
+        return new Byte8Key(seq).currentValue();
+    }
+
+    private static final class Lane {
+        final byte priority;
+        final AtomicLong count = new AtomicLong();
+        /** Head sequence (guarded by takeLock) */
+        Byte8Key minKey = new Byte8Key(Byte8Key.minKey());
+        /** Next sequence (guarded by putLock) */
+        Byte8Key maxKey = new Byte8Key(Byte8Key.minKey());
+        long takes;
+
+        Lane(byte priority) {
+            this.priority = priority;
+        }
+
+        byte[] key(long sequence) {
+            byte[] key = new byte[9];
+            key[0] = priority;
+            System.arraycopy(new Byte8Key(sequence).current(), 0, key, 1, 8);
+            return key;
+        }
+    }
+}
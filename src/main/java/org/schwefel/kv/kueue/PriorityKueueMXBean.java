@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * JMX view of a {@link PriorityKueue}, registered by
+ * {@link KueueManager#registerMBeans()}. {@link #getLaneSizes()} lists the
+ * sizes of the lanes by priority.
+ */
+public interface PriorityKueueMXBean {
+
+    String getIdentifier();
+    long getSize();
+    int getLanes();
+    long[] getLaneSizes();
+    long getTotalPuts();
+    long getTotalTakes();
+}
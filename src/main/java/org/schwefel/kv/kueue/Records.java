@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.List;
+
+/**
+ * Encoding of stored messages that carry a header: one flags byte followed by
+ * the 8-byte (big-endian) append timestamp in milliseconds and the payload.
+ * <p>
+ * The payload of a packed record is a 4-byte message count followed by the
+ * length-prefixed (4 bytes) messages. A packed record with {@code n}
+ * messages is stored under the first of {@code n} consecutive sequence
+ * numbers, the other {@code n - 1} keys are never written.
+ */
+/* package */ final class Records {
+
+    static final int HEADER_LENGTH = 9;
+
+    /** Flag of a message that has been moved to a dead-letter queue */
+    static final byte DEAD_LETTER = 0x01;
+
+    /** Flag of a record that packs several messages */
+    static final byte PACKED = 0x02;
+
+    /**
+     * Flag of a (never stored) record of a single message that has been
+     * unpacked from a packed record
+     */
+    static final byte MEMBER = 0x04;
+
+    static byte[] encode(byte flags, long timestampMillis, byte[] payload) {
+        byte[] record = new byte[HEADER_LENGTH + payload.length];
+        record[0] = flags;
+        putLong(record, 1, timestampMillis);
+        System.arraycopy(payload, 0, record, HEADER_LENGTH, payload.length);
+        return record;
+    }
+
+    static byte[] pack(long timestampMillis, List<byte[]> payloads) {
+        int length = HEADER_LENGTH + 4;
+        for (byte[] payload : payloads) {
+            length += 4 + payload.length;
+        }
+        byte[] record = new byte[length];
+        record[0] = PACKED;
+        putLong(record, 1, timestampMillis);
+        putInt(record, HEADER_LENGTH, payloads.size());
+        int off = HEADER_LENGTH + 4;
+        for (byte[] payload : payloads) {
+            putInt(record, off, payload.length);
+            System.arraycopy(payload, 0, record, off + 4, payload.length);
+            off += 4 + payload.length;
+        }
+        return record;
+    }
+
+    /**
+     * Returns the offsets of the messages of a packed record (each pointing
+     * at the message's length prefix).
+     */
+    static int[] memberOffsets(byte[] packed) {
+        int[] offsets = new int[getInt(packed, HEADER_LENGTH)];
+        int off = HEADER_LENGTH + 4;
+        for (int i = 0; i < offsets.length; ++i) {
+            offsets[i] = off;
+            off += 4 + getInt(packed, off);
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the record of a single message of a packed record, it carries
+     * the flags and the timestamp of the packed record.
+     */
+    static byte[] member(byte[] packed, int offset) {
+        int length = getInt(packed, offset);
+        byte[] record = new byte[HEADER_LENGTH + length];
+        record[0] = (byte) ((packed[0] & ~PACKED) | MEMBER);
+        System.arraycopy(packed, 1, record, 1, HEADER_LENGTH - 1);
+        System.arraycopy(packed, offset + 4, record, HEADER_LENGTH, length);
+        return record;
+    }
+
+    static byte flags(byte[] record) {
+        return record[0];
+    }
+
+    static boolean isPacked(byte[] record) {
+        return (record[0] & PACKED) != 0;
+    }
+
+    static boolean isMember(byte[] record) {
+        return (record[0] & MEMBER) != 0;
+    }
+
+    static long timestamp(byte[] record) {
+        long ts = 0L;
+        for (int i = 1; i < HEADER_LENGTH; ++i) {
+            ts = (ts << 8) | (record[i] & 0xFFL);
+        }
+        return ts;
+    }
+
+    static byte[] payload(byte[] record) {
+        byte[] payload = new byte[record.length - HEADER_LENGTH];
+        System.arraycopy(record, HEADER_LENGTH, payload, 0, payload.length);
+        return payload;
+    }
+
+    static int payloadLength(byte[] record) {
+        return record.length - HEADER_LENGTH;
+    }
+
+    private static void putInt(byte[] bytes, int off, int x) {
+        for (int i = 3; i >= 0; --i) {
+            bytes[off + i] = (byte) x;
+            x >>>= 8;
+        }
+    }
+
+    private static int getInt(byte[] bytes, int off) {
+        int x = 0;
+        for (int i = 0; i < 4; ++i) {
+            x = (x << 8) | (bytes[off + i] & 0xFF);
+        }
+        return x;
+    }
+
+    private static void putLong(byte[] bytes, int off, long x) {
+        for (int i = 7; i >= 0; --i) {
+            bytes[off + i] = (byte) x;
+            x >>>= 8;
+        }
+    }
+
+    private Records() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+/**
+ * Retention limits of a {@link KueueLog}. A message becomes eligible for
+ * deletion only after every consumer group of the log has consumed it. An
+ * eligible message is deleted as soon as any of the limits is exceeded: the
+ * log holds more than {@code maxMessages} messages, the message is older
+ * than {@code maxAgeMillis} or the log is larger than {@code maxBytes}.
+ */
+public final class Retention {
+
+    /** Deletes messages as soon as all consumer groups have consumed them */
+    public static final Retention UNTIL_CONSUMED = new Retention(0L, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /** Never deletes any message */
+    public static final Retention FOREVER = new Retention(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxMessages;
+    private final long maxAgeMillis;
+    private final long maxBytes;
+
+    /**
+     * Creates retention limits. Use {@code Long.MAX_VALUE} for "unlimited".
+     * 
+     * @param maxMessages
+     *            the number of messages to retain
+     * @param maxAgeMillis
+     *            the maximum age of a retained message (in milliseconds)
+     * @param maxBytes
+     *            the maximum size of all retained messages (in bytes)
+     */
+    public Retention(long maxMessages, long maxAgeMillis, long maxBytes) {
+        if (maxMessages < 0L || maxAgeMillis < 0L || maxBytes < 0L) {
+            throw new IllegalArgumentException(
+                    "maxMessages: " + maxMessages + ", maxAgeMillis: " + maxAgeMillis + ", maxBytes: " + maxBytes);
+        }
+        this.maxMessages = maxMessages;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxBytes = maxBytes;
+    }
+
+    public static Retention ofMessages(long maxMessages) {
+        return new Retention(maxMessages, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public static Retention ofAge(long maxAgeMillis) {
+        return new Retention(Long.MAX_VALUE, maxAgeMillis, Long.MAX_VALUE);
+    }
+
+    public static Retention ofBytes(long maxBytes) {
+        return new Retention(Long.MAX_VALUE, Long.MAX_VALUE, maxBytes);
+    }
+
+    public long getMaxMessages() {
+        return maxMessages;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /* package */ boolean exceeded(long messages, long bytes, long ageMillis) {
+        return messages > maxMessages || bytes > maxBytes || ageMillis > maxAgeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return Retention.class.getSimpleName() + "{maxMessages=" + maxMessages + ", maxAgeMillis=" + maxAgeMillis
+                + ", maxBytes=" + maxBytes + "}";
+    }
+}
@@ -0,0 +1,727 @@
+/*
+ * Copyright 2026 Stefan Zobel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schwefel.kv.kueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.Tx;
+
+/**
+ * A {@link Kueue} that spreads its messages round-robin over {@code N}
+ * independent sub-queues (shards) with non-fair locks, so that concurrent
+ * producers and consumers mostly don't contend for the same lock. Takers
+ * start at a rotating shard and steal from the other shards if that one is
+ * empty. Messages are FIFO per shard only, there is no global order.
+ * <p>
+ * Leases, {@code browse} and {@code get} identify a message by its
+ * position: the sequence number within its shard interleaved with the shard
+ * index ({@code sequence * N + shard}), so that the positions of messages
+ * that have been put round-robin roughly follow their arrival.
+ */
+/* package */ class ShardedKueueImpl implements Kueue, KueueSubscriptionImpl.Source {
+
+    /** Upper bound for a single wait of a blocking lease poll */
+    private static final long LEASE_WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final long OFFER_WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    private final KueueImpl[] shards;
+    private final String identifier;
+    private final KueueManager manager;
+    private final AtomicInteger putCursor = new AtomicInteger();
+    private final AtomicInteger takeCursor = new AtomicInteger();
+    private volatile Capacity capacity = Capacity.UNBOUNDED;
+
+    /** Lock only used for parking takers when all shards are empty */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    /** Number of parked takers (producers only signal if there are any) */
+    private final AtomicLong waiters = new AtomicLong();
+
+    /* package */ ShardedKueueImpl(KueueImpl[] shards, String identifier, KueueManager mgr) {
+        this.shards = shards;
+        this.identifier = identifier;
+        this.manager = mgr;
+    }
+
+    /* package */ static String shardIdentifier(String identifier, int shard) {
+        return identifier + "#" + shard;
+    }
+
+    /**
+     * Whether {@code identifier} has the form of a
+     * {@link #shardIdentifier(String, int)}.
+     */
+    /* package */ static boolean isShardIdentifier(String identifier) {
+        int pos = identifier.lastIndexOf('#');
+        if (pos < 0 || pos == identifier.length() - 1) {
+            return false;
+        }
+        for (int i = pos + 1; i < identifier.length(); ++i) {
+            if (identifier.charAt(i) < '0' || identifier.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(byte[] value) {
+        if (!offer(value)) {
+            throw new IllegalStateException(identifier + " is full (" + capacity + ")");
+        }
+    }
+
+    /**
+     * Tries the shards round-robin, starting at the next shard, and fails
+     * only if all shards are full.
+     */
+    @Override
+    public boolean offer(byte[] value) {
+        int start = putCursor.getAndIncrement();
+        for (int i = 0; i < shards.length; ++i) {
+            if (shard(start + i).offer(value)) {
+                signalAvailable();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits in short slices on one shard at a time so that space freed up
+     * in any shard is noticed.
+     */
+    @Override
+    public boolean offer(byte[] value, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            if (offer(value)) {
+                return true;
+            }
+            long nanos = deadline - System.nanoTime();
+            if (nanos <= 0L) {
+                return false;
+            }
+            if (nextShard(putCursor).offer(value, Math.min(nanos, OFFER_WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS)) {
+                signalAvailable();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Appends all {@code values} to a single shard (with a single
+     * {@code WriteBatch}), so they keep their relative order.
+     */
+    @Override
+    public void putAll(List<byte[]> values) {
+        nextShard(putCursor).putAll(values);
+        signalAvailable();
+    }
+
+    /**
+     * Appends all {@code values} as a single packed record to a single shard.
+     */
+    @Override
+    public void putPacked(List<byte[]> values) {
+        nextShard(putCursor).putPacked(values);
+        signalAvailable();
+    }
+
+    @Override
+    public void put(Tx tx, byte[] value) {
+        nextShard(putCursor).put(tx, value);
+        tx.onCommit(this::signalAvailable);
+    }
+
+    @Override
+    public void put(Batch batch, byte[] value) {
+        nextShard(putCursor).put(batch, value);
+        batch.onCommit(this::signalAvailable);
+    }
+
+    @Override
+    public byte[] take() throws InterruptedException {
+        for (;;) {
+            byte[] value = tryTakeAny();
+            if (value != null) {
+                return value;
+            }
+            lock.lockInterruptibly();
+            waiters.incrementAndGet();
+            try {
+                // re-check after registering as a waiter
+                if ((value = tryTakeAny()) != null) {
+                    return value;
+                }
+                available.await();
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public byte[] take(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            byte[] value = tryTakeAny();
+            if (value != null || nanos <= 0L) {
+                return value;
+            }
+            lock.lockInterruptibly();
+            waiters.incrementAndGet();
+            try {
+                if ((value = tryTakeAny()) != null) {
+                    return value;
+                }
+                nanos = available.awaitNanos(nanos);
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<byte[]> takeBatch(int maxMessages, long timeout, TimeUnit unit) throws InterruptedException {
+        if (maxMessages <= 0) {
+            return Collections.emptyList();
+        }
+        long nanos = unit.toNanos(timeout);
+        ArrayList<byte[]> values = new ArrayList<>(Math.min(maxMessages, 1_024));
+        for (;;) {
+            if (drainTo(values, maxMessages) > 0 || nanos <= 0L) {
+                return values;
+            }
+            lock.lockInterruptibly();
+            waiters.incrementAndGet();
+            try {
+                if (drainTo(values, maxMessages) > 0) {
+                    return values;
+                }
+                nanos = available.awaitNanos(nanos);
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super byte[]> c, int maxMessages) {
+        int drained = 0;
+        int start = takeCursor.getAndIncrement();
+        for (int i = 0; i < shards.length && drained < maxMessages; ++i) {
+            drained += shard(start + i).drainTo(c, maxMessages - drained);
+        }
+        return drained;
+    }
+
+    /**
+     * Offers the head message of the first non-empty shard to the consumer.
+     */
+    @Override
+    public boolean accept(KueueMsgConsumer consumer) {
+        if (consumer == null) {
+            return false;
+        }
+        int start = takeCursor.getAndIncrement();
+        for (int i = 0; i < shards.length; ++i) {
+            KueueImpl shard = shard(start + i);
+            if (!shard.isEmpty()) {
+                return shard.accept(consumer);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean accept(long timeout, TimeUnit unit, KueueMsgConsumer consumer) throws InterruptedException {
+        if (consumer == null) {
+            return false;
+        }
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            if (!isEmpty() || nanos <= 0L) {
+                return accept(consumer);
+            }
+            lock.lockInterruptibly();
+            waiters.incrementAndGet();
+            try {
+                if (isEmpty()) {
+                    nanos = available.awaitNanos(nanos);
+                }
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public KueueLease poll(long visibilityTimeout, TimeUnit unit) {
+        int start = takeCursor.getAndIncrement();
+        for (int i = 0; i < shards.length; ++i) {
+            int index = shardIndex(start + i);
+            KueueLease lease = shards[index].poll(visibilityTimeout, unit);
+            if (lease != null) {
+                return new ShardLease(lease, index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #poll(long, TimeUnit)}, but waits up to {@code timeout} for
+     * a message. Expired or nacked leases of the shards are noticed with a
+     * delay of a few milliseconds at most.
+     */
+    @Override
+    public KueueLease poll(long timeout, long visibilityTimeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            KueueLease lease = poll(visibilityTimeout, unit);
+            if (lease != null || nanos <= 0L) {
+                return lease;
+            }
+            lock.lockInterruptibly();
+            waiters.incrementAndGet();
+            try {
+                if ((lease = poll(visibilityTimeout, unit)) != null) {
+                    return lease;
+                }
+                long waitNanos = Math.min(nanos, LEASE_WAIT_SLICE_NANOS);
+                nanos -= waitNanos - available.awaitNanos(waitNanos);
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public KueueSubscription subscribe(KueueMsgConsumer consumer, Executor executor, int maxInFlight) {
+        return subscribe(consumer, executor, maxInFlight, KueueSubscriptionImpl.VISIBILITY_TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public KueueSubscription subscribe(KueueMsgConsumer consumer, Executor executor, int maxInFlight,
+            long visibilityTimeout, TimeUnit unit) {
+        KueueSubscriptionImpl subscription = new KueueSubscriptionImpl(this, consumer, executor, maxInFlight,
+                visibilityTimeout, unit);
+        for (KueueImpl shard : shards) {
+            shard.addSubscription(subscription);
+        }
+        subscription.signal();
+        return subscription;
+    }
+
+    @Override
+    public void pollBatch(int maxMessages, long visibilityNanos, List<KueueLease> leases) {
+        int start = takeCursor.getAndIncrement();
+        int limit = leases.size() + maxMessages;
+        for (int i = 0; i < shards.length && leases.size() < limit; ++i) {
+            int index = shardIndex(start + i);
+            int from = leases.size();
+            shards[index].pollBatch(limit - leases.size(), visibilityNanos, leases);
+            for (int j = from; j < leases.size(); ++j) {
+                leases.set(j, new ShardLease(leases.get(j), index));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasMessages() {
+        for (KueueImpl shard : shards) {
+            if (shard.hasMessages()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void unsubscribe(KueueSubscriptionImpl subscription) {
+        for (KueueImpl shard : shards) {
+            shard.unsubscribe(subscription);
+        }
+    }
+
+    @Override
+    public long inFlightCount() {
+        long inFlight = 0L;
+        for (KueueImpl shard : shards) {
+            inFlight += shard.inFlightCount();
+        }
+        return inFlight;
+    }
+
+    /**
+     * Returns the head message of the shard the next take would start with
+     * (or of the first non-empty shard after it).
+     */
+    @Override
+    public byte[] peek() {
+        int start = takeCursor.get();
+        for (int i = 0; i < shards.length; ++i) {
+            byte[] value = shard(start + i).peek();
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Merges cursors over all shards in the order of the message positions.
+     * Every shard is read from a snapshot of its own, so the result isn't a
+     * consistent snapshot of the queue as a whole.
+     */
+    @Override
+    public KueueCursor browse(long fromPosition, int limit) {
+        long from = Math.max(fromPosition, 0L);
+        int n = shards.length;
+        KueueCursor[] cursors = new KueueCursor[n];
+        try {
+            for (int i = 0; i < n; ++i) {
+                // the smallest sequence of shard i whose position is >= from
+                long sequence = (from <= i) ? 0L : (from - i + n - 1) / n;
+                cursors[i] = shards[i].browse(sequence, limit);
+            }
+        } catch (RuntimeException e) {
+            for (KueueCursor cursor : cursors) {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            throw e;
+        }
+        return new MergingCursor(cursors, limit);
+    }
+
+    /**
+     * Returns the pending message at the given position or {@code null} if
+     * there is no such message.
+     */
+    @Override
+    public byte[] get(long position) {
+        if (position < 0L) {
+            return null;
+        }
+        return shards[(int) (position % shards.length)].get(position / shards.length);
+    }
+
+    private long position(int shard, long sequence) {
+        return sequence * shards.length + shard;
+    }
+
+    @Override
+    public long size() {
+        long size = 0L;
+        for (KueueImpl shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = 0L;
+        for (KueueImpl shard : shards) {
+            bytes += shard.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public Capacity getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Splits the capacity evenly between the shards (rounding up). Since
+     * {@code offer} tries every shard, a message is rejected only if all
+     * shards have reached their share of the limits.
+     */
+    @Override
+    public void setCapacity(Capacity capacity) {
+        Objects.requireNonNull(capacity, "capacity");
+        Capacity perShard = capacity.split(shards.length);
+        for (KueueImpl shard : shards) {
+            shard.setCapacity(perShard);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (KueueImpl shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return shards[0].isClosed();
+    }
+
+    @Override
+    public String identifier() {
+        return identifier;
+    }
+
+    @Override
+    public void clear() {
+        for (KueueImpl shard : shards) {
+            shard.clear();
+        }
+    }
+
+    @Override
+    public long totalPuts() {
+        long puts = 0L;
+        for (KueueImpl shard : shards) {
+            puts += shard.totalPuts();
+        }
+        return puts;
+    }
+
+    @Override
+    public long totalTakes() {
+        long takes = 0L;
+        for (KueueImpl shard : shards) {
+            takes += shard.totalTakes();
+        }
+        return takes;
+    }
+
+    @Override
+    public KueueMetrics getMetrics() {
+        KueueMetrics metrics = KueueMetrics.empty(identifier);
+        for (KueueImpl shard : shards) {
+            metrics = metrics.merge(identifier, shard.getMetrics());
+        }
+        return metrics;
+    }
+
+    @Override
+    public DeadLetterPolicy getDeadLetterPolicy() {
+        return shards[0].getDeadLetterPolicy();
+    }
+
+    /**
+     * Applies the policy to every shard, all shards share the same
+     * dead-letter queue.
+     */
+    @Override
+    public void setDeadLetterPolicy(DeadLetterPolicy policy) {
+        if (policy != null && identifier.equals(policy.getDeadLetterKueue())) {
+            throw new IllegalArgumentException("A Kueue can't be its own dead-letter queue: " + identifier);
+        }
+        for (KueueImpl shard : shards) {
+            shard.setDeadLetterPolicy(policy);
+        }
+    }
+
+    @Override
+    public long totalDeadLettered() {
+        long deadLettered = 0L;
+        for (KueueImpl shard : shards) {
+            deadLettered += shard.totalDeadLettered();
+        }
+        return deadLettered;
+    }
+
+    @Override
+    public KueueManager getKueueManager() {
+        return manager;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    private byte[] tryTakeAny() {
+        int start = takeCursor.getAndIncrement();
+        for (int i = 0; i < shards.length; ++i) {
+            KueueImpl shard = shard(start + i);
+            if (!shard.isEmpty()) {
+                byte[] value = shard.tryTake();
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void signalAvailable() {
+        if (waiters.get() > 0L) {
+            ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private KueueImpl nextShard(AtomicInteger cursor) {
+        return shard(cursor.getAndIncrement());
+    }
+
+    private KueueImpl shard(int i) {
+        return shards[shardIndex(i)];
+    }
+
+    private int shardIndex(int i) {
+        return (i & 0x7fffffff) % shards.length;
+    }
+
+    /**
+     * Returns the message with the smallest position among the heads of the
+     * shard cursors.
+     */
+    private final class MergingCursor implements KueueCursor {
+        private final KueueCursor[] cursors;
+        /** Whether a shard cursor is positioned on a message */
+        private final boolean[] positioned;
+        private int remaining;
+        private boolean started;
+        /** The shard of the current message or -1 */
+        private int current = -1;
+
+        MergingCursor(KueueCursor[] cursors, int limit) {
+            this.cursors = cursors;
+            this.positioned = new boolean[cursors.length];
+            this.remaining = limit;
+        }
+
+        @Override
+        public boolean next() {
+            if (!started) {
+                started = true;
+                for (int i = 0; i < cursors.length; ++i) {
+                    positioned[i] = remaining > 0 && cursors[i].next();
+                }
+            } else if (current >= 0) {
+                positioned[current] = cursors[current].next();
+            }
+            current = -1;
+            if (remaining <= 0) {
+                close();
+                return false;
+            }
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < cursors.length; ++i) {
+                if (positioned[i]) {
+                    long position = position(i, cursors[i].sequence());
+                    if (current < 0 || position < min) {
+                        min = position;
+                        current = i;
+                    }
+                }
+            }
+            if (current < 0) {
+                close();
+                return false;
+            }
+            --remaining;
+            return true;
+        }
+
+        @Override
+        public long sequence() {
+            return (current < 0) ? -1L : position(current, cursors[current].sequence());
+        }
+
+        @Override
+        public byte[] value() {
+            return (current < 0) ? null : cursors[current].value();
+        }
+
+        @Override
+        public void close() {
+            remaining = 0;
+            current = -1;
+            for (KueueCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * A lease of a shard that reports the message's position instead of its
+     * sequence number within the shard.
+     */
+    private final class ShardLease implements KueueLease {
+        private final KueueLease lease;
+        private final long position;
+
+        ShardLease(KueueLease lease, int shard) {
+            this.lease = lease;
+            this.position = position(shard, lease.sequence());
+        }
+
+        @Override
+        public long sequence() {
+            return position;
+        }
+
+        @Override
+        public byte[] value() {
+            return lease.value();
+        }
+
+        @Override
+        public int deliveryCount() {
+            return lease.deliveryCount();
+        }
+
+        @Override
+        public boolean ack() {
+            return lease.ack();
+        }
+
+        @Override
+        public boolean nack() {
+            return lease.nack();
+        }
+
+        @Override
+        public boolean extend(long visibilityTimeout, TimeUnit unit) {
+            return lease.extend(visibilityTimeout, unit);
+        }
+    }
+}
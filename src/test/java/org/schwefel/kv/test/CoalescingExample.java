@@ -0,0 +1,41 @@
+package org.schwefel.kv.test;
+
+import java.nio.file.Paths;
+
+import org.schwefel.kv.CoalescingTransmitter;
+import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.TransmitTask;
+
+import static org.schwefel.kv.test.TestUtil.randomBytes;
+
+public class CoalescingExample {
+
+    public static void main(String[] args) {
+
+        CoalescingTransmitter executor = new CoalescingTransmitter();
+        executor.start();
+
+        int RUNS = 500_000;
+        long runtime = 0L;
+
+        try (StoreOps store = new KVStore(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kind defaultKind = store.getKindManagement().getDefaultKind();
+            for (int i = 0; i < RUNS; ++i) {
+                long start = System.currentTimeMillis();
+                byte[] key = randomBytes();
+                byte[] value = randomBytes();
+
+                executor.execute(new TransmitTask(store, defaultKind, key, value));
+                runtime += (System.currentTimeMillis() - start);
+            }
+
+            System.out.println("runti>  avg   :  " + (runtime / (double) RUNS) + " ms");
+            long shutdownMs = executor.stop(25_000L);
+            System.out.println("shutdown took :  " + shutdownMs + " ms");
+            System.out.println("batches       :  " + executor.getBatchesWritten() + " , written: "
+                    + executor.getTasksWritten() + " , coalesced: " + executor.getTasksCoalesced());
+        }
+    }
+}
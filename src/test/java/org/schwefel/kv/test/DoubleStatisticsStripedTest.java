@@ -0,0 +1,71 @@
+package org.schwefel.kv.test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.volcanite.util.DoubleStatistics;
+import net.volcanite.util.DoubleStatisticsNoSync;
+import net.volcanite.util.DoubleStatisticsStriped;
+
+public class DoubleStatisticsStripedTest {
+
+    private static final int THREADS = 8;
+    private static final int VALUES_PER_THREAD = 250_000;
+    private static final double TOLERANCE = 1e-9;
+
+    public static void main(String[] args) throws InterruptedException {
+        Random rnd = new Random(42L);
+        double[][] values = new double[THREADS][VALUES_PER_THREAD];
+        DoubleStatisticsNoSync expected = new DoubleStatisticsNoSync();
+        for (double[] perThread : values) {
+            for (int i = 0; i < perThread.length; ++i) {
+                perThread[i] = 1_000.0 * rnd.nextGaussian() + 5_000.0;
+                expected.accept(perThread[i]);
+            }
+        }
+
+        DoubleStatisticsStriped striped = new DoubleStatisticsStriped();
+        // half of the threads terminate before the first read, so their cells
+        // get folded into the retired accumulator
+        runThreads(striped, values, 0, THREADS / 2);
+        System.out.println("after the first half : " + striped);
+        runThreads(striped, values, THREADS / 2, THREADS);
+
+        System.out.println("striped              : " + striped);
+        System.out.println("no sync              : " + expected);
+        check("count", expected.getCount(), striped.getCount());
+        check("sum", expected.getSum(), striped.getSum());
+        check("min", expected.getMin(), striped.getMin());
+        check("max", expected.getMax(), striped.getMax());
+        check("average", expected.getAverage(), striped.getAverage());
+        check("variance", expected.getVariance(), striped.getVariance());
+        check("stddev", expected.getStandardDeviation(), striped.getStandardDeviation());
+        System.out.println("done");
+    }
+
+    private static void runThreads(DoubleStatistics stats, double[][] values, int from, int to)
+            throws InterruptedException {
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = from; t < to; ++t) {
+            double[] perThread = values[t];
+            Thread thread = new Thread(() -> {
+                for (double value : perThread) {
+                    stats.accept(value);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void check(String what, double expected, double actual) {
+        double error = Math.abs(expected - actual) / Math.max(Math.abs(expected), 1.0);
+        if (error > TOLERANCE) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+        System.out.println(what + " matches (relative error " + error + ")");
+    }
+}
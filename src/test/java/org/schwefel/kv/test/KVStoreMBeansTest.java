@@ -0,0 +1,47 @@
+package org.schwefel.kv.test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
+
+import static org.schwefel.kv.test.TestUtil.randomBytes;
+
+public class KVStoreMBeansTest {
+
+    public static void main(String[] args) throws Exception {
+        int RUNS = 10_000;
+
+        try (KVStore store = new KVStore(Paths.get("D:/Temp/rocksdb_database"))) {
+            store.registerMBeans();
+            Kind kind = store.getKindManagement().getOrCreateKind("Test-MBeans");
+            for (int i = 0; i < RUNS; ++i) {
+                store.put(kind, randomBytes(), randomBytes());
+            }
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String storeName = ObjectName.quote(store.getDirectory());
+            ObjectName storeBean = new ObjectName("org.schwefel.kv:type=KVStore,store=" + storeName);
+            ObjectName kindBean = new ObjectName(
+                    "org.schwefel.kv:type=Kind,store=" + storeName + ",name=" + ObjectName.quote(kind.name()));
+
+            server.invoke(storeBean, "flush", null, null);
+            printAttributes(server, storeBean);
+            printAttributes(server, kindBean);
+            server.invoke(kindBean, "compact", null, null);
+            System.out.println("compacted, estimated keys: " + server.getAttribute(kindBean, "EstimatedKeys"));
+        }
+    }
+
+    private static void printAttributes(MBeanServer server, ObjectName name) throws Exception {
+        System.out.println(name);
+        for (MBeanAttributeInfo attribute : server.getMBeanInfo(name).getAttributes()) {
+            System.out.println("  " + attribute.getName() + ": " + server.getAttribute(name, attribute.getName()));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.schwefel.kv.test;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.Stats;
+import org.schwefel.kv.StoreOps;
+
+import net.volcanite.util.LogHistogram;
+
+import static org.schwefel.kv.test.TestUtil.randomBytes;
+
+public class LatencyPercentilesTest {
+
+    public static void main(String[] args) {
+        int RUNS = 250_000;
+
+        try (StoreOps store = new KVStore(Paths.get("C:/Temp/rocksdb_database"))) {
+            Kind defaultKind = store.getKindManagement().getDefaultKind();
+
+            for (int i = 0; i < RUNS; ++i) {
+                byte[] key = randomBytes();
+                store.put(defaultKind, key, randomBytes());
+                store.get(defaultKind, key);
+                store.delete(defaultKind, key);
+            }
+            printLatencyPercentiles(store.getStats());
+        }
+    }
+
+    private static void printLatencyPercentiles(Stats stats) {
+        for (Map.Entry<String, LogHistogram.Snapshot> e : stats.getLatencySnapshots(true).entrySet()) {
+            LogHistogram.Snapshot s = e.getValue();
+            if (s.getCount() > 0L) {
+                System.out.println(e.getKey() + " (ns)> " + s);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.schwefel.kv.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.volcanite.util.LogHistogram;
+
+public class LogHistogramTest {
+
+    /** 8 sub-buckets per power of two */
+    private static final double MAX_RELATIVE_ERROR = 0.125;
+    private static final double[] PERCENTILES = { 50.0, 99.0, 99.9 };
+
+    public static void main(String[] args) {
+        checkBucketIndexing();
+        checkPercentileRank();
+        checkDistribution("uniform", uniform(1_000_000));
+        checkDistribution("exponential", exponential(1_000_000, 250_000.0, new Random(7L)));
+        checkDistribution("log-normal", logNormal(1_000_000, 10.0, 2.0, new Random(13L)));
+        checkSnapshotAndReset();
+        System.out.println("done");
+    }
+
+    /**
+     * Every value must land in a bucket whose upper end is at most 12.5%
+     * above it: with a larger value present, the median of {v, v, max} is
+     * the upper end of v's bucket.
+     */
+    private static void checkBucketIndexing() {
+        Random rnd = new Random(1L);
+        long[] values = new long[20_000];
+        int n = 0;
+        for (int shift = 0; shift < 62; ++shift) {
+            long p = 1L << shift;
+            values[n++] = p - 1L;
+            values[n++] = p;
+            values[n++] = p + 1L;
+            values[n++] = p + (p >>> 1);
+        }
+        while (n < values.length) {
+            values[n++] = rnd.nextLong() >>> (1 + rnd.nextInt(63));
+        }
+        for (long v : values) {
+            LogHistogram h = new LogHistogram();
+            h.record(v);
+            h.record(v);
+            h.record(Long.MAX_VALUE);
+            long reported = h.snapshot().getValueAtPercentile(50.0);
+            if (reported < v || (reported - v) > v * MAX_RELATIVE_ERROR) {
+                throw new AssertionError("bucket of " + v + " reports " + reported);
+            }
+        }
+        System.out.println("bucket indexing ok for " + values.length + " values");
+    }
+
+    /** Values below 8 have buckets of their own, so their ranks are exact */
+    private static void checkPercentileRank() {
+        LogHistogram h = new LogHistogram();
+        for (long v = 0L; v < 8L; ++v) {
+            h.record(v);
+        }
+        h.record(-5L); // recorded as 0
+        LogHistogram.Snapshot s = h.snapshot();
+        check("count", 9L, s.getCount());
+        check("min", 0L, s.getMin());
+        check("max", 7L, s.getMax());
+        check("p0", 0L, s.getValueAtPercentile(0.0));
+        check("p20", 0L, s.getValueAtPercentile(20.0)); // rank 2
+        check("p25", 1L, s.getValueAtPercentile(25.0)); // rank 3
+        check("p50", 3L, s.getValueAtPercentile(50.0)); // rank 5
+        check("p100", 7L, s.getValueAtPercentile(100.0));
+        try {
+            s.getValueAtPercentile(100.1);
+            throw new AssertionError("percentile > 100 accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        check("empty p50", 0L, new LogHistogram().snapshot().getValueAtPercentile(50.0));
+        System.out.println("percentile rank ok");
+    }
+
+    /**
+     * The reported percentile is the upper end of the bucket that holds the
+     * exact one, so it is never below it and at most 12.5% above it.
+     */
+    private static void checkDistribution(String name, long[] values) {
+        LogHistogram h = new LogHistogram();
+        for (long v : values) {
+            h.record(v);
+        }
+        LogHistogram.Snapshot s = h.snapshot();
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        check(name + " count", values.length, s.getCount());
+        check(name + " min", sorted[0], s.getMin());
+        check(name + " max", sorted[sorted.length - 1], s.getMax());
+        for (double percentile : PERCENTILES) {
+            long exact = sorted[(int) Math.ceil(sorted.length * (percentile / 100.0)) - 1];
+            long reported = s.getValueAtPercentile(percentile);
+            double error = (reported - exact) / (double) Math.max(exact, 1L);
+            if (reported < exact || error > MAX_RELATIVE_ERROR) {
+                throw new AssertionError(name + " p" + percentile + ": exact " + exact + ", reported " + reported);
+            }
+            System.out.println(name + " p" + percentile + ": exact " + exact + ", reported " + reported + " (error "
+                    + String.format("%.4f", error) + ")");
+        }
+    }
+
+    private static void checkSnapshotAndReset() {
+        LogHistogram h = new LogHistogram();
+        for (long v = 1L; v <= 1_000L; ++v) {
+            h.record(v);
+        }
+        LogHistogram.Snapshot first = h.snapshotAndReset();
+        check("first interval count", 1_000L, first.getCount());
+        check("first interval sum", 500_500L, first.getSum());
+        LogHistogram.Snapshot empty = h.snapshot();
+        check("after reset count", 0L, empty.getCount());
+        check("after reset p99", 0L, empty.getValueAtPercentile(99.0));
+        for (long v = 1L; v <= 10L; ++v) {
+            h.record(1_000_000L * v);
+        }
+        LogHistogram.Snapshot second = h.snapshotAndReset();
+        check("second interval count", 10L, second.getCount());
+        check("second interval min", 1_000_000L, second.getMin());
+        check("second interval max", 10_000_000L, second.getMax());
+        LogHistogram.Snapshot merged = first.merge(second);
+        check("merged count", 1_010L, merged.getCount());
+        check("merged min", 1L, merged.getMin());
+        check("merged max", 10_000_000L, merged.getMax());
+        System.out.println("snapshotAndReset ok");
+    }
+
+    private static long[] uniform(int n) {
+        long[] values = new long[n];
+        for (int i = 0; i < n; ++i) {
+            values[i] = i + 1L;
+        }
+        return values;
+    }
+
+    private static long[] exponential(int n, double mean, Random rnd) {
+        long[] values = new long[n];
+        for (int i = 0; i < n; ++i) {
+            values[i] = (long) (-mean * Math.log(1.0 - rnd.nextDouble()));
+        }
+        return values;
+    }
+
+    private static long[] logNormal(int n, double mu, double sigma, Random rnd) {
+        long[] values = new long[n];
+        for (int i = 0; i < n; ++i) {
+            values[i] = (long) Math.exp(mu + sigma * rnd.nextGaussian());
+        }
+        return values;
+    }
+
+    private static void check(String what, long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.schwefel.kv.test;
+
+import net.volcanite.task.AsyncExecutor;
+import net.volcanite.task.AsyncTask;
+import net.volcanite.task.DrainSummary;
+import net.volcanite.task.PartitionedAsyncExecutor;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.TransmitTask;
+
+/**
+ * Writes the same sequence of puts through a single-threaded AsyncExecutor
+ * and through a PartitionedAsyncExecutor. Both must leave the last written
+ * value for every key in the store (the partitions keep the per-key order).
+ * The throughput is about the same since KVStore serializes all writes on
+ * its monitor.
+ */
+public class PartitionedAsyncExample {
+
+    private static final int RUNS = 500_000;
+    private static final int KEYS = 1_000;
+    private static final int PARTITIONS = 4;
+
+    public static void main(String[] args) {
+
+        try (StoreOps store = new KVStore(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kind kind = store.getKindManagement().getOrCreateKind("PartitionedAsyncExample");
+
+            AsyncExecutor single = new AsyncExecutor("Single", RUNS);
+            single.start();
+            long singleMs = run(store, kind, single::execute, () -> single.drain(60_000L));
+            verify(store, kind, "single");
+
+            PartitionedAsyncExecutor partitioned = new PartitionedAsyncExecutor("Partitioned", PARTITIONS, RUNS);
+            partitioned.start();
+            long partitionedMs = run(store, kind, partitioned::execute, () -> partitioned.drain(60_000L));
+            verify(store, kind, "partitioned");
+
+            System.out.println("single        :  " + singleMs + " ms (" + (RUNS * 1000L / Math.max(singleMs, 1L))
+                    + " puts/s)");
+            System.out.println("partitioned   :  " + partitionedMs + " ms ("
+                    + (RUNS * 1000L / Math.max(partitionedMs, 1L)) + " puts/s, " + PARTITIONS + " partitions)");
+            System.out.println("routed        :  " + Arrays.toString(partitioned.getRoutedCounts()));
+        }
+    }
+
+    private static long run(StoreOps store, Kind kind, Consumer<AsyncTask> executor,
+            Supplier<DrainSummary> drain) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < RUNS; ++i) {
+            executor.accept(new TransmitTask(store, kind, key(i % KEYS), ByteBuffer.allocate(4).putInt(i).array()));
+        }
+        DrainSummary summary = drain.get();
+        long elapsed = System.currentTimeMillis() - start;
+        if (summary.getDiscarded() != 0L || summary.getFailed() != 0L || !summary.isTerminated()) {
+            throw new AssertionError("incomplete run: " + summary);
+        }
+        return elapsed;
+    }
+
+    private static void verify(StoreOps store, Kind kind, String label) {
+        for (int k = 0; k < KEYS; ++k) {
+            int expected = RUNS - KEYS + k;
+            byte[] value = store.get(kind, key(k));
+            int actual = (value == null) ? -1 : ByteBuffer.wrap(value).getInt();
+            if (actual != expected) {
+                throw new AssertionError(label + ": key " + k + " holds " + actual + " (expected: " + expected + ")");
+            }
+        }
+        System.out.println(label + " order :  ok (" + KEYS + " keys)");
+    }
+
+    private static byte[] key(int k) {
+        return ByteBuffer.allocate(4).putInt(k).array();
+    }
+}
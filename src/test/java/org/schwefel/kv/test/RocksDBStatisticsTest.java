@@ -0,0 +1,45 @@
+package org.schwefel.kv.test;
+
+import java.nio.file.Paths;
+
+import org.rocksdb.HistogramData;
+import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.Stats;
+import org.schwefel.kv.StoreOps;
+
+import static org.schwefel.kv.test.TestUtil.randomBytes;
+import static net.volcanite.util.Precision.round;
+
+public class RocksDBStatisticsTest {
+
+    public static void main(String[] args) {
+        int RUNS = 250_000;
+        // RocksDB statistics are off unless a stats level is configured
+        System.setProperty(KVStore.class.getName() + ".statsLevel", "except_detailed_timers");
+
+        try (StoreOps store = new KVStore(Paths.get("C:/Temp/rocksdb_database"))) {
+            Kind defaultKind = store.getKindManagement().getDefaultKind();
+
+            for (int i = 0; i < RUNS; ++i) {
+                byte[] key = randomBytes();
+                store.put(defaultKind, key, randomBytes());
+                store.get(defaultKind, key);
+                store.delete(defaultKind, key);
+            }
+            printRocksDBStatistics(store.getStats());
+        }
+    }
+
+    private static void printRocksDBStatistics(Stats stats) {
+        System.out.println("stats level: " + stats.getStatsLevel());
+        System.out.println("block cache hit rate: " + round(stats.getBlockCacheHitRate()) + ", bloom useful: "
+                + stats.getBloomFilterUseful() + ", stall micros: " + stats.getStallMicros());
+        HistogramData walSync = stats.getWalSyncMicros();
+        if (walSync != null) {
+            System.out.println("WAL sync (us)> n: " + walSync.getCount() + ", median: " + walSync.getMedian()
+                    + ", p99: " + walSync.getPercentile99() + ", max: " + walSync.getMax());
+        }
+        System.out.println("tickers: " + stats.getTickerCounts());
+    }
+}
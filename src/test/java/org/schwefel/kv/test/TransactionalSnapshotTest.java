@@ -0,0 +1,90 @@
+package org.schwefel.kv.test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.schwefel.kv.ForEachKeyValue;
+import org.schwefel.kv.KVStore;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.Tx;
+
+public class TransactionalSnapshotTest {
+
+    private static final String[] KEYS = { "a", "b", "bb", "c", "d" };
+
+    public static void main(String[] args) {
+        try (StoreOps store = new KVStore(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kind kind = store.getKindManagement().getOrCreateKind("TransactionalSnapshotTest");
+            for (String key : KEYS) {
+                store.delete(kind, bytes(key));
+            }
+            store.put(kind, bytes("a"), bytes("1"));
+            store.put(kind, bytes("b"), bytes("b"));
+            store.put(kind, bytes("c"), bytes("c"));
+            store.put(kind, bytes("d"), bytes("d"));
+
+            // 1. a snapshot read doesn't see a commit that happened after the snapshot
+            try (Tx tx = store.startTx()) {
+                tx.setSnapshot();
+                check("snapshot read", "1", string(tx.get(kind, bytes("a"))));
+                try (Tx other = store.startTx()) {
+                    other.put(kind, bytes("a"), bytes("2"));
+                    other.commit();
+                }
+                check("snapshot read after concurrent commit", "1", string(tx.get(kind, bytes("a"))));
+                check("committed scan under snapshot", "[a=1, b=b, c=c, d=d]",
+                        collect(tx.scanAllCommitted(kind)).toString());
+                tx.clearSnapshot();
+                check("read after clearSnapshot", "2", string(tx.get(kind, bytes("a"))));
+                tx.rollback();
+            }
+
+            // 2. scanRange stops before its (exclusive) upper bound, also
+            // for the uncommitted writes of the Tx
+            try (Tx tx = store.startTx()) {
+                tx.put(kind, bytes("bb"), bytes("bb"));
+                check("scanRange [b, d)", "[b=b, bb=bb, c=c]",
+                        collect(tx.scanRange(kind, bytes("b"), bytes("d"))).toString());
+                check("scanRangeCommitted [b, d)", "[b=b, c=c]",
+                        collect(tx.scanRangeCommitted(kind, bytes("b"), bytes("d"))).toString());
+
+                // 3. scanAllCommitted ignores the uncommitted writes of the Tx
+                check("scanAll", "[a=2, b=b, bb=bb, c=c, d=d]", collect(tx.scanAll(kind)).toString());
+                check("scanAllCommitted", "[a=2, b=b, c=c, d=d]", collect(tx.scanAllCommitted(kind)).toString());
+                tx.rollback();
+            }
+            check("rolled back write", null, string(store.get(kind, bytes("bb"))));
+
+            for (String key : KEYS) {
+                store.delete(kind, bytes(key));
+            }
+            System.out.println("done");
+        }
+    }
+
+    private static List<String> collect(ForEachKeyValue kv) {
+        ArrayList<String> entries = new ArrayList<>();
+        try (ForEachKeyValue it = kv) {
+            it.forEachRemaining((key, value) -> entries.add(string(key) + "=" + string(value)));
+        }
+        return entries;
+    }
+
+    private static void check(String what, String expected, String actual) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(what + ": " + actual + " (expected: " + expected + ")");
+        }
+        System.out.println(what + " : " + actual);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b) {
+        return (b == null) ? null : new String(b, StandardCharsets.UTF_8);
+    }
+}
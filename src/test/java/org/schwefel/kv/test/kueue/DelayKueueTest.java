@@ -0,0 +1,43 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.DelayKueue;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class DelayKueueTest {
+
+    public static void main(String[] args) {
+
+        final int RUNS = 1_000;
+        final String family = "Test-DB-Delay";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            DelayKueue queue = km.getDelayed(family);
+            queue.clear();
+
+            for (int i = RUNS; i > 0; --i) {
+                queue.put(("msg-" + i).getBytes(), i, TimeUnit.MILLISECONDS);
+            }
+            System.out.println("queue size     : " + queue.size());
+            System.out.println("next due in    : " + (queue.nextDueTimeMillis() - System.currentTimeMillis())
+                    + " ms");
+
+            long start = System.currentTimeMillis();
+            int taken = 0;
+            byte[] msg;
+            while ((msg = queue.take(100L, TimeUnit.MILLISECONDS)) != null) {
+                if (taken++ % 100 == 0) {
+                    System.out.println("took           : " + new String(msg) + " after "
+                            + (System.currentTimeMillis() - start) + " ms");
+                }
+            }
+            System.out.println("taken          : " + taken);
+            System.out.println("total puts     : " + queue.totalPuts() + " , total takes: " + queue.totalTakes());
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
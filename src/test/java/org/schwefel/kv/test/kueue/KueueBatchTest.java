@@ -0,0 +1,70 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueBatchTest {
+
+    private static final Random rnd = new Random();
+
+    private static final byte[] randomBytes() {
+        int len = rnd.nextInt(910) + 1;
+        byte[] b = new byte[len];
+        rnd.nextBytes(b);
+        return b;
+    }
+
+    public static void main(String[] args) {
+
+        final int RUNS = 500_000;
+        final int BATCH_SIZE = 500;
+        final String family = "Test-DB-Batch";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.get(family);
+
+            System.out.println("RocksDB version: " + km.getRocksDBVersion());
+            System.out.println("queue size     : " + queue.size());
+
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < RUNS / BATCH_SIZE; ++i) {
+                ArrayList<byte[]> values = new ArrayList<>(BATCH_SIZE);
+                for (int j = 0; j < BATCH_SIZE; ++j) {
+                    values.add(randomBytes());
+                }
+                queue.putAll(values);
+            }
+            long end = System.currentTimeMillis();
+            System.out.println("putAll took    : " + ((end - start) / (double) queue.size()) + " ms / message");
+
+            System.out.println("queue size     : " + queue.size());
+            long count = queue.size();
+            long taken = 0L;
+            start = System.currentTimeMillis();
+            List<byte[]> batch;
+            while (!(batch = queue.takeBatch(BATCH_SIZE, 100L, TimeUnit.MILLISECONDS)).isEmpty()) {
+                taken += batch.size();
+            }
+            end = System.currentTimeMillis();
+            System.out.println("taken          : " + taken + " of " + count);
+            System.out.println("takeBatch took : " + ((end - start) / (double) count) + " ms / message");
+
+            queue.put(randomBytes());
+            ArrayList<byte[]> drained = new ArrayList<>();
+            System.out.println("drained        : " + queue.drainTo(drained, BATCH_SIZE));
+            System.out.println("total puts     : " + queue.totalPuts() + " , total takes: " + queue.totalTakes());
+            System.out.println("queue size     : " + queue.size());
+
+            System.out.println("done");
+            km.compactAll();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
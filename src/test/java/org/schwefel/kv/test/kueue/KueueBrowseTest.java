@@ -0,0 +1,58 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueCursor;
+import org.schwefel.kv.kueue.KueueLease;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueBrowseTest {
+
+    private static byte[] msg(int i) {
+        return ("message-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+
+        final int MESSAGES = 10;
+        final String family = "Test-DB-Browse";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.get(family);
+            queue.clear();
+
+            for (int i = 0; i < MESSAGES; ++i) {
+                queue.put(msg(i));
+            }
+            System.out.println("peek          : " + str(queue.peek()));
+
+            KueueLease lease = queue.poll(30L, TimeUnit.SECONDS);
+            long first = lease.sequence();
+            System.out.println("leased        : " + str(lease.value()) + " (seq " + first + ")");
+            System.out.println("peek          : " + str(queue.peek()));
+            System.out.println("get(leased)   : " + str(queue.get(first)));
+            System.out.println("get(leased+5) : " + str(queue.get(first + 5L)));
+
+            try (KueueCursor cursor = queue.browse(first, 4)) {
+                while (cursor.next()) {
+                    System.out.println("browse        : " + cursor.sequence() + " -> " + str(cursor.value()));
+                }
+            }
+            lease.ack();
+
+            System.out.println("queue size    : " + queue.size());
+            queue.clear();
+            System.out.println("peek (empty)  : " + str(queue.peek()));
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
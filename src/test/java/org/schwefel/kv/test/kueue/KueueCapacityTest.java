@@ -0,0 +1,72 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.Capacity;
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueLease;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueCapacityTest {
+
+    private static byte[] msg(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+
+        final String family = "Test-DB-Capacity";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.get(family);
+            queue.clear();
+            queue.setCapacity(Capacity.ofMessages(3L));
+            System.out.println("capacity      : " + queue.getCapacity());
+
+            for (int i = 1; i <= 4; ++i) {
+                System.out.println("offer " + i + "       : " + queue.offer(msg("m" + i)));
+            }
+            try {
+                queue.put(msg("m5"));
+            } catch (IllegalStateException expected) {
+                System.out.println("put           : " + expected.getMessage());
+            }
+
+            // a leased message still occupies space until it is acknowledged
+            KueueLease lease = queue.poll(30L, TimeUnit.SECONDS);
+            System.out.println("leased        : " + str(lease.value()));
+            System.out.println("offer (lease) : " + queue.offer(msg("m6")));
+
+            // a blocked producer wakes up when the lease is acknowledged
+            Thread consumer = new Thread(() -> {
+                try {
+                    Thread.sleep(200L);
+                } catch (InterruptedException ignore) {
+                }
+                lease.ack();
+            });
+            consumer.start();
+            long start = System.nanoTime();
+            boolean offered = queue.offer(msg("m7"), 5L, TimeUnit.SECONDS);
+            System.out.println("offer (timed) : " + offered + " after "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            consumer.join();
+
+            queue.setCapacity(Capacity.ofBytes(64L));
+            System.out.println("sizeInBytes   : " + queue.sizeInBytes());
+            System.out.println("offer (bytes) : " + queue.offer(new byte[100]));
+
+            queue.setCapacity(Capacity.UNBOUNDED);
+            queue.clear();
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.DeadLetterPolicy;
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueLease;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueDeadLetterTest {
+
+    private static byte[] msg(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+
+        final String family = "Test-DB-DeadLetter";
+        final String dlqFamily = "Test-DB-DeadLetter-DLQ";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.get(family);
+            Kueue dlq = km.get(dlqFamily);
+            queue.clear();
+            dlq.clear();
+
+            // a poison message gets dead-lettered after 3 rejections
+            queue.setDeadLetterPolicy(new DeadLetterPolicy(dlqFamily, 500L, 3));
+            queue.put(msg("poison"));
+            queue.put(msg("good"));
+            for (int i = 0; i < 3; ++i) {
+                System.out.println("accept        : " + queue.accept(m -> !"poison".equals(str(m))));
+            }
+            System.out.println("take          : " + str(queue.take(100L, TimeUnit.MILLISECONDS)));
+
+            // a lease that is never acknowledged
+            queue.put(msg("unacked"));
+            for (int i = 0; i < 3; ++i) {
+                KueueLease lease = queue.poll(100L, 30L, TimeUnit.SECONDS);
+                System.out.println("leased        : " + (lease == null ? null : str(lease.value())));
+                if (lease != null) {
+                    lease.nack();
+                }
+            }
+
+            // messages that expire before they reach a consumer
+            queue.put(msg("stale-1"));
+            queue.put(msg("stale-2"));
+            Thread.sleep(600L);
+            queue.put(msg("fresh"));
+            System.out.println("take          : " + str(queue.take(100L, TimeUnit.MILLISECONDS)));
+
+            // batch consumers don't get expired messages either
+            queue.put(msg("stale-3"));
+            queue.put(msg("stale-4"));
+            Thread.sleep(600L);
+            queue.put(msg("fresh-1"));
+            queue.put(msg("fresh-2"));
+            List<String> batch = new ArrayList<>();
+            for (byte[] value : queue.takeBatch(10, 100L, TimeUnit.MILLISECONDS)) {
+                batch.add(str(value));
+            }
+            System.out.println("takeBatch     : " + batch);
+            if (!batch.equals(Arrays.asList("fresh-1", "fresh-2"))) {
+                throw new AssertionError("expired messages in the batch: " + batch);
+            }
+
+            System.out.println("dead-lettered : " + queue.totalDeadLettered());
+            byte[] dead;
+            while ((dead = dlq.take(100L, TimeUnit.MILLISECONDS)) != null) {
+                System.out.println("dlq           : " + str(dead));
+            }
+            queue.setDeadLetterPolicy(DeadLetterPolicy.NONE);
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
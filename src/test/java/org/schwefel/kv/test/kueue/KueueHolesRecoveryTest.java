@@ -0,0 +1,84 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.Tx;
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueHolesRecoveryTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+
+        final Path dir = Paths.get("D:/Temp/rocksdb_database");
+        final String family = "Test-DB-Holes";
+
+        try {
+            try (KueueManager km = new KueueManager(dir)) {
+                StoreOps store = km.getStore();
+                Kueue queue = km.get(family);
+                queue.clear();
+
+                queue.put(bytes("m0"));
+                // a rolled back transaction leaves a hole
+                Tx tx = store.startTx();
+                queue.put(tx, bytes("rolled back"));
+                tx.rollback();
+                queue.put(bytes("m1"));
+                // so does a batch that is closed without being written
+                try (Batch batch = store.createBatch()) {
+                    queue.put(batch, bytes("never written"));
+                }
+                queue.put(bytes("m2"));
+                // simulate a crash while a batch is still open: its message is
+                // never written, but the message put after it is. The batch is
+                // deliberately neither written nor closed (the process "died")
+                Batch pending = store.createBatch();
+                queue.put(pending, bytes("pending at crash"));
+                queue.put(bytes("m3"));
+                System.out.println("size before reopen : " + queue.size());
+            }
+
+            try (KueueManager km = new KueueManager(dir)) {
+                Kueue queue = km.get(family);
+                System.out.println("size after reopen  : " + queue.size());
+                if (queue.size() != 4L) {
+                    throw new AssertionError("expected 4 messages but size is " + queue.size());
+                }
+                List<String> taken = new ArrayList<>();
+                byte[] value;
+                while ((value = queue.take(100L, TimeUnit.MILLISECONDS)) != null) {
+                    taken.add(str(value));
+                }
+                System.out.println("taken              : " + taken);
+                List<String> expected = Arrays.asList("m0", "m1", "m2", "m3");
+                if (!taken.equals(expected)) {
+                    throw new AssertionError("expected " + expected + " but took " + taken);
+                }
+                if (!queue.isEmpty()) {
+                    throw new AssertionError("size after draining: " + queue.size());
+                }
+                queue.clear();
+            }
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
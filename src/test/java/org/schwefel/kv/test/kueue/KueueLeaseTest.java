@@ -0,0 +1,54 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueLease;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueLeaseTest {
+
+    public static void main(String[] args) {
+
+        final int RUNS = 10_000;
+        final String family = "Test-DB-Lease";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.get(family);
+            queue.clear();
+
+            for (int i = 0; i < RUNS; ++i) {
+                queue.put(("msg-" + i).getBytes());
+            }
+            System.out.println("queue size     : " + queue.size());
+
+            KueueLease first = queue.poll(100L, TimeUnit.MILLISECONDS);
+            System.out.println("leased         : " + new String(first.value()) + " , in flight: "
+                    + queue.inFlightCount());
+            Thread.sleep(150L);
+            // the lease has expired and the message gets redelivered
+            KueueLease again = queue.poll(30L, TimeUnit.SECONDS);
+            System.out.println("redelivered    : " + new String(again.value()) + " , deliveries: "
+                    + again.deliveryCount() + " , stale ack: " + first.ack());
+            System.out.println("nack           : " + again.nack());
+
+            long start = System.currentTimeMillis();
+            int acked = 0;
+            KueueLease lease;
+            while ((lease = queue.poll(30L, TimeUnit.SECONDS)) != null) {
+                if (lease.ack()) {
+                    ++acked;
+                }
+            }
+            long end = System.currentTimeMillis();
+            System.out.println("acked          : " + acked);
+            System.out.println("poll/ack took  : " + ((end - start) / (double) acked) + " ms / message");
+            System.out.println("queue size     : " + queue.size() + " , in flight: " + queue.inFlightCount());
+
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
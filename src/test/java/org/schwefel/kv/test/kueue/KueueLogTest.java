@@ -0,0 +1,66 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.schwefel.kv.kueue.ConsumerGroup;
+import org.schwefel.kv.kueue.KueueLog;
+import org.schwefel.kv.kueue.KueueManager;
+import org.schwefel.kv.kueue.Retention;
+
+public class KueueLogTest {
+
+    private static final Random rnd = new Random();
+
+    private static final byte[] randomBytes() {
+        int len = rnd.nextInt(910) + 1;
+        byte[] b = new byte[len];
+        rnd.nextBytes(b);
+        return b;
+    }
+
+    public static void main(String[] args) {
+
+        final int RUNS = 100_000;
+        final String family = "Test-DB-Log";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            KueueLog log = km.getLog(family);
+            log.setRetention(Retention.UNTIL_CONSUMED);
+            ConsumerGroup billing = log.group("billing");
+            ConsumerGroup audit = log.group("audit");
+
+            System.out.println("RocksDB version: " + km.getRocksDBVersion());
+            System.out.println("log size       : " + log.size() + " , groups: " + log.groups());
+
+            long start = System.currentTimeMillis();
+            for (int i = 1; i <= RUNS; ++i) {
+                log.append(randomBytes());
+            }
+            long end = System.currentTimeMillis();
+            System.out.println("append took    : " + ((end - start) / (double) RUNS) + " ms / message");
+            System.out.println("log size       : " + log.size() + " , bytes: " + log.sizeInBytes());
+
+            start = System.currentTimeMillis();
+            while (billing.poll() != null) {
+                ;
+            }
+            end = System.currentTimeMillis();
+            System.out.println("poll took      : " + ((end - start) / (double) RUNS) + " ms / message");
+            System.out.println("billing lag    : " + billing.lag() + " , audit lag: " + audit.lag());
+            System.out.println("log size       : " + log.size() + " (audit hasn't consumed yet)");
+
+            while (audit.poll() != null) {
+                ;
+            }
+            System.out.println("removed        : " + log.enforceRetention());
+            System.out.println("log size       : " + log.size() + " , first: " + log.firstSequence() + " , next: "
+                    + log.nextSequence());
+
+            System.out.println("done");
+            km.compactAll();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.schwefel.kv.test.kueue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Random;
+
+import javax.management.ObjectName;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueManager;
+import org.schwefel.kv.kueue.KueueMetrics;
+
+public class KueueMetricsTest {
+
+    private static final Random rnd = new Random();
+
+    private static final byte[] randomBytes() {
+        int len = rnd.nextInt(910) + 1;
+        byte[] b = new byte[len];
+        rnd.nextBytes(b);
+        return b;
+    }
+
+    public static void main(String[] args) {
+
+        final int RUNS = 100_000;
+        final String family = "Test-DB-Metrics";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            km.registerMBeans();
+            Kueue queue = km.get(family);
+            KueueMetrics before = queue.getMetrics();
+
+            Thread consumer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < RUNS; ++i) {
+                        queue.take();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumer.start();
+            for (int i = 0; i < RUNS; ++i) {
+                queue.put(randomBytes());
+            }
+            consumer.join();
+
+            KueueMetrics after = queue.getMetrics();
+            System.out.println("enqueue rate  : " + after.getEnqueueRate(before) + " / s");
+            System.out.println("dequeue rate  : " + after.getDequeueRate(before) + " / s");
+            System.out.println("time in queue : " + after.getTimeInQueueMillis());
+            System.out.println("consumer wait : " + after.getConsumerWaitNanos());
+            System.out.println("putLock hold  : " + after.getPutLockHoldNanos());
+            System.out.println("takeLock hold : " + after.getTakeLockHoldNanos());
+            for (Map.Entry<String, KueueMetrics> e : km.getMetrics().entrySet()) {
+                System.out.println(e.getKey() + " : size " + e.getValue().getSize() + ", oldest "
+                        + e.getValue().getOldestMessageAgeMillis() + " ms");
+            }
+            km.getLog(family + "-Log");
+            km.getDelayed(family + "-Delayed");
+            km.getPrioritized(family + "-Priority", 3);
+            for (String type : new String[] { "Kueue", "KueueLog", "DelayKueue", "PriorityKueue" }) {
+                System.out.println("MBeans " + type + " : " + ManagementFactory.getPlatformMBeanServer()
+                        .queryNames(new ObjectName("org.schwefel.kv:type=" + type + ",*"), null));
+            }
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
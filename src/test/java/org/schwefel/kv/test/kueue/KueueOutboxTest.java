@@ -0,0 +1,72 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.Batch;
+import org.schwefel.kv.Kind;
+import org.schwefel.kv.StoreOps;
+import org.schwefel.kv.Tx;
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueueOutboxTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+
+        final int RUNS = 100_000;
+        final String family = "Test-DB-Outbox";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            StoreOps store = km.getStore();
+            Kind accounts = store.getKindManagement().getOrCreateKind("Test-DB-Outbox-Accounts");
+            Kueue queue = km.get(family);
+            queue.clear();
+
+            // update a record and enqueue the event in one transaction
+            Tx tx = store.startTx();
+            tx.put(accounts, bytes("account-1"), bytes("balance=100"));
+            queue.put(tx, bytes("account-1 updated"));
+            System.out.println("before commit : " + queue.size());
+            tx.commit();
+            System.out.println("after commit  : " + queue.size());
+
+            // a rolled back transaction leaves no message
+            tx = store.startTx();
+            tx.put(accounts, bytes("account-2"), bytes("balance=200"));
+            queue.put(tx, bytes("account-2 updated"));
+            queue.put(bytes("direct"));
+            System.out.println("pending tx    : " + queue.size());
+            tx.rollback();
+            System.out.println("after rollback: " + queue.size());
+
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < RUNS; ++i) {
+                try (Batch batch = store.createBatch()) {
+                    batch.put(accounts, bytes("account-" + i), bytes("balance=" + i));
+                    queue.put(batch, bytes("account-" + i + " updated"));
+                    store.writeBatch(batch);
+                }
+            }
+            long end = System.currentTimeMillis();
+            System.out.println("batch puts    : " + ((end - start) / (double) RUNS) + " ms / update");
+
+            System.out.println("take          : " + str(queue.take(100L, TimeUnit.MILLISECONDS)));
+            System.out.println("take          : " + str(queue.take(100L, TimeUnit.MILLISECONDS)));
+            System.out.println("queue size    : " + queue.size());
+            queue.clear();
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
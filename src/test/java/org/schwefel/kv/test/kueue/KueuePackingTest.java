@@ -0,0 +1,60 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueCursor;
+import org.schwefel.kv.kueue.KueueLease;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class KueuePackingTest {
+
+    private static byte[] msg(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+
+        final String family = "Test-DB-Packing";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.get(family);
+            queue.clear();
+
+            List<byte[]> values = new ArrayList<>();
+            for (int i = 1; i <= 5; ++i) {
+                values.add(msg("{\"id\":" + i + "}"));
+            }
+            queue.putPacked(values);
+            queue.put(msg("{\"id\":6}"));
+            System.out.println("size          : " + queue.size());
+
+            try (KueueCursor cursor = queue.browse(0L, 10)) {
+                while (cursor.next()) {
+                    System.out.println("browse        : " + cursor.sequence() + " -> " + str(cursor.value()));
+                }
+            }
+
+            System.out.println("take          : " + str(queue.take()));
+            KueueLease lease = queue.poll(30L, TimeUnit.SECONDS);
+            System.out.println("leased        : " + lease.sequence() + " -> " + str(lease.value()));
+            System.out.println("get           : " + str(queue.get(lease.sequence() + 1L)));
+            lease.ack();
+            for (byte[] value : queue.takeBatch(10, 100L, TimeUnit.MILLISECONDS)) {
+                System.out.println("takeBatch     : " + str(value));
+            }
+            System.out.println("size          : " + queue.size());
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueManager;
+import org.schwefel.kv.kueue.KueueSubscription;
+
+public class KueueSubscribeTest {
+
+    private static final int QUEUES = 100;
+    private static final int MESSAGES_PER_QUEUE = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            AtomicLong received = new AtomicLong();
+            ArrayList<Kueue> queues = new ArrayList<>();
+            ArrayList<KueueSubscription> subscriptions = new ArrayList<>();
+            for (int i = 0; i < QUEUES; ++i) {
+                Kueue queue = km.get("Test-DB-Subscribe-" + i);
+                queue.clear();
+                queues.add(queue);
+                subscriptions.add(queue.subscribe(msg -> {
+                    received.incrementAndGet();
+                    return true;
+                }, pool, 16));
+            }
+
+            long start = System.currentTimeMillis();
+            for (int j = 0; j < MESSAGES_PER_QUEUE; ++j) {
+                for (Kueue queue : queues) {
+                    queue.put(("msg-" + j).getBytes());
+                }
+            }
+            long total = (long) QUEUES * MESSAGES_PER_QUEUE;
+            while (received.get() < total) {
+                Thread.sleep(10L);
+            }
+            long end = System.currentTimeMillis();
+            System.out.println("received       : " + received.get() + " of " + total + " with 4 threads");
+            System.out.println("took           : " + ((end - start) / (double) total) + " ms / message");
+
+            for (KueueSubscription subscription : subscriptions) {
+                subscription.cancel();
+            }
+            while (subscriptions.stream().anyMatch(s -> s.inFlight() > 0)) {
+                Thread.sleep(10L);
+            }
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+
+import org.schwefel.kv.kueue.KueueManager;
+import org.schwefel.kv.kueue.PriorityKueue;
+
+public class PriorityKueueTest {
+
+    public static void main(String[] args) {
+
+        final int RUNS = 10_000;
+        final String family = "Test-DB-Priority";
+
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            PriorityKueue queue = km.getPrioritized(family, 3);
+            queue.clear();
+
+            for (int i = 0; i < RUNS; ++i) {
+                queue.put(("bulk-" + i).getBytes(), 2);
+            }
+            queue.put("urgent".getBytes(), 0);
+            System.out.println("queue size     : " + queue.size() + " , lane 2: " + queue.size(2));
+            System.out.println("first take     : " + new String(queue.poll()));
+
+            for (int i = 0; i < RUNS; ++i) {
+                queue.put(("high-" + i).getBytes(), 0);
+            }
+            queue.setWeights(6, 3, 1);
+            int bulk = 0;
+            for (int i = 0; i < 1_000; ++i) {
+                if (new String(queue.poll()).startsWith("bulk")) {
+                    ++bulk;
+                }
+            }
+            System.out.println("bulk share     : " + bulk + " of 1000 (weights 6:3:1)");
+
+            queue.clear();
+            System.out.println("total puts     : " + queue.totalPuts() + " , total takes: " + queue.totalTakes());
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.schwefel.kv.test.kueue;
+
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.schwefel.kv.kueue.Kueue;
+import org.schwefel.kv.kueue.KueueManager;
+
+public class ShardedKueueTest {
+
+    private static final int PRODUCERS = 16;
+    private static final int CONSUMERS = 4;
+    private static final int SHARDS = 8;
+    private static final int RUNS_PER_PRODUCER = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        try (KueueManager km = new KueueManager(Paths.get("D:/Temp/rocksdb_database"))) {
+            Kueue queue = km.getSharded("Test-DB-Sharded", SHARDS);
+            queue.clear();
+            try {
+                km.get("Test-DB-Sharded#0");
+                throw new AssertionError("a shard must not be handed out as a plain Kueue");
+            } catch (IllegalArgumentException expected) {
+                System.out.println("rejected       : " + expected.getMessage());
+            }
+
+            CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+            AtomicLong consumed = new AtomicLong();
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < PRODUCERS; ++i) {
+                new Thread(() -> {
+                    Random rnd = new Random();
+                    for (int j = 0; j < RUNS_PER_PRODUCER; ++j) {
+                        byte[] b = new byte[rnd.nextInt(200) + 1];
+                        rnd.nextBytes(b);
+                        queue.put(b);
+                    }
+                    producersDone.countDown();
+                }).start();
+            }
+            Thread[] consumers = new Thread[CONSUMERS];
+            for (int i = 0; i < CONSUMERS; ++i) {
+                consumers[i] = new Thread(() -> {
+                    try {
+                        while (queue.take(1L, TimeUnit.SECONDS) != null) {
+                            consumed.incrementAndGet();
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                });
+                consumers[i].start();
+            }
+            producersDone.await();
+            for (Thread consumer : consumers) {
+                consumer.join();
+            }
+            long end = System.currentTimeMillis();
+            long total = (long) PRODUCERS * RUNS_PER_PRODUCER;
+            System.out.println("consumed       : " + consumed.get() + " of " + total);
+            System.out.println("put/take took  : " + ((end - start) / (double) total) + " ms / message");
+            System.out.println("queue size     : " + queue.size());
+            System.out.println("done");
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}